@@ -0,0 +1,66 @@
+package me.coley.analysis.benchmark;
+
+import me.coley.analysis.SimAnalyzer;
+import me.coley.analysis.SimInterpreter;
+import me.coley.analysis.value.provenance.ProvenanceMode;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.analysis.AnalyzerException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link SimAnalyzer#analyze(String, MethodNode)} over every method of the bundled corpus.
+ * One operation is a full pass over the corpus. Allocation rates can be reported with {@code -prof gc}.
+ *
+ * @author Matt Coley
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnalyzeBenchmark {
+	@Param({"false", "true"})
+	private boolean reflectionSimulation;
+	@Param({"true", "false"})
+	private boolean skipDeadCode;
+	@Param({"PERSISTENT", "LIST", "BITSET", "ON_DEMAND", "DISABLED"})
+	private ProvenanceMode provenanceMode;
+	private List<ClassNode> classes;
+
+	/**
+	 * Parse the corpus once, parsing is not part of the measurement.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		classes = Corpus.loadNodes(ClassReader.SKIP_FRAMES);
+	}
+
+	/**
+	 * @param blackhole
+	 * 		Sink for generated frames.
+	 */
+	@Benchmark
+	public void analyzeCorpus(Blackhole blackhole) {
+		for (ClassNode node : classes)
+			for (MethodNode method : node.methods) {
+				SimInterpreter interpreter = new SimInterpreter();
+				interpreter.setUseReflectionSimulation(reflectionSimulation);
+				interpreter.setProvenanceMode(provenanceMode);
+				SimAnalyzer analyzer = new SimAnalyzer(interpreter);
+				analyzer.setSkipDeadCodeBlocks(skipDeadCode);
+				try {
+					blackhole.consume(analyzer.analyze(node.name, method));
+				} catch (AnalyzerException ex) {
+					// The corpus intentionally contains illegal code
+					blackhole.consume(ex);
+				}
+			}
+	}
+}
@@ -0,0 +1,73 @@
+package me.coley.analysis.benchmark;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.tree.ClassNode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Loader for the class corpus bundled with the test resources.
+ *
+ * @author Matt Coley
+ */
+public class Corpus {
+	/**
+	 * System property to point the benchmarks at a different corpus root.
+	 */
+	public static final String ROOT_PROPERTY = "corpus.root";
+	private static final String DEFAULT_ROOT = "../src/test/resources/bin";
+
+	/**
+	 * @return Root directory of the corpus.
+	 */
+	public static Path getRoot() {
+		return Paths.get(System.getProperty(ROOT_PROPERTY, DEFAULT_ROOT));
+	}
+
+	/**
+	 * @return Raw bytes of all classes in the corpus, in a stable order.
+	 */
+	public static List<byte[]> loadBytes() {
+		Path root = getRoot();
+		if (!Files.isDirectory(root))
+			throw new IllegalStateException("Corpus root does not exist: " + root.toAbsolutePath() +
+					", run from the 'benchmark' directory or set -D" + ROOT_PROPERTY);
+		List<byte[]> classes = new ArrayList<>();
+		for (String sub : new String[]{"javac", "custom"}) {
+			try (Stream<Path> stream = Files.walk(root.resolve(sub))) {
+				List<Path> paths = stream.filter(p -> p.toString().endsWith(".class"))
+						.sorted()
+						.collect(Collectors.toList());
+				for (Path path : paths)
+					classes.add(Files.readAllBytes(path));
+			} catch (IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+		}
+		return classes;
+	}
+
+	/**
+	 * @param readFlags
+	 * 		Flags to pass to {@link ClassReader}.
+	 *
+	 * @return Parsed nodes of all classes in the corpus.
+	 */
+	public static List<ClassNode> loadNodes(int readFlags) {
+		List<ClassNode> nodes = new ArrayList<>();
+		for (byte[] code : loadBytes()) {
+			ClassNode node = new ClassNode();
+			new ClassReader(code).accept(node, readFlags);
+			nodes.add(node);
+		}
+		return nodes;
+	}
+}
@@ -0,0 +1,80 @@
+package me.coley.analysis.benchmark;
+
+import me.coley.analysis.SimFrame;
+import me.coley.analysis.value.AbstractValue;
+import me.coley.analysis.value.PrimitiveValue;
+import me.coley.analysis.value.UninitializedValue;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.InsnNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the frame operations the analyzer performs for every instruction: copying a frame and storing locals.
+ * Every other local holds a long constant, so half of the slots are reserved. Allocation per operation can be
+ * reported with {@code -prof gc}.
+ *
+ * @author Matt Coley
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameBenchmark {
+	@Param({"8", "64"})
+	private int locals;
+	private SimFrame frame;
+	private SimFrame target;
+	private AbstractValue[] values;
+	private AbstractValue[] writes;
+
+	/**
+	 * Create a frame populated with long constants, and different constants to write over them.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		InsnNode insn = new InsnNode(Opcodes.LCONST_1);
+		values = new AbstractValue[locals];
+		writes = new AbstractValue[locals];
+		for (int i = 0; i < locals; i++) {
+			values[i] = i % 2 == 0 ? PrimitiveValue.ofLong(insn, i) : UninitializedValue.UNINITIALIZED_VALUE;
+			writes[i] = i % 2 == 0 ? PrimitiveValue.ofLong(insn, -i) : UninitializedValue.UNINITIALIZED_VALUE;
+		}
+		frame = new SimFrame(locals, 4);
+		for (int i = 0; i < locals; i++)
+			frame.setLocal(i, values[i]);
+		target = new SimFrame(frame);
+	}
+
+	/**
+	 * @return Copy of the frame, as done for every stored frame.
+	 */
+	@Benchmark
+	public SimFrame copyFrame() {
+		return new SimFrame(frame);
+	}
+
+	/**
+	 * @return Frame re-initialized from another, as done before executing every instruction.
+	 */
+	@Benchmark
+	public SimFrame initFrame() {
+		target.init(frame);
+		return target;
+	}
+
+	/**
+	 * @return Frame re-initialized from another, after storing a different value in every long local.
+	 * The first write to each chunk of shared locals copies it.
+	 */
+	@Benchmark
+	public SimFrame setLocals() {
+		target.init(frame);
+		for (int i = 0; i < locals; i++)
+			target.setLocal(i, writes[i]);
+		return target;
+	}
+}
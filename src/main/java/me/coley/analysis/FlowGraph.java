@@ -0,0 +1,155 @@
+package me.coley.analysis;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Control flow edges of an analyzed method, shared by all of its frames.
+ * <br>
+ * Edges are stored once as compressed rows of instruction indices, one row of successors and one row of
+ * predecessors per instruction. Frames expose their rows through {@link SimFrame#getFlowInputs()} and
+ * {@link SimFrame#getFlowOutputs()} as read-only views, so memory scales with the number of edges.
+ *
+ * @author Matt Coley
+ */
+final class FlowGraph {
+	private final SimFrame[] frames;
+	private final int[] outputOffsets;
+	private final int[] outputs;
+	private final int[] inputOffsets;
+	private final int[] inputs;
+
+	private FlowGraph(SimFrame[] frames, int[] outputOffsets, int[] outputs, int[] inputOffsets, int[] inputs) {
+		this.frames = frames;
+		this.outputOffsets = outputOffsets;
+		this.outputs = outputs;
+		this.inputOffsets = inputOffsets;
+		this.inputs = inputs;
+	}
+
+	/**
+	 * @param frames
+	 * 		Frames of the method, indexed by instruction.
+	 * @param edges
+	 * 		Recorded edges, as pairs of source and destination instruction indices. May contain duplicates.
+	 * @param edgeCount
+	 * 		Number of recorded pairs.
+	 *
+	 * @return Graph of the distinct edges between existing frames.
+	 */
+	static FlowGraph of(SimFrame[] frames, int[] edges, int edgeCount) {
+		int size = frames.length;
+		// Group edges by source
+		int[] outputOffsets = new int[size + 1];
+		for (int i = 0; i < edgeCount; i++)
+			if (isEdge(frames, edges, i))
+				outputOffsets[edges[i * 2] + 1]++;
+		for (int i = 0; i < size; i++)
+			outputOffsets[i + 1] += outputOffsets[i];
+		int[] outputs = new int[outputOffsets[size]];
+		int[] cursor = Arrays.copyOf(outputOffsets, size);
+		for (int i = 0; i < edgeCount; i++)
+			if (isEdge(frames, edges, i))
+				outputs[cursor[edges[i * 2]]++] = edges[i * 2 + 1];
+		// Drop duplicate edges, the analyzer records an edge each time it revisits an instruction
+		int offset = 0;
+		for (int i = 0; i < size; i++) {
+			int start = outputOffsets[i];
+			int end = outputOffsets[i + 1];
+			outputOffsets[i] = offset;
+			Arrays.sort(outputs, start, end);
+			for (int j = start; j < end; j++)
+				if (j == start || outputs[j] != outputs[j - 1])
+					outputs[offset++] = outputs[j];
+		}
+		outputOffsets[size] = offset;
+		if (offset != outputs.length)
+			outputs = Arrays.copyOf(outputs, offset);
+		// Invert to group edges by destination
+		int[] inputOffsets = new int[size + 1];
+		for (int output : outputs)
+			inputOffsets[output + 1]++;
+		for (int i = 0; i < size; i++)
+			inputOffsets[i + 1] += inputOffsets[i];
+		int[] inputs = new int[outputs.length];
+		cursor = Arrays.copyOf(inputOffsets, size);
+		for (int i = 0; i < size; i++)
+			for (int j = outputOffsets[i]; j < outputOffsets[i + 1]; j++)
+				inputs[cursor[outputs[j]]++] = i;
+		return new FlowGraph(frames, outputOffsets, outputs, inputOffsets, inputs);
+	}
+
+	private static boolean isEdge(SimFrame[] frames, int[] edges, int i) {
+		return frames[edges[i * 2]] != null && frames[edges[i * 2 + 1]] != null;
+	}
+
+	/**
+	 * @param index
+	 * 		Instruction index.
+	 *
+	 * @return Frames that flow into the frame at the index.
+	 */
+	Set<SimFrame> getInputFrames(int index) {
+		return new FrameSet(inputOffsets, inputs, index);
+	}
+
+	/**
+	 * @param index
+	 * 		Instruction index.
+	 *
+	 * @return Frames the frame at the index flows into.
+	 */
+	Set<SimFrame> getOutputFrames(int index) {
+		return new FrameSet(outputOffsets, outputs, index);
+	}
+
+	/**
+	 * Read-only view of a row of frames.
+	 */
+	private final class FrameSet extends AbstractSet<SimFrame> {
+		private final int start;
+		private final int end;
+		private final int[] row;
+
+		private FrameSet(int[] offsets, int[] row, int index) {
+			this.start = offsets[index];
+			this.end = offsets[index + 1];
+			this.row = row;
+		}
+
+		@Override
+		public Iterator<SimFrame> iterator() {
+			return new Iterator<SimFrame>() {
+				private int next = start;
+
+				@Override
+				public boolean hasNext() {
+					return next < end;
+				}
+
+				@Override
+				public SimFrame next() {
+					if (next >= end)
+						throw new NoSuchElementException();
+					return frames[row[next++]];
+				}
+			};
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			for (int i = start; i < end; i++)
+				if (frames[row[i]] == o)
+					return true;
+			return false;
+		}
+
+		@Override
+		public int size() {
+			return end - start;
+		}
+	}
+}
@@ -1,9 +1,6 @@
 package me.coley.analysis;
 
-import me.coley.analysis.util.InternalAnalyzerHackery;
 import org.objectweb.asm.tree.AbstractInsnNode;
-import org.objectweb.asm.tree.JumpInsnNode;
-import org.objectweb.asm.tree.LabelNode;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -13,52 +10,24 @@ import static me.coley.analysis.OpaquePredicateType.GOTO_DESTINATION;
 
 /**
  * Opaque predicate manager.
+ * <br>
+ * The interpreter reports predicates that always go one way while an instruction is being visited, and
+ * {@link SimAnalyzer} polls the decision after the visit to choose which successors of the jump to follow.
  *
  * @author Matt Coley
  */
 public class OpaqueHandler {
 	private final Map<AbstractInsnNode, OpaquePredicateType> opaqueJumpMap = new HashMap<>();
-	private final InternalAnalyzerHackery hackery;
-	private boolean hasHitOpaquePredicate;
-	private boolean doesOpaqueJumpGotoDestination;
-	private LabelNode destination;
-
-	/**
-	 * Initialize handler.
-	 *
-	 * @param hackery
-	 * 		Analyzer hacker.
-	 */
-	public OpaqueHandler(InternalAnalyzerHackery hackery) {
-		this.hackery = hackery;
-	}
+	private AbstractInsnNode visitInsn;
+	private OpaquePredicateType visitType;
 
 	/**
 	 * Reset state.
 	 */
 	public void reset() {
-		hasHitOpaquePredicate = false;
-		doesOpaqueJumpGotoDestination = false;
 		opaqueJumpMap.clear();
-		destination = null;
-	}
-
-	/**
-	 * Called when a new control flow edge is visited. This occurs immediately after visiting
-	 * opaque predicates, so we use this to intercept ASM's CFG handling.
-	 *
-	 * @param insnIndex
-	 * 		New flow edge index.
-	 * @param successorIndex
-	 * 		Prior edge index.
-	 */
-	public void onVisitControlFlowEdge(int insnIndex, int successorIndex) {
-		if (hasHitOpaquePredicate && doesOpaqueJumpGotoDestination) {
-			int fallthroughIndex = insnIndex + 1;
-			hackery.stopAnalyzerFromGoingToFallthrough(fallthroughIndex, destination);
-		}
-		// Reset opaque predicate marker
-		hasHitOpaquePredicate = false;
+		visitInsn = null;
+		visitType = null;
 	}
 
 	/**
@@ -69,13 +38,33 @@ public class OpaqueHandler {
 	 * 		it falls through.
 	 */
 	public void setOpaqueJump(AbstractInsnNode insn, boolean gotoDestination) {
+		OpaquePredicateType type = gotoDestination ? GOTO_DESTINATION : FALL_THROUGH;
 		// Update map of <jump-insn, do-jump>
-		opaqueJumpMap.put(insn, gotoDestination ? GOTO_DESTINATION : FALL_THROUGH);
-		// Update mark opaque predicate flags
-		this.hasHitOpaquePredicate = true;
-		this.doesOpaqueJumpGotoDestination = gotoDestination;
-		if (insn instanceof JumpInsnNode)
-			this.destination = ((JumpInsnNode) insn).label;
+		opaqueJumpMap.put(insn, type);
+		// Record decision of the current visit
+		visitInsn = insn;
+		visitType = type;
+	}
+
+	/**
+	 * Called once the given instruction has been visited. If no decision was made in the visit, the
+	 * instruction is no longer considered to be an opaque predicate. This happens when a later visit merges
+	 * in another path where the predicate's operands are no longer constant.
+	 *
+	 * @param insn
+	 * 		Instruction visited.
+	 *
+	 * @return Decision made for the instruction in the visit, or {@code null} when both successors must be visited.
+	 */
+	public OpaquePredicateType pollDecision(AbstractInsnNode insn) {
+		OpaquePredicateType type = null;
+		if (visitInsn == insn)
+			type = visitType;
+		else
+			opaqueJumpMap.remove(insn);
+		visitInsn = null;
+		visitType = null;
+		return type;
 	}
 
 	/**
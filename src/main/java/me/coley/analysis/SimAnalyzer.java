@@ -3,37 +3,59 @@ package me.coley.analysis;
 import me.coley.analysis.cfg.BlockHandler;
 import me.coley.analysis.exception.ResolvableAnalyzerException;
 import me.coley.analysis.exception.ResolvableExceptionFactory;
-import me.coley.analysis.util.Flow;
 import me.coley.analysis.util.FlowUtil;
-import me.coley.analysis.util.InternalAnalyzerHackery;
+import me.coley.analysis.util.ReflectionTypeResolver;
+import me.coley.analysis.util.TypeCache;
 import me.coley.analysis.util.TypeUtil;
 import me.coley.analysis.value.AbstractValue;
+import me.coley.analysis.value.provenance.ProvenanceMode;
 import org.objectweb.asm.Type;
-import org.objectweb.asm.tree.AbstractInsnNode;
-import org.objectweb.asm.tree.JumpInsnNode;
-import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.*;
 import org.objectweb.asm.tree.analysis.Analyzer;
 import org.objectweb.asm.tree.analysis.AnalyzerException;
 import org.objectweb.asm.tree.analysis.Frame;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.function.IntPredicate;
+
+import static me.coley.analysis.OpaquePredicateType.FALL_THROUGH;
+import static me.coley.analysis.OpaquePredicateType.GOTO_DESTINATION;
 
 /**
  * Analyzer that uses {@link SimFrame} and is based on {@link AbstractValue}s.
+ * <br>
+ * The fixed point is computed by a worklist loop of our own rather than the one in {@link Analyzer}.
+ * When dead code blocks are skipped, the successors of opaque predicates are chosen as they are visited,
+ * so dead branches are never queued. Methods with subroutines <i>({@code JSR/RET})</i> are delegated to
+ * {@link Analyzer} without dead code skipping.
  *
  * @author Matt Coley
  */
 public class SimAnalyzer extends Analyzer<AbstractValue> {
-	private final InternalAnalyzerHackery hackery = new InternalAnalyzerHackery(this);
-	private final OpaqueHandler opaqueHandler = new OpaqueHandler(hackery);
+	private final OpaqueHandler opaqueHandler = new OpaqueHandler();
 	private final SimInterpreter interpreter;
-	private final List<Flow> flows = new ArrayList<>();
+	// Recorded control flow edges, as pairs of source and destination instruction indices
+	private int[] flowEdges = new int[64];
+	private int flowCount;
 	private boolean throwUnresolvedAnalyzerErrors = true;
 	private boolean skipDeadCodeBlocks = true;
+	private TypeResolver typeResolver;
 	private MethodNode method;
+	private InsnList insnList;
+	private List<TryCatchBlockNode>[] handlers;
+	private SimFrame[] frames;
+	// Instructions frames are kept for during analysis, 'null' when all frames are kept
+	private boolean[] retained;
+	// Fall through successor without a retained frame, visited right after its predecessor
+	private int pendingIndex;
+	private SimFrame pendingFrame;
+	private boolean[] queued;
+	private int[] queue;
+	private int queueSize;
 
 	/**
 	 * Create analyzer.
@@ -49,7 +71,7 @@ public class SimAnalyzer extends Analyzer<AbstractValue> {
 		this.interpreter.setStaticInvokeFactory(createStaticInvokeFactory());
 		this.interpreter.setStaticGetFactory(createStaticGetFactory());
 		this.interpreter.setParameterFactory(createParameterFactory());
-		this.interpreter.setTypeResolver(createTypeResolver());
+		this.interpreter.setTypeResolver(getTypeResolver());
 	}
 
 	/**
@@ -62,16 +84,61 @@ public class SimAnalyzer extends Analyzer<AbstractValue> {
 	 */
 	private void reset(String owner, MethodNode method) {
 		this.method = method;
-		flows.clear();
+		insnList = method.instructions;
+		handlers = null;
+		frames = null;
+		retained = null;
+		pendingFrame = null;
+		queued = null;
+		queue = null;
+		queueSize = 0;
+		flowCount = 0;
 		opaqueHandler.reset();
 		interpreter.reset(owner, method);
 	}
 
 	@Override
 	public SimFrame[] analyze(String owner, MethodNode method) throws AnalyzerException {
+		return analyze(owner, method, null);
+	}
+
+	/**
+	 * Analyze a method, but only return the frames of the requested instructions.
+	 * <br>
+	 * The analysis still reaches the same fixed point, but frames are only kept for the requested instructions,
+	 * and internally for the labels where control flow merges. Instructions in between are executed as their
+	 * predecessor is, without keeping their frames. Flow inputs and outputs of the returned frames only include
+	 * other returned frames. With {@link me.coley.analysis.value.provenance.ProvenanceMode#ON_DEMAND} provenance
+	 * all frames are kept internally, since they are needed to expand the provenance of values.
+	 *
+	 * @param owner
+	 * 		Method owner.
+	 * @param method
+	 * 		Method to analyze.
+	 * @param wantFrameAt
+	 * 		Filter of instruction indices to return frames for. {@code null} to return all frames.
+	 *
+	 * @return Frames of the method, {@code null} for instructions that are not requested or are never reached.
+	 *
+	 * @throws AnalyzerException
+	 * 		When the method's code cannot be executed.
+	 */
+	public SimFrame[] analyze(String owner, MethodNode method, IntPredicate wantFrameAt) throws AnalyzerException {
 		reset(owner, method);
-		Frame<AbstractValue>[] frames = super.analyze(owner, method);
-		SimFrame[] simFrames = copy(frames);
+		if (wantFrameAt != null && interpreter.getProvenanceMode() != ProvenanceMode.ON_DEMAND)
+			retained = computeRetained(wantFrameAt);
+		SimFrame[] simFrames;
+		if ((method.access & (ACC_ABSTRACT | ACC_NATIVE)) != 0) {
+			simFrames = new SimFrame[0];
+			frames = simFrames;
+		} else if (hasSubroutines(method)) {
+			// Subroutines are rare enough (pre Java 6) to not warrant porting, so let ASM handle them.
+			computeHandlers(method);
+			simFrames = copy(super.analyze(owner, method));
+			frames = simFrames;
+		} else {
+			simFrames = solve(owner, method);
+		}
 		// Assign frames their instructions
 		AbstractInsnNode[] insns = method.instructions.toArray();
 		for (int i = 0; i < insns.length; i++) {
@@ -79,12 +146,9 @@ public class SimAnalyzer extends Analyzer<AbstractValue> {
 			if (frame != null)
 				frame.setInstruction(insns[i]);
 		}
-		// Populate recorded control flow
-		for (Flow flow : flows) {
-			SimFrame from = simFrames[flow.getFrom()];
-			SimFrame to = simFrames[flow.getTo()];
-			from.flowsInto(to);
-		}
+		interpreter.completeProvenance(simFrames);
+		// Populate recorded control flow, validators of problems may rely on it
+		attachFlow(simFrames);
 		// If the interpreter has problems, check if they've been resolved by checking frames
 		if (interpreter.hasReportedProblems()) {
 			// Check if the error logged no longer applies given the stack analysis results
@@ -92,7 +156,7 @@ public class SimAnalyzer extends Analyzer<AbstractValue> {
 			for (Map.Entry<AbstractInsnNode, AnalyzerException> e :
 					new HashSet<>(interpreter.getProblemInsns().entrySet())) {
 				if (e.getValue() instanceof ResolvableAnalyzerException) {
-					if (((ResolvableAnalyzerException) e.getValue()).validate(method, frames)) {
+					if (((ResolvableAnalyzerException) e.getValue()).validate(method, simFrames)) {
 						interpreter.getProblemInsns().remove(e.getKey());
 					}
 				}
@@ -101,9 +165,328 @@ public class SimAnalyzer extends Analyzer<AbstractValue> {
 			if (throwUnresolvedAnalyzerErrors && !interpreter.getProblemInsns().isEmpty())
 				throw interpreter.getProblemInsns().values().iterator().next();
 		}
+		// Drop the frames that were only needed during analysis
+		if (wantFrameAt != null) {
+			SimFrame[] wanted = new SimFrame[simFrames.length];
+			boolean dropped = false;
+			for (int i = 0; i < simFrames.length; i++) {
+				if (wantFrameAt.test(i))
+					wanted[i] = simFrames[i];
+				else
+					dropped |= simFrames[i] != null;
+			}
+			simFrames = wanted;
+			frames = wanted;
+			// Edges to dropped frames must not be visible
+			if (dropped)
+				attachFlow(simFrames);
+		}
 		return simFrames;
 	}
 
+	/**
+	 * @param simFrames
+	 * 		Frames to populate with the recorded control flow between them.
+	 */
+	private void attachFlow(SimFrame[] simFrames) {
+		FlowGraph flowGraph = FlowGraph.of(simFrames, flowEdges, flowCount);
+		for (int i = 0; i < simFrames.length; i++) {
+			SimFrame frame = simFrames[i];
+			if (frame != null)
+				frame.setFlow(flowGraph, i);
+		}
+	}
+
+	@Override
+	public SimFrame[] analyzeAndComputeMaxs(String owner, MethodNode method) throws AnalyzerException {
+		method.maxLocals = computeMaxLocals(method);
+		method.maxStack = -1;
+		SimFrame[] frames = analyze(owner, method);
+		method.maxStack = computeMaxStack(frames);
+		return frames;
+	}
+
+	@Override
+	public SimFrame[] getFrames() {
+		return frames;
+	}
+
+	@Override
+	public List<TryCatchBlockNode> getHandlers(int insnIndex) {
+		return handlers[insnIndex];
+	}
+
+	/**
+	 * Computes the frames of a method without subroutines.
+	 *
+	 * @param owner
+	 * 		Method owner.
+	 * @param method
+	 * 		Method to analyze.
+	 *
+	 * @return Frames of the method.
+	 *
+	 * @throws AnalyzerException
+	 * 		When the method's code cannot be executed.
+	 */
+	private SimFrame[] solve(String owner, MethodNode method) throws AnalyzerException {
+		int size = insnList.size();
+		frames = new SimFrame[size];
+		queued = new boolean[size];
+		queue = new int[size];
+		computeHandlers(method);
+		// Initializes the data structures for the control flow analysis.
+		SimFrame currentFrame;
+		try {
+			currentFrame = computeInitialFrame(owner, method);
+			merge(0, currentFrame);
+			init(owner, method);
+		} catch (RuntimeException e) {
+			throw new AnalyzerException(insnList.get(0), "Error at instruction 0: " + e.getMessage(), e);
+		}
+		// Visit instructions until a fixed point is reached
+		while (queueSize > 0) {
+			int insnIndex = queue[--queueSize];
+			queued[insnIndex] = false;
+			SimFrame oldFrame = frames[insnIndex];
+			// Instructions without a retained frame only have a single predecessor, visit them right away
+			while (oldFrame != null) {
+				pendingFrame = null;
+				visit(insnIndex, oldFrame, currentFrame);
+				insnIndex = pendingIndex;
+				oldFrame = pendingFrame;
+			}
+		}
+		return frames;
+	}
+
+	/**
+	 * @param insnIndex
+	 * 		Index of instruction to visit.
+	 * @param oldFrame
+	 * 		Frame before the instruction.
+	 * @param currentFrame
+	 * 		Frame to execute the instruction in.
+	 *
+	 * @throws AnalyzerException
+	 * 		When the instruction cannot be executed.
+	 */
+	private void visit(int insnIndex, SimFrame oldFrame, SimFrame currentFrame) throws AnalyzerException {
+		AbstractInsnNode insn = null;
+		try {
+			insn = insnList.get(insnIndex);
+			int op = insn.getOpcode();
+			int type = insn.getType();
+			if (type == AbstractInsnNode.LABEL || type == AbstractInsnNode.LINE || type == AbstractInsnNode.FRAME) {
+				currentFrame.init(oldFrame);
+				merge(insnIndex + 1, oldFrame);
+				newControlFlowEdge(insnIndex, insnIndex + 1);
+			} else {
+				currentFrame.init(oldFrame).execute(insn, interpreter);
+				// Frames of problems are required to check if the problems are resolved after analysis
+				if (retained != null && !retained[insnIndex] && interpreter.hasReportedProblems()
+						&& interpreter.getProblemInsns().containsKey(insn)) {
+					retained[insnIndex] = true;
+					frames[insnIndex] = newFrame(oldFrame);
+				}
+				if (insn instanceof JumpInsnNode) {
+					JumpInsnNode jump = (JumpInsnNode) insn;
+					// Only follow the live branch of opaque predicates
+					OpaquePredicateType opaque = op == GOTO ? null : opaqueHandler.pollDecision(insn);
+					if (op != GOTO && opaque != GOTO_DESTINATION) {
+						currentFrame.initJumpTarget(op, null);
+						merge(insnIndex + 1, currentFrame);
+						newControlFlowEdge(insnIndex, insnIndex + 1);
+					}
+					if (opaque != FALL_THROUGH) {
+						int jumpIndex = insnList.indexOf(jump.label);
+						currentFrame.initJumpTarget(op, jump.label);
+						merge(jumpIndex, currentFrame);
+						newControlFlowEdge(insnIndex, jumpIndex);
+					}
+				} else if (insn instanceof LookupSwitchInsnNode) {
+					LookupSwitchInsnNode lookup = (LookupSwitchInsnNode) insn;
+					visitSwitch(insnIndex, op, currentFrame, lookup.dflt, lookup.labels);
+				} else if (insn instanceof TableSwitchInsnNode) {
+					TableSwitchInsnNode table = (TableSwitchInsnNode) insn;
+					visitSwitch(insnIndex, op, currentFrame, table.dflt, table.labels);
+				} else if (op != ATHROW && (op < IRETURN || op > RETURN)) {
+					merge(insnIndex + 1, currentFrame);
+					newControlFlowEdge(insnIndex, insnIndex + 1);
+				}
+			}
+			List<TryCatchBlockNode> insnHandlers = handlers[insnIndex];
+			if (insnHandlers != null) {
+				for (TryCatchBlockNode tryCatch : insnHandlers) {
+					Type catchType = tryCatch.type == null ?
+							TypeUtil.THROWABLE_TYPE : interpreter.getTypeCache().getObjectType(tryCatch.type);
+					if (newControlFlowExceptionEdge(insnIndex, tryCatch)) {
+						// Merge the frames before and after this instruction, with their stack cleared and
+						// the exception pushed, with the handler's frame.
+						int handlerIndex = insnList.indexOf(tryCatch.handler);
+						SimFrame handler = newFrame(oldFrame);
+						handler.clearStack();
+						AbstractValue exceptionValue = interpreter.newExceptionValue(tryCatch, handler, catchType);
+						handler.push(exceptionValue);
+						merge(handlerIndex, handler);
+						handler = newFrame(currentFrame);
+						handler.clearStack();
+						handler.push(exceptionValue);
+						merge(handlerIndex, handler);
+					}
+				}
+			}
+		} catch (AnalyzerException e) {
+			throw new AnalyzerException(e.node, "Error at instruction " + insnIndex + ": " + e.getMessage(), e);
+		} catch (RuntimeException e) {
+			throw new AnalyzerException(insn, "Error at instruction " + insnIndex + ": " + e.getMessage(), e);
+		}
+	}
+
+	private void visitSwitch(int insnIndex, int op, SimFrame currentFrame, LabelNode dflt, List<LabelNode> labels)
+			throws AnalyzerException {
+		int targetIndex = insnList.indexOf(dflt);
+		currentFrame.initJumpTarget(op, dflt);
+		merge(targetIndex, currentFrame);
+		newControlFlowEdge(insnIndex, targetIndex);
+		for (LabelNode label : labels) {
+			targetIndex = insnList.indexOf(label);
+			currentFrame.initJumpTarget(op, label);
+			merge(targetIndex, currentFrame);
+			newControlFlowEdge(insnIndex, targetIndex);
+		}
+	}
+
+	/**
+	 * Merges the given frame into the frame at the given index, queueing the index for a visit if the
+	 * frame at the index changes.
+	 *
+	 * @param insnIndex
+	 * 		Index of frame to merge into.
+	 * @param frame
+	 * 		Frame to merge, left unchanged.
+	 *
+	 * @throws AnalyzerException
+	 * 		When the frames have incompatible sizes.
+	 */
+	private void merge(int insnIndex, SimFrame frame) throws AnalyzerException {
+		if (retained != null && !retained[insnIndex]) {
+			pendingIndex = insnIndex;
+			pendingFrame = newFrame(frame);
+			return;
+		}
+		boolean changed;
+		SimFrame oldFrame = frames[insnIndex];
+		if (oldFrame == null) {
+			frames[insnIndex] = newFrame(frame);
+			changed = true;
+		} else {
+			changed = oldFrame.merge(frame, interpreter);
+		}
+		if (changed && !queued[insnIndex]) {
+			queued[insnIndex] = true;
+			queue[queueSize++] = insnIndex;
+		}
+	}
+
+	/**
+	 * @param wantFrameAt
+	 * 		Filter of instruction indices to return frames for.
+	 *
+	 * @return Instructions to keep frames for during analysis. Besides the requested instructions,
+	 * these are the first instruction and labels, as other instructions are only reached by falling through.
+	 */
+	private boolean[] computeRetained(IntPredicate wantFrameAt) {
+		boolean[] retained = new boolean[insnList.size()];
+		int i = 0;
+		for (AbstractInsnNode insn : insnList) {
+			retained[i] = i == 0 || insn.getType() == AbstractInsnNode.LABEL || wantFrameAt.test(i);
+			i++;
+		}
+		return retained;
+	}
+
+	private SimFrame computeInitialFrame(String owner, MethodNode method) {
+		TypeCache typeCache = interpreter.getTypeCache();
+		SimFrame frame = newFrame(method.maxLocals, method.maxStack);
+		int currentLocal = 0;
+		boolean isInstanceMethod = (method.access & ACC_STATIC) == 0;
+		if (isInstanceMethod) {
+			Type ownerType = typeCache.getObjectType(owner);
+			frame.setLocal(currentLocal, interpreter.newParameterValue(true, currentLocal, ownerType));
+			currentLocal++;
+		}
+		for (Type argumentType : typeCache.getArgumentTypes(method.desc)) {
+			frame.setLocal(currentLocal, interpreter.newParameterValue(isInstanceMethod, currentLocal, argumentType));
+			currentLocal++;
+			if (argumentType.getSize() == 2) {
+				frame.setLocal(currentLocal, interpreter.newEmptyValue(currentLocal));
+				currentLocal++;
+			}
+		}
+		while (currentLocal < method.maxLocals) {
+			frame.setLocal(currentLocal, interpreter.newEmptyValue(currentLocal));
+			currentLocal++;
+		}
+		frame.setReturn(interpreter.newReturnTypeValue(typeCache.getReturnType(method.desc)));
+		return frame;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void computeHandlers(MethodNode method) {
+		handlers = (List<TryCatchBlockNode>[]) new List<?>[insnList.size()];
+		for (TryCatchBlockNode tryCatch : method.tryCatchBlocks) {
+			int start = insnList.indexOf(tryCatch.start);
+			int end = insnList.indexOf(tryCatch.end);
+			for (int i = start; i < end; i++) {
+				List<TryCatchBlockNode> insnHandlers = handlers[i];
+				if (insnHandlers == null) {
+					insnHandlers = new ArrayList<>();
+					handlers[i] = insnHandlers;
+				}
+				insnHandlers.add(tryCatch);
+			}
+		}
+	}
+
+	private static boolean hasSubroutines(MethodNode method) {
+		for (AbstractInsnNode insn : method.instructions) {
+			int op = insn.getOpcode();
+			if (op == JSR || op == RET)
+				return true;
+		}
+		return false;
+	}
+
+	private static int computeMaxLocals(MethodNode method) {
+		int maxLocals = Type.getArgumentsAndReturnSizes(method.desc) >> 2;
+		if ((method.access & ACC_STATIC) != 0)
+			maxLocals -= 1;
+		for (AbstractInsnNode insn : method.instructions) {
+			if (insn instanceof VarInsnNode) {
+				int op = insn.getOpcode();
+				int size = (op == LLOAD || op == DLOAD || op == LSTORE || op == DSTORE) ? 2 : 1;
+				maxLocals = Math.max(maxLocals, ((VarInsnNode) insn).var + size);
+			} else if (insn instanceof IincInsnNode) {
+				maxLocals = Math.max(maxLocals, ((IincInsnNode) insn).var + 1);
+			}
+		}
+		return maxLocals;
+	}
+
+	private static int computeMaxStack(SimFrame[] frames) {
+		int maxStack = 0;
+		for (SimFrame frame : frames) {
+			if (frame != null) {
+				int stackSize = 0;
+				for (int i = 0; i < frame.getStackSize(); i++)
+					stackSize += frame.getStack(i).getSize();
+				maxStack = Math.max(maxStack, stackSize);
+			}
+		}
+		return maxStack;
+	}
+
 	@Override
 	protected SimFrame newFrame(final int numLocals, final int numStack) {
 		return new SimFrame(numLocals, numStack);
@@ -114,24 +497,33 @@ public class SimAnalyzer extends Analyzer<AbstractValue> {
 		return new SimFrame((SimFrame) frame);
 	}
 
+	@Override
+	protected boolean newControlFlowExceptionEdge(int insnIndex, TryCatchBlockNode tryCatchBlock) {
+		return newControlFlowExceptionEdge(insnIndex, insnList.indexOf(tryCatchBlock.handler));
+	}
+
 	@Override
 	protected boolean newControlFlowExceptionEdge(int insnIndex, int successorIndex) {
-		flows.add(new Flow(insnIndex, successorIndex));
+		addFlow(insnIndex, successorIndex);
 		interpreter.getBlockHandler().add(insnIndex, successorIndex);
 		return true;
 	}
 
 	@Override
 	protected void newControlFlowEdge(int insnIndex, int successorIndex) {
-		flows.add(new Flow(insnIndex, successorIndex));
+		addFlow(insnIndex, successorIndex);
 		// Create block when necessary
 		if (FlowUtil.isFlowModifier(method, insnIndex, successorIndex)) {
 			interpreter.getBlockHandler().add(insnIndex, successorIndex);
 		}
-		// Modify internal ASM logic to bypass dead code regions
-		if (skipDeadCodeBlocks) {
-			opaqueHandler.onVisitControlFlowEdge(insnIndex, successorIndex);
-		}
+	}
+
+	private void addFlow(int insnIndex, int successorIndex) {
+		if (flowCount * 2 == flowEdges.length)
+			flowEdges = Arrays.copyOf(flowEdges, flowEdges.length * 2);
+		flowEdges[flowCount * 2] = insnIndex;
+		flowEdges[flowCount * 2 + 1] = successorIndex;
+		flowCount++;
 	}
 
 	/**
@@ -140,7 +532,7 @@ public class SimAnalyzer extends Analyzer<AbstractValue> {
 	 * @return Exception factory for interpreter to use.
 	 */
 	protected ResolvableExceptionFactory createExceptionFactory() {
-		return new ResolvableExceptionFactory(createTypeResolver(), getBlockHandler());
+		return new ResolvableExceptionFactory(getTypeResolver(), getBlockHandler());
 	}
 
 	/**
@@ -177,30 +569,17 @@ public class SimAnalyzer extends Analyzer<AbstractValue> {
 	 * @return Type resolver for interpreter to use.
 	 */
 	protected TypeResolver createTypeResolver() {
-		return new TypeResolver() {
-			@Override
-			public boolean isAssignableFrom(Type first, Type second) {
-				try {
-					Class<?> clsParent = Class.forName(first.getClassName(), false,
-							ClassLoader.getSystemClassLoader());
-					Class<?> clsChild = Class.forName(second.getClassName(), false,
-							ClassLoader.getSystemClassLoader());
-					return clsParent.isAssignableFrom(clsChild);
-				} catch (Throwable t) {
-					return false;
-				}
-			}
-
-			@Override
-			public Type common(Type type1, Type type2) {
-				return type1.equals(type2) ? type1 : TypeUtil.OBJECT_TYPE;
-			}
+		return new ReflectionTypeResolver();
+	}
 
-			@Override
-			public Type commonException(Type type1, Type type2) {
-				return type1.equals(type2) ? type1 : TypeUtil.EXCEPTION_TYPE;
-			}
-		};
+	/**
+	 * @return Type resolver of the analyzer, created by {@link #createTypeResolver()} on first use and shared by
+	 * the interpreter and the default exception factory.
+	 */
+	protected TypeResolver getTypeResolver() {
+		if (typeResolver == null)
+			typeResolver = createTypeResolver();
+		return typeResolver;
 	}
 
 	/**
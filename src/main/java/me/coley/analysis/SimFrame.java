@@ -2,6 +2,7 @@ package me.coley.analysis;
 
 import me.coley.analysis.value.AbstractValue;
 import me.coley.analysis.value.UninitializedValue;
+import me.coley.analysis.value.provenance.Provenance;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.AbstractInsnNode;
 import org.objectweb.asm.tree.LabelNode;
@@ -11,22 +12,40 @@ import org.objectweb.asm.tree.analysis.AnalyzerException;
 import org.objectweb.asm.tree.analysis.Frame;
 import org.objectweb.asm.tree.analysis.Interpreter;
 
-import java.util.HashSet;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Set;
 
-import static me.coley.analysis.util.CollectUtils.disjoint;
 import static org.objectweb.asm.Opcodes.INVOKESPECIAL;
 
 /**
  * Frame for {@link AbstractValue} content.
+ * <br>
+ * Copying a frame shares its storage, which is only copied once one of the frames writes to it.
+ * Locals are stored in small fixed size chunks, so a write only copies the chunk holding the local,
+ * and the stack is stored as a single array. Consecutive frames of an analyzed method thus only hold their own
+ * copies of the parts the instruction between them changed.
  *
  * @author Matt Coley
  */
 public class SimFrame extends Frame<AbstractValue> {
-	private final Set<Integer> reservedSlots = new HashSet<>();
-	private final Set<SimFrame> flowInputs = new HashSet<>();
-	private final Set<SimFrame> flowOutputs = new HashSet<>();
+	private static final int CHUNK_SHIFT = 3;
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	// Values of locals and the stack. The values of the parent frame are unused.
+	private AbstractValue[][] localChunks;
+	private AbstractValue[] stack;
+	// Ownership of the storage, only owned storage may be written to in place.
+	// Chunks are only owned when the chunk array is, and chunks past the 64th are never owned.
+	private boolean ownsLocals;
+	private boolean ownsStack;
+	private long ownedChunks;
+	private int numLocals;
+	private int numStack;
+	// Bit mask of local slots reserved by double and long locals, 'null' when there are none.
+	private long[] reservedSlots;
+	private FlowGraph flowGraph;
+	private int flowIndex;
 	private AbstractInsnNode instruction;
 
 	/**
@@ -38,7 +57,12 @@ public class SimFrame extends Frame<AbstractValue> {
 	 * 		Maximum stack size of the frame.
 	 */
 	public SimFrame(int numLocals, int numStack) {
-		super(numLocals, numStack);
+		super(0, 0);
+		this.numLocals = numLocals;
+		localChunks = new AbstractValue[(numLocals + CHUNK_MASK) >>> CHUNK_SHIFT][];
+		stack = new AbstractValue[numStack];
+		ownsLocals = true;
+		ownsStack = true;
 	}
 
 	/**
@@ -48,7 +72,8 @@ public class SimFrame extends Frame<AbstractValue> {
 	 * 		Old frame.
 	 */
 	public SimFrame(final SimFrame frame) {
-		super(frame);
+		super(0, 0);
+		init(frame);
 	}
 
 	@Override
@@ -64,10 +89,12 @@ public class SimFrame extends Frame<AbstractValue> {
 			value2 = value2.copy(insn);
 			value1 = value1.copy(insn);
 			// Have both now aware of each other's contributing instructions
-			List<AbstractInsnNode> addTo1 = disjoint(value2.getInsns(), value1.getInsns());
-			List<AbstractInsnNode> addTo2 = disjoint(value1.getInsns(), value2.getInsns());
-			value1.addContributing(addTo1);
-			value2.addContributing(addTo2);
+			if (isProvenanceTracked(interpreter)) {
+				Provenance addTo1 = value2.getProvenance();
+				Provenance addTo2 = value1.getProvenance();
+				value1.addContributing(addTo1);
+				value2.addContributing(addTo2);
+			}
 			push(value2);
 			push(value1);
 		} else if (insn.getOpcode() == Opcodes.DUP) {
@@ -85,9 +112,10 @@ public class SimFrame extends Frame<AbstractValue> {
 		} else {
 			super.execute(insn, interpreter);
 			// Ensure constructor calls are tracked by values that should be the 'owner' of the call.
-			if (insn.getOpcode() == INVOKESPECIAL) {
+			if (insn.getOpcode() == INVOKESPECIAL && isProvenanceTracked(interpreter)) {
 				MethodInsnNode min = (MethodInsnNode) insn;
-				if (min.name.equals("<init>")) {
+				// Calls to super constructors leave nothing on the stack
+				if (min.name.equals("<init>") && getStackSize() > 0) {
 					AbstractValue ownerValue = getStack(getStackSize() - 1);
 					if (ownerValue.isReference() && min.owner.equals(ownerValue.getType().getInternalName())) {
 						ownerValue.addContributing(min);
@@ -97,23 +125,234 @@ public class SimFrame extends Frame<AbstractValue> {
 		}
 	}
 
+	private static boolean isProvenanceTracked(Interpreter<AbstractValue> interpreter) {
+		return !(interpreter instanceof SimInterpreter) || ((SimInterpreter) interpreter).isProvenanceTracked();
+	}
+
+	@Override
+	public Frame<AbstractValue> init(Frame<? extends AbstractValue> frame) {
+		// Only copies the return value, values are held by this type
+		super.init(frame);
+		if (frame instanceof SimFrame) {
+			SimFrame other = (SimFrame) frame;
+			// Both frames now share their storage, so neither may write to it in place
+			localChunks = other.localChunks;
+			stack = other.stack;
+			ownsLocals = other.ownsLocals = false;
+			ownsStack = other.ownsStack = false;
+			numLocals = other.numLocals;
+			numStack = other.numStack;
+		} else {
+			numLocals = frame.getLocals();
+			numStack = frame.getStackSize();
+			localChunks = new AbstractValue[(numLocals + CHUNK_MASK) >>> CHUNK_SHIFT][];
+			stack = new AbstractValue[frame.getMaxStackSize()];
+			ownsLocals = true;
+			ownsStack = true;
+			ownedChunks = 0;
+			for (int i = 0; i < numLocals; i++)
+				setLocalValue(i, frame.getLocal(i));
+			for (int i = 0; i < numStack; i++)
+				stack[i] = frame.getStack(i);
+		}
+		long[] otherSlots = frame instanceof SimFrame ? ((SimFrame) frame).reservedSlots : null;
+		if (otherSlots == null) {
+			if (reservedSlots != null)
+				Arrays.fill(reservedSlots, 0L);
+		} else if (reservedSlots == null || reservedSlots.length != otherSlots.length) {
+			reservedSlots = otherSlots.clone();
+		} else {
+			System.arraycopy(otherSlots, 0, reservedSlots, 0, otherSlots.length);
+		}
+		return this;
+	}
+
+	@Override
+	public boolean merge(Frame<? extends AbstractValue> frame, Interpreter<AbstractValue> interpreter)
+			throws AnalyzerException {
+		if (numStack != frame.getStackSize())
+			throw new AnalyzerException(null, "Incompatible stack heights");
+		SimFrame other = frame instanceof SimFrame ? (SimFrame) frame : null;
+		boolean changed = false;
+		// Shared storage holds the same values, merging it changes nothing
+		if (other == null || localChunks != other.localChunks) {
+			for (int i = 0; i < numLocals; ) {
+				int chunk = i >>> CHUNK_SHIFT;
+				if (other != null && localChunks[chunk] == other.localChunks[chunk]) {
+					i = (chunk + 1) << CHUNK_SHIFT;
+					continue;
+				}
+				AbstractValue value = getLocalValue(i);
+				AbstractValue merged = interpreter.merge(value, other == null ? frame.getLocal(i) : other.getLocalValue(i));
+				if (!merged.equals(value)) {
+					setLocalValue(i, merged);
+					changed = true;
+				}
+				i++;
+			}
+		}
+		if (other == null || stack != other.stack) {
+			for (int i = 0; i < numStack; i++) {
+				AbstractValue value = stack[i];
+				AbstractValue merged = interpreter.merge(value, frame.getStack(i));
+				if (!merged.equals(value)) {
+					setStackValue(i, merged);
+					changed = true;
+				}
+			}
+		}
+		// Slots are only reserved if they are reserved on every path into this frame
+		if (reservedSlots != null) {
+			long[] otherSlots = frame instanceof SimFrame ? ((SimFrame) frame).reservedSlots : null;
+			for (int i = 0; i < reservedSlots.length; i++) {
+				long merged = otherSlots == null || i >= otherSlots.length ? 0L : reservedSlots[i] & otherSlots[i];
+				if (merged != reservedSlots[i]) {
+					reservedSlots[i] = merged;
+					changed = true;
+				}
+			}
+		}
+		return changed;
+	}
+
 	@Override
 	public void setLocal(int index, AbstractValue value) {
 		if (value != UninitializedValue.UNINITIALIZED_VALUE) {
 			// Check against reserved slots used by double and long locals
-			if (reservedSlots.contains(index))
+			if (isReserved(index))
 				throw new IllegalStateException("Cannot set local[" + index + "] " +
 						"since it is reserved by a double/long (which reserves two slots)");
 			if (value.getValue() instanceof Double || value.getValue() instanceof Long)
-				reservedSlots.add(index + 1);
+				reserve(index + 1);
 		}
 		// Update local
-		super.setLocal(index, value);
+		if (index >= numLocals)
+			throw new IndexOutOfBoundsException("Trying to set an inexistant local variable " + index);
+		setLocalValue(index, value);
+	}
+
+	@Override
+	public boolean merge(Frame<? extends AbstractValue> frame, boolean[] localsUsed) {
+		boolean changed = false;
+		for (int i = 0; i < numLocals; i++) {
+			AbstractValue value = frame.getLocal(i);
+			if (!localsUsed[i] && !getLocalValue(i).equals(value)) {
+				setLocalValue(i, value);
+				changed = true;
+			}
+		}
+		return changed;
+	}
+
+	@Override
+	public int getLocals() {
+		return numLocals;
+	}
+
+	@Override
+	public int getMaxStackSize() {
+		return stack.length;
+	}
+
+	@Override
+	public AbstractValue getLocal(int index) {
+		if (index >= numLocals)
+			throw new IndexOutOfBoundsException("Trying to get an inexistant local variable " + index);
+		return getLocalValue(index);
+	}
+
+	@Override
+	public int getStackSize() {
+		return numStack;
+	}
+
+	@Override
+	public AbstractValue getStack(int index) {
+		return stack[index];
+	}
+
+	@Override
+	public void setStack(int index, AbstractValue value) {
+		setStackValue(index, value);
+	}
+
+	@Override
+	public void clearStack() {
+		numStack = 0;
+	}
+
+	@Override
+	public AbstractValue pop() {
+		if (numStack == 0)
+			throw new IndexOutOfBoundsException("Cannot pop operand off an empty stack.");
+		return stack[--numStack];
+	}
+
+	@Override
+	public void push(AbstractValue value) {
+		if (numStack >= stack.length)
+			throw new IndexOutOfBoundsException("Insufficient maximum stack size.");
+		setStackValue(numStack++, value);
 	}
 
 	@Override
 	public void initJumpTarget(int opcode, LabelNode target) {
-		reservedSlots.clear();
+		if (reservedSlots != null)
+			Arrays.fill(reservedSlots, 0L);
+	}
+
+	/**
+	 * @param index
+	 * 		Local variable index.
+	 *
+	 * @return {@code true} when the slot is the second half of a double/long local.
+	 */
+	public boolean isReserved(int index) {
+		int word = index >>> 6;
+		return reservedSlots != null && word < reservedSlots.length && (reservedSlots[word] & (1L << index)) != 0;
+	}
+
+	private AbstractValue getLocalValue(int index) {
+		AbstractValue[] chunk = localChunks[index >>> CHUNK_SHIFT];
+		return chunk == null ? null : chunk[index & CHUNK_MASK];
+	}
+
+	private void setLocalValue(int index, AbstractValue value) {
+		int chunkIndex = index >>> CHUNK_SHIFT;
+		AbstractValue[] chunk = localChunks[chunkIndex];
+		// Writing the value already present keeps the storage shared
+		if ((chunk == null ? null : chunk[index & CHUNK_MASK]) == value)
+			return;
+		if (!ownsLocals) {
+			localChunks = localChunks.clone();
+			ownsLocals = true;
+			ownedChunks = 0;
+		}
+		if (chunkIndex >= 64 || (ownedChunks & (1L << chunkIndex)) == 0) {
+			chunk = chunk == null ? new AbstractValue[CHUNK_SIZE] : chunk.clone();
+			localChunks[chunkIndex] = chunk;
+			if (chunkIndex < 64)
+				ownedChunks |= 1L << chunkIndex;
+		}
+		chunk[index & CHUNK_MASK] = value;
+	}
+
+	private void setStackValue(int index, AbstractValue value) {
+		if (stack[index] == value)
+			return;
+		if (!ownsStack) {
+			stack = stack.clone();
+			ownsStack = true;
+		}
+		stack[index] = value;
+	}
+
+	private void reserve(int index) {
+		if (index >= getLocals())
+			return;
+		if (reservedSlots == null)
+			reservedSlots = new long[(getLocals() + 63) >>> 6];
+		reservedSlots[index >>> 6] |= 1L << index;
 	}
 
 	/**
@@ -127,17 +366,21 @@ public class SimFrame extends Frame<AbstractValue> {
 	}
 
 	/**
-	 * @return Frames that flow into this one.
+	 * @return Frames that flow into this one. The set is a read-only view.
 	 */
 	public Set<SimFrame> getFlowInputs() {
-		return flowInputs;
+		if (flowGraph == null)
+			return Collections.emptySet();
+		return flowGraph.getInputFrames(flowIndex);
 	}
 
 	/**
-	 * @return Frames this flows into.
+	 * @return Frames this flows into. The set is a read-only view.
 	 */
 	public Set<SimFrame> getFlowOutputs() {
-		return flowOutputs;
+		if (flowGraph == null)
+			return Collections.emptySet();
+		return flowGraph.getOutputFrames(flowIndex);
 	}
 
 	/**
@@ -153,11 +396,37 @@ public class SimFrame extends Frame<AbstractValue> {
 	/**
 	 * Called by {@link SimAnalyzer#analyze(String, MethodNode)}.
 	 *
+	 * @param flowGraph
+	 * 		Control flow edges of the method.
+	 * @param flowIndex
+	 * 		Index of this frame's instruction.
+	 */
+	void setFlow(FlowGraph flowGraph, int flowIndex) {
+		this.flowGraph = flowGraph;
+		this.flowIndex = flowIndex;
+	}
+
+	/**
 	 * @param to
 	 * 		Frame this one flows into.
+	 *
+	 * @deprecated Control flow is populated by the analyzer for all frames of a method at once, and can no longer
+	 * be added to. Use {@link #getFlowInputs()} and {@link #getFlowOutputs()} to read it.
 	 */
+	@Deprecated
 	public void flowsInto(SimFrame to) {
-		flowOutputs.add(to);
-		to.flowInputs.add(this);
+		throw new UnsupportedOperationException("Control flow is read-only, " +
+				"use 'getFlowInputs()' and 'getFlowOutputs()' to read it");
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < numLocals; i++)
+			sb.append(getLocalValue(i));
+		sb.append(' ');
+		for (int i = 0; i < numStack; i++)
+			sb.append(stack[i]);
+		return sb.toString();
 	}
 }
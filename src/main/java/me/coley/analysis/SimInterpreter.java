@@ -5,6 +5,7 @@ import me.coley.analysis.exception.ResolvableExceptionFactory;
 import me.coley.analysis.exception.SimFailedException;
 import me.coley.analysis.exception.TypeMismatchKind;
 import me.coley.analysis.util.FlowUtil;
+import me.coley.analysis.util.TypeCache;
 import me.coley.analysis.value.AbstractValue;
 import me.coley.analysis.value.ExceptionValue;
 import me.coley.analysis.value.NullConstantValue;
@@ -15,6 +16,11 @@ import me.coley.analysis.value.Unresolved;
 import me.coley.analysis.value.VirtualValue;
 import me.coley.analysis.value.simulated.AbstractSimulatedValue;
 import me.coley.analysis.value.simulated.ReflectionSimulatedValue;
+import me.coley.analysis.value.provenance.NoProvenance;
+import me.coley.analysis.value.provenance.PersistentProvenance;
+import me.coley.analysis.value.provenance.Provenance;
+import me.coley.analysis.value.provenance.ProvenanceFactory;
+import me.coley.analysis.value.provenance.ProvenanceMode;
 import me.coley.analysis.value.simulated.StringSimulatedValue;
 import org.objectweb.asm.ConstantDynamic;
 import org.objectweb.asm.Handle;
@@ -37,13 +43,10 @@ import org.objectweb.asm.tree.analysis.BasicVerifier;
 import org.objectweb.asm.tree.analysis.Frame;
 import org.objectweb.asm.tree.analysis.Interpreter;
 
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
-import static me.coley.analysis.util.CollectUtils.*;
 import static me.coley.analysis.util.TypeUtil.*;
 import static org.objectweb.asm.Opcodes.*;
 
@@ -54,6 +57,26 @@ import static org.objectweb.asm.Opcodes.*;
  * @author Matt Coley
  */
 public class SimInterpreter extends Interpreter<AbstractValue> {
+	// Constants without provenance are immutable, so they are shared when tracking is disabled
+	private static final AbstractValue[] SHARED_INTS = new AbstractValue[256];
+	private static final AbstractValue[] SHARED_LONGS = {
+			PrimitiveValue.ofLong(NoProvenance.INSTANCE, 0L),
+			PrimitiveValue.ofLong(NoProvenance.INSTANCE, 1L)
+	};
+	private static final AbstractValue[] SHARED_FLOATS = {
+			PrimitiveValue.ofFloat(NoProvenance.INSTANCE, 0.0F),
+			PrimitiveValue.ofFloat(NoProvenance.INSTANCE, 1.0F),
+			PrimitiveValue.ofFloat(NoProvenance.INSTANCE, 2.0F)
+	};
+	private static final AbstractValue[] SHARED_DOUBLES = {
+			PrimitiveValue.ofDouble(NoProvenance.INSTANCE, 0.0),
+			PrimitiveValue.ofDouble(NoProvenance.INSTANCE, 1.0)
+	};
+
+	static {
+		for (int i = 0; i < SHARED_INTS.length; i++)
+			SHARED_INTS[i] = PrimitiveValue.ofInt(NoProvenance.INSTANCE, i + Byte.MIN_VALUE);
+	}
 	private final Map<AbstractInsnNode, AnalyzerException> badTypeInsns = new HashMap<>();
 	private final BlockHandler blockHandler = new BlockHandler();
 	private ResolvableExceptionFactory exceptionFactory;
@@ -61,8 +84,12 @@ public class SimInterpreter extends Interpreter<AbstractValue> {
 	private StaticGetFactory staticGetFactory;
 	private ParameterFactory parameterFactory;
 	private TypeResolver typeResolver;
+	private TypeCache typeCache = TypeCache.SHARED;
 	private SimAnalyzer analyzer;
 	private boolean useReflectionSimulation;
+	private ProvenanceMode provenanceMode = ProvenanceMode.PERSISTENT;
+	private ProvenanceFactory provenance = PersistentProvenance.FACTORY;
+	private boolean trackProvenance = true;
 
 	/**
 	 * Create an interpreter.
@@ -93,6 +120,31 @@ public class SimInterpreter extends Interpreter<AbstractValue> {
 		this.useReflectionSimulation = useReflectionSimulation;
 	}
 
+	/**
+	 * @return Representation used for the contributing instructions of values.
+	 */
+	public ProvenanceMode getProvenanceMode() {
+		return provenanceMode;
+	}
+
+	/**
+	 * @return {@code true} when values of the current method track their contributing instructions.
+	 * {@code false} when the {@link ProvenanceMode#DISABLED} mode is in use.
+	 */
+	public boolean isProvenanceTracked() {
+		return trackProvenance;
+	}
+
+	/**
+	 * Defaults to {@link ProvenanceMode#PERSISTENT}. Takes effect on the next {@link #reset(String, MethodNode)}.
+	 *
+	 * @param provenanceMode
+	 * 		Representation used for the contributing instructions of values.
+	 */
+	public void setProvenanceMode(ProvenanceMode provenanceMode) {
+		this.provenanceMode = provenanceMode;
+	}
+
 	/**
 	 * Called to reset state values between usages.
 	 *
@@ -104,6 +156,18 @@ public class SimInterpreter extends Interpreter<AbstractValue> {
 	public void reset(String owner, MethodNode method) {
 		badTypeInsns.clear();
 		blockHandler.setMethod(method);
+		provenance = provenanceMode.newFactory(method);
+		trackProvenance = provenanceMode != ProvenanceMode.DISABLED;
+	}
+
+	/**
+	 * Called once the analyzer has computed the frames of the current method.
+	 *
+	 * @param frames
+	 * 		Frames of the current method.
+	 */
+	void completeProvenance(SimFrame[] frames) {
+		provenance.complete(frames);
 	}
 
 	/**
@@ -203,6 +267,21 @@ public class SimInterpreter extends Interpreter<AbstractValue> {
 		this.typeResolver = typeResolver;
 	}
 
+	/**
+	 * @return Cache of parsed descriptors. Shared between interpreters by default.
+	 */
+	public TypeCache getTypeCache() {
+		return typeCache;
+	}
+
+	/**
+	 * @param typeCache
+	 * 		Cache of parsed descriptors.
+	 */
+	public void setTypeCache(TypeCache typeCache) {
+		this.typeCache = typeCache;
+	}
+
 	/**
 	 * @return {@code true}  when problems have been reported.
 	 */
@@ -275,9 +354,15 @@ public class SimInterpreter extends Interpreter<AbstractValue> {
 		badTypeInsns.put(insn, e);
 	}
 
+	private AbstractValue intConstant(AbstractInsnNode insn, int value) {
+		if (!trackProvenance && value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE)
+			return SHARED_INTS[value - Byte.MIN_VALUE];
+		return PrimitiveValue.ofInt(provenance.of(insn), value);
+	}
+
 	private AbstractValue newValueOrVirtualized(AbstractInsnNode insn, Type type) {
 		if (useReflectionSimulation && AbstractSimulatedValue.supported(type))
-			return AbstractSimulatedValue.initialize(Collections.singletonList(insn), typeResolver, type);
+			return AbstractSimulatedValue.initialize(provenance.of(insn), typeResolver, type);
 		return newValue(insn, type);
 	}
 
@@ -286,12 +371,10 @@ public class SimInterpreter extends Interpreter<AbstractValue> {
 			return UninitializedValue.UNINITIALIZED_VALUE;
 		else if (type == Type.VOID_TYPE)
 			return null;
-		else if (type.getSort() <= Type.DOUBLE)
-			return new PrimitiveValue(insn, type);
-		return VirtualValue.ofVirtual(insn, typeResolver, type);
+		return newValue(provenance.of(insn), type);
 	}
 
-	private AbstractValue newValue(List<AbstractInsnNode> insns, Type type) {
+	private AbstractValue newValue(Provenance insns, Type type) {
 		if (type == null)
 			return UninitializedValue.UNINITIALIZED_VALUE;
 		else if (type == Type.VOID_TYPE)
@@ -309,7 +392,7 @@ public class SimInterpreter extends Interpreter<AbstractValue> {
 
 	@Override
 	public AbstractValue newReturnTypeValue(Type type) {
-		return newValue((List<AbstractInsnNode>) null, type);
+		return newValue(provenance.empty(), type);
 	}
 
 	@Override
@@ -326,77 +409,77 @@ public class SimInterpreter extends Interpreter<AbstractValue> {
 				return value;
 		}
 		// Fallback, assume dummy type value
-		return newValue((List<AbstractInsnNode>) null, type);
+		return newValue(provenance.empty(), type);
 	}
 
 	@Override
 	public AbstractValue newExceptionValue(TryCatchBlockNode tryCatch,
 	                                       Frame<AbstractValue> handlerFrame, Type exceptionType) {
-		return ExceptionValue.ofHandledException(tryCatch.handler, typeResolver, exceptionType);
+		return ExceptionValue.ofHandledException(provenance.of(tryCatch.handler), typeResolver, exceptionType);
 	}
 
 	@Override
 	public AbstractValue newOperation(AbstractInsnNode insn) throws AnalyzerException {
 		switch (insn.getOpcode()) {
 			case ACONST_NULL:
-				return NullConstantValue.newNull(insn);
+				return NullConstantValue.newNull(provenance.of(insn));
 			case ICONST_M1:
-				return PrimitiveValue.ofInt(insn, -1);
+				return intConstant(insn, -1);
 			case ICONST_0:
-				return PrimitiveValue.ofInt(insn, 0);
+				return intConstant(insn, 0);
 			case ICONST_1:
-				return PrimitiveValue.ofInt(insn, 1);
+				return intConstant(insn, 1);
 			case ICONST_2:
-				return PrimitiveValue.ofInt(insn, 2);
+				return intConstant(insn, 2);
 			case ICONST_3:
-				return PrimitiveValue.ofInt(insn, 3);
+				return intConstant(insn, 3);
 			case ICONST_4:
-				return PrimitiveValue.ofInt(insn, 4);
+				return intConstant(insn, 4);
 			case ICONST_5:
-				return PrimitiveValue.ofInt(insn, 5);
+				return intConstant(insn, 5);
 			case LCONST_0:
-				return PrimitiveValue.ofLong(insn, 0L);
+				return trackProvenance ? PrimitiveValue.ofLong(provenance.of(insn), 0L) : SHARED_LONGS[0];
 			case LCONST_1:
-				return PrimitiveValue.ofLong(insn, 1L);
+				return trackProvenance ? PrimitiveValue.ofLong(provenance.of(insn), 1L) : SHARED_LONGS[1];
 			case FCONST_0:
-				return PrimitiveValue.ofFloat(insn, 0.0F);
+				return trackProvenance ? PrimitiveValue.ofFloat(provenance.of(insn), 0.0F) : SHARED_FLOATS[0];
 			case FCONST_1:
-				return PrimitiveValue.ofFloat(insn, 1.0F);
+				return trackProvenance ? PrimitiveValue.ofFloat(provenance.of(insn), 1.0F) : SHARED_FLOATS[1];
 			case FCONST_2:
-				return PrimitiveValue.ofFloat(insn, 2.0F);
+				return trackProvenance ? PrimitiveValue.ofFloat(provenance.of(insn), 2.0F) : SHARED_FLOATS[2];
 			case DCONST_0:
-				return PrimitiveValue.ofDouble(insn, 0.0);
+				return trackProvenance ? PrimitiveValue.ofDouble(provenance.of(insn), 0.0) : SHARED_DOUBLES[0];
 			case DCONST_1:
-				return PrimitiveValue.ofDouble(insn, 1.0);
+				return trackProvenance ? PrimitiveValue.ofDouble(provenance.of(insn), 1.0) : SHARED_DOUBLES[1];
 			case BIPUSH:
 			case SIPUSH:
-				return PrimitiveValue.ofInt(insn, ((IntInsnNode) insn).operand);
+				return intConstant(insn, ((IntInsnNode) insn).operand);
 			case LDC:
 				Object value = ((LdcInsnNode) insn).cst;
 				if (value instanceof Integer) {
-					return PrimitiveValue.ofInt(insn, (int) value);
+					return PrimitiveValue.ofInt(provenance.of(insn), (int) value);
 				} else if (value instanceof Float) {
-					return PrimitiveValue.ofFloat(insn, (float) value);
+					return PrimitiveValue.ofFloat(provenance.of(insn), (float) value);
 				} else if (value instanceof Long) {
-					return PrimitiveValue.ofLong(insn, (long) value);
+					return PrimitiveValue.ofLong(provenance.of(insn), (long) value);
 				} else if (value instanceof Double) {
-					return PrimitiveValue.ofDouble(insn, (double) value);
+					return PrimitiveValue.ofDouble(provenance.of(insn), (double) value);
 				} else if (value instanceof String) {
-					return StringSimulatedValue.of(insn, typeResolver, (String) value);
+					return StringSimulatedValue.of(provenance.of(insn), typeResolver, (String) value);
 				} else if (value instanceof Type) {
 					Type type = (Type) value;
 					int sort = type.getSort();
 					if (sort == Type.OBJECT || sort == Type.ARRAY) {
-						return VirtualValue.ofClass(insn, typeResolver, type);
+						return VirtualValue.ofClass(provenance.of(insn), typeResolver, type);
 					} else if (sort == Type.METHOD) {
-						return newValue(insn, Type.getObjectType("java/lang/invoke/MethodType"));
+						return newValue(insn, typeCache.getObjectType("java/lang/invoke/MethodType"));
 					} else {
 						throw new AnalyzerException(insn, "Illegal LDC value " + value);
 					}
 				} else if (value instanceof Handle) {
-					return newValue(insn, Type.getObjectType("java/lang/invoke/MethodHandle"));
+					return newValue(insn, typeCache.getObjectType("java/lang/invoke/MethodHandle"));
 				} else if (value instanceof ConstantDynamic) {
-					return newValue(insn, Type.getType(((ConstantDynamic) value).getDescriptor()));
+					return newValue(insn, typeCache.getType(((ConstantDynamic) value).getDescriptor()));
 				} else {
 					throw new AnalyzerException(insn, "Illegal LDC value " + value);
 				}
@@ -404,13 +487,12 @@ public class SimInterpreter extends Interpreter<AbstractValue> {
 				return ReturnAddressValue.newRet(insn);
 			case GETSTATIC:
 				FieldInsnNode fin = (FieldInsnNode) insn;
-				Type type = Type.getType(fin.desc);
 				if (staticGetFactory != null) {
 					return staticGetFactory.getStatic(fin);
 				}
-				return newValue(insn, type);
+				return newValue(insn, typeCache.getType(fin.desc));
 			case NEW:
-				return newValueOrVirtualized(insn, Type.getObjectType(((TypeInsnNode) insn).desc));
+				return newValueOrVirtualized(insn, typeCache.getObjectType(((TypeInsnNode) insn).desc));
 			default:
 				throw new IllegalStateException();
 		}
@@ -474,7 +556,7 @@ public class SimInterpreter extends Interpreter<AbstractValue> {
 		// If we're operating on a load-instruction we want the return value to
 		// relate to the type of the instruction.
 		if (load && insnType != value.getType())
-			return newValue(add(value.getInsns(), insn), insnType);
+			return newValue(provenance.derive(value.getProvenance(), insn), insnType);
 		// Types match or type is null (so either a store operation)
 		return value.copy(insn);
 	}
@@ -484,10 +566,12 @@ public class SimInterpreter extends Interpreter<AbstractValue> {
 		switch (insn.getOpcode()) {
 			case INEG:
 				if (isValueUnknown(value))
-					return newValue(add(value.getInsns(), insn), Type.INT_TYPE);
-				return PrimitiveValue.ofInt(add(value.getInsns(), insn), -toInt(value));
+					return newValue(provenance.derive(value.getProvenance(), insn), Type.INT_TYPE);
+				return PrimitiveValue.ofInt(provenance.derive(value.getProvenance(), insn), -toInt(value));
 			case IINC:
-				return PrimitiveValue.ofInt(add(value.getInsns(), insn), ((IincInsnNode) insn).incr);
+				if (isValueUnknown(value))
+					return newValue(provenance.derive(value.getProvenance(), insn), Type.INT_TYPE);
+				return PrimitiveValue.ofInt(provenance.derive(value.getProvenance(), insn), toInt(value) + ((IincInsnNode) insn).incr);
 			case L2I:
 			case F2I:
 			case D2I:
@@ -495,38 +579,38 @@ public class SimInterpreter extends Interpreter<AbstractValue> {
 			case I2C:
 			case I2S:
 				if (isValueUnknown(value))
-					return newValue(add(value.getInsns(), insn), Type.INT_TYPE);
-				return PrimitiveValue.ofInt(add(value.getInsns(), insn), toInt(value));
+					return newValue(provenance.derive(value.getProvenance(), insn), Type.INT_TYPE);
+				return PrimitiveValue.ofInt(provenance.derive(value.getProvenance(), insn), toInt(value));
 			case FNEG:
 				if (isValueUnknown(value))
-					return newValue(add(value.getInsns(), insn), Type.FLOAT_TYPE);
-				return PrimitiveValue.ofFloat(add(value.getInsns(), insn), -toFloat(value));
+					return newValue(provenance.derive(value.getProvenance(), insn), Type.FLOAT_TYPE);
+				return PrimitiveValue.ofFloat(provenance.derive(value.getProvenance(), insn), -toFloat(value));
 			case I2F:
 			case L2F:
 			case D2F:
 				if (isValueUnknown(value))
-					return newValue(add(value.getInsns(), insn), Type.FLOAT_TYPE);
-				return PrimitiveValue.ofFloat(add(value.getInsns(), insn), toFloat(value));
+					return newValue(provenance.derive(value.getProvenance(), insn), Type.FLOAT_TYPE);
+				return PrimitiveValue.ofFloat(provenance.derive(value.getProvenance(), insn), toFloat(value));
 			case LNEG:
 				if (isValueUnknown(value))
-					return newValue(add(value.getInsns(), insn), Type.LONG_TYPE);
-				return PrimitiveValue.ofLong(add(value.getInsns(), insn), -toLong(value));
+					return newValue(provenance.derive(value.getProvenance(), insn), Type.LONG_TYPE);
+				return PrimitiveValue.ofLong(provenance.derive(value.getProvenance(), insn), -toLong(value));
 			case I2L:
 			case F2L:
 			case D2L:
 				if (isValueUnknown(value))
-					return newValue(add(value.getInsns(), insn), Type.LONG_TYPE);
-				return PrimitiveValue.ofLong(add(value.getInsns(), insn), toLong(value));
+					return newValue(provenance.derive(value.getProvenance(), insn), Type.LONG_TYPE);
+				return PrimitiveValue.ofLong(provenance.derive(value.getProvenance(), insn), toLong(value));
 			case DNEG:
 				if (isValueUnknown(value))
-					return newValue(add(value.getInsns(), insn), Type.DOUBLE_TYPE);
-				return PrimitiveValue.ofDouble(add(value.getInsns(), insn), -toDouble(value));
+					return newValue(provenance.derive(value.getProvenance(), insn), Type.DOUBLE_TYPE);
+				return PrimitiveValue.ofDouble(provenance.derive(value.getProvenance(), insn), -toDouble(value));
 			case I2D:
 			case L2D:
 			case F2D:
 				if (isValueUnknown(value))
-					return newValue(add(value.getInsns(), insn), Type.DOUBLE_TYPE);
-				return PrimitiveValue.ofDouble(add(value.getInsns(), insn), toDouble(value));
+					return newValue(provenance.derive(value.getProvenance(), insn), Type.DOUBLE_TYPE);
+				return PrimitiveValue.ofDouble(provenance.derive(value.getProvenance(), insn), toDouble(value));
 			case IFEQ:
 			case IFNE:
 			case IFLT:
@@ -565,7 +649,7 @@ public class SimInterpreter extends Interpreter<AbstractValue> {
 			case PUTSTATIC: {
 				// Value == item on stack
 				FieldInsnNode fin = (FieldInsnNode) insn;
-				Type fieldType = Type.getType(fin.desc);
+				Type fieldType = typeCache.getType(fin.desc);
 				if (!isSubTypeOf(typeResolver, value.getType(), fieldType))
 					markBad(insn, exceptionFactory.unexpectedType(fieldType, value.getType(), insn, value, TypeMismatchKind.PUTSTATIC));
 				return null;
@@ -574,41 +658,41 @@ public class SimInterpreter extends Interpreter<AbstractValue> {
 				// Value == field owner instance
 				// - Check instance context is of the owner class
 				FieldInsnNode fin = (FieldInsnNode) insn;
-				Type ownerType = Type.getObjectType(fin.owner);
+				Type ownerType = typeCache.getObjectType(fin.owner);
 				if (!isSubTypeOf(typeResolver, value.getType(), ownerType))
-					markBad(insn, exceptionFactory.unexpectedType(Type.getObjectType(fin.owner),
+					markBad(insn, exceptionFactory.unexpectedType(ownerType,
 							value.getType(), insn, value, TypeMismatchKind.GETFIELD));
-				Type type = Type.getType(fin.desc);
-				return newValue(add(value.getInsns(), insn), type);
+				Type type = typeCache.getType(fin.desc);
+				return newValue(provenance.derive(value.getProvenance(), insn), type);
 			}
 			case NEWARRAY:
 				switch (((IntInsnNode) insn).operand) {
 					case T_BOOLEAN:
-						return newValue(add(value.getInsns(), insn), BOOLEAN_ARRAY_TYPE);
+						return newValue(provenance.derive(value.getProvenance(), insn), BOOLEAN_ARRAY_TYPE);
 					case T_CHAR:
-						return newValue(add(value.getInsns(), insn), CHAR_ARRAY_TYPE);
+						return newValue(provenance.derive(value.getProvenance(), insn), CHAR_ARRAY_TYPE);
 					case T_BYTE:
-						return newValue(add(value.getInsns(), insn), BYTE_ARRAY_TYPE);
+						return newValue(provenance.derive(value.getProvenance(), insn), BYTE_ARRAY_TYPE);
 					case T_SHORT:
-						return newValue(add(value.getInsns(), insn), SHORT_ARRAY_TYPE);
+						return newValue(provenance.derive(value.getProvenance(), insn), SHORT_ARRAY_TYPE);
 					case T_INT:
-						return newValue(add(value.getInsns(), insn), INT_ARRAY_TYPE);
+						return newValue(provenance.derive(value.getProvenance(), insn), INT_ARRAY_TYPE);
 					case T_FLOAT:
-						return newValue(add(value.getInsns(), insn), FLOAT_ARRAY_TYPE);
+						return newValue(provenance.derive(value.getProvenance(), insn), FLOAT_ARRAY_TYPE);
 					case T_DOUBLE:
-						return newValue(add(value.getInsns(), insn), DOUBLE_ARRAY_TYPE);
+						return newValue(provenance.derive(value.getProvenance(), insn), DOUBLE_ARRAY_TYPE);
 					case T_LONG:
-						return newValue(add(value.getInsns(), insn), LONG_ARRAY_TYPE);
+						return newValue(provenance.derive(value.getProvenance(), insn), LONG_ARRAY_TYPE);
 					default:
 						break;
 				}
 				throw new AnalyzerException(insn, "Invalid array type specified in instruction");
 			case ANEWARRAY:
-				return newValue(add(value.getInsns(), insn), Type.getType("[" + Type.getObjectType(((TypeInsnNode) insn).desc)));
+				return newValue(provenance.derive(value.getProvenance(), insn), typeCache.getArrayType(typeCache.getObjectType(((TypeInsnNode) insn).desc)));
 			case ARRAYLENGTH:
 				if (value.getValue() instanceof Unresolved && !((Unresolved) value.getValue()).isArray())
 					markBad(insn, new AnalyzerException(insn, "Expected an array type."));
-				return newValue(add(value.getInsns(), insn), Type.INT_TYPE);
+				return newValue(provenance.derive(value.getProvenance(), insn), Type.INT_TYPE);
 			case ATHROW:
 				if (!value.isReference())
 					throw new AnalyzerException(insn, "Expected reference type on stack for ATHROW.");
@@ -616,9 +700,9 @@ public class SimInterpreter extends Interpreter<AbstractValue> {
 			case CHECKCAST:
 				if (!value.isReference())
 					throw new AnalyzerException(insn, "Expected reference type on stack for CHECKCAST.");
-				return newValue(add(value.getInsns(), insn), Type.getObjectType(((TypeInsnNode) insn).desc));
+				return newValue(provenance.derive(value.getProvenance(), insn), typeCache.getObjectType(((TypeInsnNode) insn).desc));
 			case INSTANCEOF:
-				return newValue(add(value.getInsns(), insn), Type.INT_TYPE);
+				return newValue(provenance.derive(value.getProvenance(), insn), Type.INT_TYPE);
 			case MONITORENTER:
 			case MONITOREXIT:
 				if (!value.isReference())
@@ -675,7 +759,7 @@ public class SimInterpreter extends Interpreter<AbstractValue> {
 				expected2 = Type.INT_TYPE;
 				break;
 			case AALOAD:
-				expected1 = Type.getType("[Ljava/lang/Object;");
+				expected1 = OBJECT_ARRAY_TYPE;
 				expected2 = Type.INT_TYPE;
 				wasAALOAD = true;
 				break;
@@ -746,8 +830,8 @@ public class SimInterpreter extends Interpreter<AbstractValue> {
 				break;
 			case PUTFIELD:
 				FieldInsnNode fieldInsn = (FieldInsnNode) insn;
-				expected1 = Type.getObjectType(fieldInsn.owner);
-				expected2 = Type.getType(fieldInsn.desc);
+				expected1 = typeCache.getObjectType(fieldInsn.owner);
+				expected2 = typeCache.getType(fieldInsn.desc);
 				break;
 			default:
 				throw new IllegalStateException();
@@ -769,22 +853,22 @@ public class SimInterpreter extends Interpreter<AbstractValue> {
 		// Update values for non-primitives
 		switch (insn.getOpcode()) {
 			case FALOAD:
-				return newValue(combineAdd(value1.getInsns(), value2.getInsns(), insn), Type.FLOAT_TYPE);
+				return newValue(provenance.derive(value1.getProvenance(), value2.getProvenance(), insn), Type.FLOAT_TYPE);
 			case LALOAD:
-				return newValue(combineAdd(value1.getInsns(), value2.getInsns(), insn), Type.LONG_TYPE);
+				return newValue(provenance.derive(value1.getProvenance(), value2.getProvenance(), insn), Type.LONG_TYPE);
 			case DALOAD:
-				return newValue(combineAdd(value1.getInsns(), value2.getInsns(), insn), Type.DOUBLE_TYPE);
+				return newValue(provenance.derive(value1.getProvenance(), value2.getProvenance(), insn), Type.DOUBLE_TYPE);
 			case AALOAD:
 				if (value1.getType() == null)
-					return newValue(combineAdd(value1.getInsns(), value2.getInsns(), insn), OBJECT_TYPE);
+					return newValue(provenance.derive(value1.getProvenance(), value2.getProvenance(), insn), OBJECT_TYPE);
 				else
-					return newValue(combineAdd(value1.getInsns(), value2.getInsns(), insn),
-							Type.getType(value1.getType().getDescriptor().substring(1)));
+					return newValue(provenance.derive(value1.getProvenance(), value2.getProvenance(), insn),
+							typeCache.getComponentType(value1.getType()));
 			case IALOAD:
 			case BALOAD:
 			case CALOAD:
 			case SALOAD:
-				return newValue(combineAdd(value1.getInsns(), value2.getInsns(), insn), Type.INT_TYPE);
+				return newValue(provenance.derive(value1.getProvenance(), value2.getProvenance(), insn), Type.INT_TYPE);
 			case IF_ICMPEQ:
 			case IF_ICMPNE:
 			case IF_ICMPLT:
@@ -850,17 +934,9 @@ public class SimInterpreter extends Interpreter<AbstractValue> {
 			case FCMPG:
 			case DCMPL:
 			case DCMPG:
-				if (p1.getValue() == null || p2.getValue() == null ||
-						isValueUnknown(p1) || isValueUnknown(p2))
-					return newValue(combineAdd(value1.getInsns(), value2.getInsns(), insn), Type.INT_TYPE);
-				double v1 = ((Number) value1.getValue()).doubleValue();
-				double v2 = ((Number) value1.getValue()).doubleValue();
-				if (v1 > v2)
-					return PrimitiveValue.ofInt(combineAdd(value1.getInsns(), value2.getInsns(), insn), 1);
-				else if (v1 < v2)
-					return PrimitiveValue.ofInt(combineAdd(value1.getInsns(), value2.getInsns(), insn), -1);
-				else
-					return PrimitiveValue.ofInt(combineAdd(value1.getInsns(), value2.getInsns(), insn), 0);
+				if (isValueUnknown(p1) || isValueUnknown(p2))
+					return newValue(provenance.derive(value1.getProvenance(), value2.getProvenance(), insn), Type.INT_TYPE);
+				return PrimitiveValue.ofInt(provenance.derive(value1.getProvenance(), value2.getProvenance(), insn), compare(insn, p1, p2));
 			default:
 				break;
 		}
@@ -923,10 +999,10 @@ public class SimInterpreter extends Interpreter<AbstractValue> {
 
 	@Override
 	public AbstractValue naryOperation(AbstractInsnNode insn, List<? extends AbstractValue> values) throws AnalyzerException {
-		List<AbstractInsnNode> argContributingInsns = values.stream()
-				.flatMap(value -> value.getInsns().stream())
-				.distinct()
-				.collect(Collectors.toList());
+		Provenance argContributingInsns = provenance.empty();
+		if (trackProvenance)
+			for (AbstractValue value : values)
+				argContributingInsns = provenance.combine(argContributingInsns, value.getProvenance());
 		int opcode = insn.getOpcode();
 		if (opcode == MULTIANEWARRAY) {
 			// Multi-dimensional array args must all be numeric
@@ -934,20 +1010,20 @@ public class SimInterpreter extends Interpreter<AbstractValue> {
 				if (!Type.INT_TYPE.equals(value.getType()))
 					throw new AnalyzerException(insn, "MULTIANEWARRAY argument was not numeric!",
 							newValue(insn, Type.INT_TYPE), value);
-			return newValue(add(argContributingInsns, insn),
-					Type.getType(((MultiANewArrayInsnNode) insn).desc));
+			return newValue(provenance.derive(argContributingInsns, insn),
+					typeCache.getType(((MultiANewArrayInsnNode) insn).desc));
 		}
 		// Handle method invokes
 		String methodDescriptor = (opcode == INVOKEDYNAMIC) ?
 				((InvokeDynamicInsnNode) insn).desc :
 				((MethodInsnNode) insn).desc;
-		Type[] args = Type.getArgumentTypes(methodDescriptor);
+		Type[] args = typeCache.getArgumentTypes(methodDescriptor);
 		// From BasicVerifier
 		int i = 0;
 		int j = 0;
 		if (opcode != INVOKESTATIC && opcode != INVOKEDYNAMIC) {
 			MethodInsnNode min = ((MethodInsnNode) insn);
-			Type owner = Type.getObjectType(min.owner);
+			Type owner = typeCache.getObjectType(min.owner);
 			AbstractValue actual = values.get(i++);
 			if (!isSubTypeOf(typeResolver, actual.getType(), owner) &&
 					!(isMethodAddSuppressed(min) && actual instanceof NullConstantValue))
@@ -965,16 +1041,18 @@ public class SimInterpreter extends Interpreter<AbstractValue> {
 		// Get value
 		if (opcode == INVOKEDYNAMIC) {
 			InvokeDynamicInsnNode indy = (InvokeDynamicInsnNode) insn;
-			Type retType = Type.getReturnType(indy.desc);
-			return newValue(add(argContributingInsns, insn), retType);
+			Type retType = typeCache.getReturnType(indy.desc);
+			return newValue(provenance.derive(argContributingInsns, insn), retType);
 		} else if (opcode == INVOKESTATIC) {
 			// Attempt to create simulated value
 			MethodInsnNode min = (MethodInsnNode) insn;
 			if (useReflectionSimulation) {
 				try {
-					AbstractValue value = ReflectionSimulatedValue.ofStaticInvoke(staticInvokeFactory, min, values, typeResolver);
+					AbstractValue value = ReflectionSimulatedValue.ofStaticInvoke(staticInvokeFactory, min, values,
+							typeResolver, provenance);
 					if (value != null) {
-						value.addContributing(disjoint(argContributingInsns, value.getInsns()));
+						if (trackProvenance)
+							value.addContributing(argContributingInsns);
 						return value;
 					}
 				} catch (SimFailedException ex) {
@@ -982,8 +1060,8 @@ public class SimInterpreter extends Interpreter<AbstractValue> {
 				}
 			}
 			// Fallback to virtual value
-			Type retType = Type.getReturnType(((MethodInsnNode) insn).desc);
-			return newValue(add(argContributingInsns, insn), retType);
+			Type retType = typeCache.getReturnType(((MethodInsnNode) insn).desc);
+			return newValue(provenance.derive(argContributingInsns, insn), retType);
 		}
 		// INVOKEVIRTUAL, INVOKESPECIAL, INVOKEINTERFACE
 		MethodInsnNode min = (MethodInsnNode) insn;
@@ -996,13 +1074,13 @@ public class SimInterpreter extends Interpreter<AbstractValue> {
 			// Instruction acting on a null value, which is illegal
 			markBad(insn, exceptionFactory.unexpectedNullReference(
 					min, ownerValue, values, TypeMismatchKind.INVOKE_HOST_NULL));
-			return newValue(insn, Type.getMethodType(min.desc).getReturnType());
+			return newValue(insn, typeCache.getReturnType(min.desc));
 		} else if (ownerValue instanceof NullConstantValue && isMethodAddSuppressed(min)) {
 			// Don't you just LOVE edge cases?
 			return null;
 		} else {
 			// Special case for <init>, want to tell owner we contributed
-			if (opcode == INVOKESPECIAL && min.name.equals("<init>")) {
+			if (trackProvenance && opcode == INVOKESPECIAL && min.name.equals("<init>")) {
 				ownerValue.addContributing(min);
 			}
 			// Get return value
@@ -1011,8 +1089,8 @@ public class SimInterpreter extends Interpreter<AbstractValue> {
 				List<? extends AbstractValue> arguments = values.subList(1, values.size());
 				try {
 					AbstractValue refValue = simObject.ofVirtualInvoke(min, arguments);
-					if (refValue != null) {
-						refValue.addContributing(disjoint(argContributingInsns, refValue.getInsns()));
+					if (refValue != null && trackProvenance) {
+						refValue.addContributing(argContributingInsns);
 					}
 					return refValue;
 				} catch (SimFailedException ex) {
@@ -1022,17 +1100,17 @@ public class SimInterpreter extends Interpreter<AbstractValue> {
 			}
 			if (ownerValue instanceof VirtualValue) {
 				VirtualValue virtualOwner = (VirtualValue) ownerValue;
-				AbstractValue refValue = virtualOwner.ofMethodRef(insn, typeResolver, Type.getMethodType(((MethodInsnNode) insn).desc));
-				if (refValue != null) {
-					refValue.addContributing(disjoint(argContributingInsns, refValue.getInsns()));
+				AbstractValue refValue = virtualOwner.ofMethodRef(insn, typeResolver, typeCache.getMethodType(min.desc));
+				if (refValue != null && trackProvenance) {
+					refValue.addContributing(argContributingInsns);
 				}
 				return refValue;
 			}
 			// Check if we have a null value that has been null checked
 			if (ownerValue instanceof NullConstantValue && FlowUtil.isNullChecked(getBlockHandler(), ownerValue, insn)) {
-				AbstractValue refValue = newValue(insn, Type.getMethodType(min.desc).getReturnType());
-				if (refValue != null) {
-					refValue.addContributing(disjoint(argContributingInsns, refValue.getInsns()));
+				AbstractValue refValue = newValue(insn, typeCache.getReturnType(min.desc));
+				if (refValue != null && trackProvenance) {
+					refValue.addContributing(argContributingInsns);
 				}
 				return refValue;
 			}
@@ -1058,8 +1136,7 @@ public class SimInterpreter extends Interpreter<AbstractValue> {
 			return value1;
 		// Handle null
 		//  - NULL can be ANY type, so... it wins the "common super type" here
-		List<AbstractInsnNode> merged =
-				distinct(combine(value1.getInsns(), value2.getInsns()));
+		Provenance merged = provenance.combine(value1.getProvenance(), value2.getProvenance());
 		if (value2 instanceof NullConstantValue)
 			return value1.isNull() ? AbstractValue.ofDefault(null, typeResolver, value1.getType()) : newValue(merged, value1.getType());
 		else if (value1 instanceof NullConstantValue)
@@ -1071,7 +1148,7 @@ public class SimInterpreter extends Interpreter<AbstractValue> {
 			return newValue(merged, value2.getType());
 		// Check if exception values
 		if (value1 instanceof ExceptionValue && value2 instanceof ExceptionValue)
-			return ExceptionValue.ofHandledException(merged.get(0), typeResolver,
+			return ExceptionValue.ofHandledException(value1.getProvenance(), typeResolver,
 					typeResolver.commonException(value1.getType(), value2.getType()));
 			// Check if virtual values
 		else if (value1 instanceof VirtualValue && value2 instanceof VirtualValue)
@@ -1083,25 +1160,57 @@ public class SimInterpreter extends Interpreter<AbstractValue> {
 	// ============================ PRIVATE UTILITIES  ============================ //
 
 	private boolean isValueUnknown(AbstractValue value) {
+		if (value instanceof PrimitiveValue)
+			return value.isValueUnresolved();
 		return value.getValue() == null || value.getValue() instanceof Unresolved;
 	}
 
 	private float toFloat(AbstractValue value) {
+		if (value instanceof PrimitiveValue)
+			return ((PrimitiveValue) value).getFloatValue();
 		return ((Number) value.getValue()).floatValue();
 	}
 
 	private double toDouble(AbstractValue value) {
+		if (value instanceof PrimitiveValue)
+			return ((PrimitiveValue) value).getDoubleValue();
 		return ((Number) value.getValue()).doubleValue();
 	}
 
 	private int toInt(AbstractValue value) {
+		if (value instanceof PrimitiveValue)
+			return ((PrimitiveValue) value).getIntValue();
 		return ((Number) value.getValue()).intValue();
 	}
 
 	private long toLong(AbstractValue value) {
+		if (value instanceof PrimitiveValue)
+			return ((PrimitiveValue) value).getLongValue();
 		return ((Number) value.getValue()).longValue();
 	}
 
+	private static int compare(AbstractInsnNode insn, PrimitiveValue p1, PrimitiveValue p2) {
+		switch (insn.getOpcode()) {
+			case LCMP:
+				return Long.compare(p1.getLongValue(), p2.getLongValue());
+			case FCMPL:
+			case FCMPG: {
+				float v1 = p1.getFloatValue();
+				float v2 = p2.getFloatValue();
+				if (Float.isNaN(v1) || Float.isNaN(v2))
+					return insn.getOpcode() == FCMPG ? 1 : -1;
+				return v1 > v2 ? 1 : (v1 < v2 ? -1 : 0);
+			}
+			default: {
+				double v1 = p1.getDoubleValue();
+				double v2 = p2.getDoubleValue();
+				if (Double.isNaN(v1) || Double.isNaN(v2))
+					return insn.getOpcode() == DCMPG ? 1 : -1;
+				return v1 > v2 ? 1 : (v1 < v2 ? -1 : 0);
+			}
+		}
+	}
+
 	private static boolean isMethodAddSuppressed(MethodInsnNode insn) {
 		// Seriously, wtf is this?
 		// Compile the code below:
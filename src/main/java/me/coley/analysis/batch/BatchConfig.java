@@ -0,0 +1,130 @@
+package me.coley.analysis.batch;
+
+import me.coley.analysis.SimAnalyzer;
+import me.coley.analysis.SimInterpreter;
+import org.objectweb.asm.ClassReader;
+
+import java.util.function.Supplier;
+
+/**
+ * Configuration for {@link SimBatchAnalyzer}.
+ *
+ * @author Matt Coley
+ */
+public class BatchConfig {
+	private Supplier<SimAnalyzer> analyzerSupplier = () -> new SimAnalyzer(new SimInterpreter());
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+	private int readFlags = ClassReader.SKIP_FRAMES;
+	private int queueCapacity = 64;
+	private boolean keepFrames = true;
+
+	/**
+	 * @return Supplier of analyzers. Called once per worker thread.
+	 */
+	public Supplier<SimAnalyzer> getAnalyzerSupplier() {
+		return analyzerSupplier;
+	}
+
+	/**
+	 * Analyzers hold per-method state and cannot be shared between threads.
+	 * Each worker thread will be given its own analyzer and interpreter from the supplier,
+	 * so the supplier must create a new analyzer, <i>and interpreter</i>, per call.
+	 *
+	 * @param analyzerSupplier
+	 * 		Supplier of analyzers.
+	 *
+	 * @return Config instance.
+	 */
+	public BatchConfig setAnalyzerSupplier(Supplier<SimAnalyzer> analyzerSupplier) {
+		this.analyzerSupplier = analyzerSupplier;
+		return this;
+	}
+
+	/**
+	 * @return Number of worker threads.
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Default is the number of available processors.
+	 *
+	 * @param parallelism
+	 * 		Number of worker threads.
+	 *
+	 * @return Config instance.
+	 */
+	public BatchConfig setParallelism(int parallelism) {
+		if (parallelism < 1)
+			throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+		this.parallelism = parallelism;
+		return this;
+	}
+
+	/**
+	 * @return Flags to pass to {@link ClassReader#accept(org.objectweb.asm.ClassVisitor, int)}.
+	 */
+	public int getReadFlags() {
+		return readFlags;
+	}
+
+	/**
+	 * Default is {@link ClassReader#SKIP_FRAMES}.
+	 *
+	 * @param readFlags
+	 * 		Flags to pass to {@link ClassReader#accept(org.objectweb.asm.ClassVisitor, int)}.
+	 *
+	 * @return Config instance.
+	 */
+	public BatchConfig setReadFlags(int readFlags) {
+		this.readFlags = readFlags;
+		return this;
+	}
+
+	/**
+	 * @return Maximum number of items waiting between two stages of a {@link SimStreamingAnalyzer}.
+	 */
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	/**
+	 * Default is {@code 64}. The peak memory of a {@link SimStreamingAnalyzer} is proportional to
+	 * this value, not to the size of the input.
+	 *
+	 * @param queueCapacity
+	 * 		Maximum number of items waiting between two stages of a {@link SimStreamingAnalyzer}.
+	 *
+	 * @return Config instance.
+	 */
+	public BatchConfig setQueueCapacity(int queueCapacity) {
+		if (queueCapacity < 1)
+			throw new IllegalArgumentException("Queue capacity must be positive: " + queueCapacity);
+		this.queueCapacity = queueCapacity;
+		return this;
+	}
+
+	/**
+	 * @return {@code true} when results retain their frames.
+	 */
+	public boolean isKeepFrames() {
+		return keepFrames;
+	}
+
+	/**
+	 * Default is {@code true}. Frames make up the bulk of the memory of a result, so when only the
+	 * summary of each method is needed, disabling this allows frames to be collected as soon as the method's
+	 * analysis completes.
+	 *
+	 * @param keepFrames
+	 *        {@code true} to retain frames in results.
+	 *        {@code false} to only retain summaries.
+	 *
+	 * @return Config instance.
+	 */
+	public BatchConfig setKeepFrames(boolean keepFrames) {
+		this.keepFrames = keepFrames;
+		return this;
+	}
+}
@@ -0,0 +1,95 @@
+package me.coley.analysis.batch;
+
+import me.coley.analysis.SimFrame;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+/**
+ * Analysis result of a single method.
+ *
+ * @author Matt Coley
+ */
+public class MethodResult {
+	private final ClassNode owner;
+	private final MethodNode method;
+	private final SimFrame[] frames;
+	private final int reachableFrames;
+	private final Exception error;
+
+	/**
+	 * @param owner
+	 * 		Class declaring the method.
+	 * @param method
+	 * 		Analyzed method.
+	 * @param frames
+	 * 		Analyzed frames, may be {@code null} if frames are not kept or if analysis failed.
+	 * @param reachableFrames
+	 * 		Number of non-null frames.
+	 * @param error
+	 * 		Analysis failure, {@code null} if analysis succeeded.
+	 */
+	public MethodResult(ClassNode owner, MethodNode method, SimFrame[] frames, int reachableFrames,
+						Exception error) {
+		this.owner = owner;
+		this.method = method;
+		this.frames = frames;
+		this.reachableFrames = reachableFrames;
+		this.error = error;
+	}
+
+	/**
+	 * @return Class declaring the method.
+	 */
+	public ClassNode getOwner() {
+		return owner;
+	}
+
+	/**
+	 * @return Analyzed method.
+	 */
+	public MethodNode getMethod() {
+		return method;
+	}
+
+	/**
+	 * @return Analyzed frames. {@code null} if frames are not kept or if analysis failed.
+	 */
+	public SimFrame[] getFrames() {
+		return frames;
+	}
+
+	/**
+	 * @return Number of frames that are reachable, meaning non-null.
+	 */
+	public int getReachableFrameCount() {
+		return reachableFrames;
+	}
+
+	/**
+	 * @return Number of instructions without a frame, meaning dead code when dead code skipping is enabled.
+	 */
+	public int getUnreachableFrameCount() {
+		if (error != null)
+			return 0;
+		return method.instructions.size() - reachableFrames;
+	}
+
+	/**
+	 * @return Analysis failure, {@code null} if analysis succeeded.
+	 */
+	public Exception getError() {
+		return error;
+	}
+
+	/**
+	 * @return {@code true} when the analysis failed.
+	 */
+	public boolean isFailed() {
+		return error != null;
+	}
+
+	@Override
+	public String toString() {
+		return owner.name + "." + method.name + method.desc + (isFailed() ? " failed: " + error : "");
+	}
+}
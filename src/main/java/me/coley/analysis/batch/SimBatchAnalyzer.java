@@ -0,0 +1,248 @@
+package me.coley.analysis.batch;
+
+import me.coley.analysis.SimAnalyzer;
+import me.coley.analysis.SimFrame;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.analysis.AnalyzerException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Analyzes all methods of many classes in parallel.
+ * <br>
+ * {@link SimAnalyzer} instances hold per-method state and cannot be shared, so work is distributed over a
+ * {@link ForkJoinPool} where each worker thread owns a single analyzer, provided by
+ * {@link BatchConfig#getAnalyzerSupplier()}, that is reused for every method the worker visits.
+ *
+ * @author Matt Coley
+ */
+public class SimBatchAnalyzer {
+	private static final int PARSE_THRESHOLD = 8;
+	private static final int ANALYZE_THRESHOLD = 2;
+
+	/**
+	 * Analyze all methods of all classes in the given archive.
+	 * Entries that are not valid classes are skipped.
+	 *
+	 * @param archive
+	 * 		Path to jar or zip file.
+	 * @param config
+	 * 		Analysis configuration.
+	 *
+	 * @return Result of every analyzed method, ordered by entry then method declaration order.
+	 *
+	 * @throws IOException
+	 * 		When the archive cannot be read.
+	 */
+	public static List<MethodResult> analyzeArchive(Path archive, BatchConfig config) throws IOException {
+		List<byte[]> classes = new ArrayList<>();
+		try (ZipFile zip = new ZipFile(archive.toFile())) {
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				if (entry.isDirectory() || !entry.getName().endsWith(".class"))
+					continue;
+				try (InputStream is = zip.getInputStream(entry)) {
+					classes.add(readFully(is, entry.getSize()));
+				}
+			}
+		}
+		return analyzeBytecode(classes, config);
+	}
+
+	/**
+	 * Analyze all methods of the given classes. Classes that cannot be parsed are skipped.
+	 *
+	 * @param classes
+	 * 		Bytecode of classes to analyze.
+	 * @param config
+	 * 		Analysis configuration.
+	 *
+	 * @return Result of every analyzed method, ordered by class then method declaration order.
+	 */
+	public static List<MethodResult> analyzeBytecode(Collection<byte[]> classes, BatchConfig config) {
+		byte[][] code = classes.toArray(new byte[0][]);
+		ClassNode[] nodes = new ClassNode[code.length];
+		ForkJoinPool pool = createPool(config);
+		try {
+			pool.invoke(new RangeTask(0, code.length, PARSE_THRESHOLD, i -> {
+				try {
+					ClassNode node = new ClassNode();
+					new ClassReader(code[i]).accept(node, config.getReadFlags());
+					nodes[i] = node;
+				} catch (RuntimeException ignored) {
+					// Not a valid class, skip it
+				}
+			}));
+			List<ClassNode> parsed = new ArrayList<>(Arrays.asList(nodes));
+			parsed.removeIf(Objects::isNull);
+			return analyze(pool, parsed, config);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Analyze all methods of the given classes.
+	 *
+	 * @param classes
+	 * 		Classes to analyze.
+	 * @param config
+	 * 		Analysis configuration.
+	 *
+	 * @return Result of every analyzed method, ordered by class then method declaration order.
+	 */
+	public static List<MethodResult> analyzeClasses(Collection<ClassNode> classes, BatchConfig config) {
+		ForkJoinPool pool = createPool(config);
+		try {
+			return analyze(pool, classes, config);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static List<MethodResult> analyze(ForkJoinPool pool, Collection<ClassNode> classes,
+											  BatchConfig config) {
+		// Flatten to methods so that large classes are split across workers as well
+		List<ClassNode> owners = new ArrayList<>();
+		List<MethodNode> methods = new ArrayList<>();
+		for (ClassNode node : classes)
+			for (MethodNode method : node.methods) {
+				owners.add(node);
+				methods.add(method);
+			}
+		MethodResult[] results = new MethodResult[methods.size()];
+		Supplier<SimAnalyzer> supplier = config.getAnalyzerSupplier();
+		pool.invoke(new RangeTask(0, results.length, ANALYZE_THRESHOLD, i -> {
+			SimAnalyzer analyzer = Worker.analyzer(supplier);
+			results[i] = analyzeMethod(analyzer, owners.get(i), methods.get(i), config.isKeepFrames());
+		}));
+		return Arrays.asList(results);
+	}
+
+	/**
+	 * @param analyzer
+	 * 		Analyzer to use.
+	 * @param owner
+	 * 		Class declaring the method.
+	 * @param method
+	 * 		Method to analyze.
+	 * @param keepFrames
+	 *        {@code true} to retain the frames in the result.
+	 *
+	 * @return Result of analysis.
+	 */
+	static MethodResult analyzeMethod(SimAnalyzer analyzer, ClassNode owner, MethodNode method,
+									  boolean keepFrames) {
+		try {
+			SimFrame[] frames = analyzer.analyze(owner.name, method);
+			int reachable = 0;
+			for (SimFrame frame : frames)
+				if (frame != null)
+					reachable++;
+			return new MethodResult(owner, method, keepFrames ? frames : null, reachable, null);
+		} catch (AnalyzerException | RuntimeException ex) {
+			return new MethodResult(owner, method, null, 0, ex);
+		}
+	}
+
+	/**
+	 * @param is
+	 * 		Stream to read.
+	 * @param size
+	 * 		Expected size, or {@code -1} if unknown.
+	 *
+	 * @return Content of stream.
+	 *
+	 * @throws IOException
+	 * 		When the stream cannot be read.
+	 */
+	static byte[] readFully(InputStream is, long size) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream(size > 0 ? (int) size : 4096);
+		byte[] buffer = new byte[8192];
+		int r;
+		while ((r = is.read(buffer)) != -1)
+			baos.write(buffer, 0, r);
+		return baos.toByteArray();
+	}
+
+	private static ForkJoinPool createPool(BatchConfig config) {
+		return new ForkJoinPool(config.getParallelism(), Worker::new, null, false);
+	}
+
+	/**
+	 * Worker thread holding its own analyzer.
+	 */
+	private static class Worker extends ForkJoinWorkerThread {
+		private SimAnalyzer analyzer;
+
+		private Worker(ForkJoinPool pool) {
+			super(pool);
+		}
+
+		/**
+		 * @param supplier
+		 * 		Analyzer supplier, used when the current thread does not yet have an analyzer.
+		 *
+		 * @return Analyzer for the current thread.
+		 */
+		private static SimAnalyzer analyzer(Supplier<SimAnalyzer> supplier) {
+			Thread thread = Thread.currentThread();
+			if (thread instanceof Worker) {
+				Worker worker = (Worker) thread;
+				if (worker.analyzer == null)
+					worker.analyzer = supplier.get();
+				return worker.analyzer;
+			}
+			// Tasks may be run by a non-worker thread helping a join, do not share in this case
+			return supplier.get();
+		}
+	}
+
+	/**
+	 * Action over a range of indices, split in halves until below a threshold.
+	 */
+	private static class RangeTask extends RecursiveAction {
+		private final int start;
+		private final int end;
+		private final int threshold;
+		private final IntConsumer action;
+
+		private RangeTask(int start, int end, int threshold, IntConsumer action) {
+			this.start = start;
+			this.end = end;
+			this.threshold = threshold;
+			this.action = action;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start <= threshold) {
+				for (int i = start; i < end; i++)
+					action.accept(i);
+			} else {
+				int mid = (start + end) >>> 1;
+				invokeAll(new RangeTask(start, mid, threshold, action),
+						new RangeTask(mid, end, threshold, action));
+			}
+		}
+	}
+}
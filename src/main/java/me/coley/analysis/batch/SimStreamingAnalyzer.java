@@ -0,0 +1,180 @@
+package me.coley.analysis.batch;
+
+import me.coley.analysis.SimAnalyzer;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Analyzes all methods of an archive as a stream, without loading the whole archive into memory.
+ * <br>
+ * Entries are read one at a time, parsed, and analyzed by {@link BatchConfig#getParallelism()} workers that
+ * each own a single analyzer. Results are handed to a sink, after which the pipeline holds no reference
+ * to the class or its frames. Stages are connected by queues bounded by {@link BatchConfig#getQueueCapacity()},
+ * so a slow stage blocks the stages before it and peak memory is proportional to the in-flight window rather
+ * than to the size of the archive.
+ *
+ * @author Matt Coley
+ */
+public class SimStreamingAnalyzer {
+	private static final byte[] END_OF_CODE = new byte[0];
+	private static final ClassNode END_OF_CLASSES = new ClassNode();
+	private static final MethodResult END_OF_RESULTS = new MethodResult(null, null, null, 0, null);
+
+	/**
+	 * @param archive
+	 * 		Path to jar or zip file.
+	 * @param config
+	 * 		Analysis configuration.
+	 * @param sink
+	 * 		Consumer of results. Always called on the calling thread.
+	 *
+	 * @throws IOException
+	 * 		When the archive cannot be read.
+	 */
+	public static void analyzeArchive(Path archive, BatchConfig config, Consumer<MethodResult> sink)
+			throws IOException {
+		try (InputStream is = Files.newInputStream(archive)) {
+			analyzeArchive(is, config, sink);
+		}
+	}
+
+	/**
+	 * Analyze all methods of all classes in the given archive stream.
+	 * Entries that are not valid classes are skipped.
+	 * <br>
+	 * If the sink throws an exception, the pipeline is stopped and the exception is rethrown.
+	 *
+	 * @param archive
+	 * 		Stream of jar or zip file content. Not closed by this method.
+	 * @param config
+	 * 		Analysis configuration.
+	 * @param sink
+	 * 		Consumer of results. Always called on the calling thread.
+	 *
+	 * @throws IOException
+	 * 		When the archive cannot be read.
+	 */
+	public static void analyzeArchive(InputStream archive, BatchConfig config, Consumer<MethodResult> sink)
+			throws IOException {
+		int workers = config.getParallelism();
+		BlockingQueue<byte[]> codeQueue = new ArrayBlockingQueue<>(config.getQueueCapacity());
+		BlockingQueue<ClassNode> classQueue = new ArrayBlockingQueue<>(config.getQueueCapacity());
+		BlockingQueue<MethodResult> resultQueue = new ArrayBlockingQueue<>(config.getQueueCapacity());
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		AtomicInteger threadId = new AtomicInteger();
+		ExecutorService service = Executors.newFixedThreadPool(workers + 2, r -> {
+			Thread thread = new Thread(r, "SimStreamingAnalyzer-" + threadId.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			// Read: one entry at a time
+			service.execute(() -> {
+				try {
+					ZipInputStream zis = new ZipInputStream(archive);
+					ZipEntry entry;
+					while ((entry = zis.getNextEntry()) != null) {
+						if (!entry.isDirectory() && entry.getName().endsWith(".class"))
+							codeQueue.put(SimBatchAnalyzer.readFully(zis, entry.getSize()));
+					}
+				} catch (InterruptedException ex) {
+					// Pipeline stopped, keep the flag so the put below returns immediately
+					Thread.currentThread().interrupt();
+				} catch (Throwable t) {
+					failure.compareAndSet(null, t);
+				} finally {
+					put(codeQueue, END_OF_CODE);
+				}
+			});
+			// Parse
+			service.execute(() -> {
+				try {
+					byte[] code;
+					while ((code = codeQueue.take()) != END_OF_CODE) {
+						try {
+							ClassNode node = new ClassNode();
+							new ClassReader(code).accept(node, config.getReadFlags());
+							classQueue.put(node);
+						} catch (RuntimeException ignored) {
+							// Not a valid class, skip it
+						}
+					}
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				} catch (Throwable t) {
+					failure.compareAndSet(null, t);
+				} finally {
+					// Workers must always be released, otherwise they and the caller wait forever
+					for (int i = 0; i < workers; i++)
+						put(classQueue, END_OF_CLASSES);
+				}
+			});
+			// Analyze
+			for (int i = 0; i < workers; i++) {
+				service.execute(() -> {
+					try {
+						SimAnalyzer analyzer = config.getAnalyzerSupplier().get();
+						ClassNode node;
+						while ((node = classQueue.take()) != END_OF_CLASSES) {
+							for (MethodNode method : node.methods)
+								resultQueue.put(SimBatchAnalyzer.analyzeMethod(analyzer, node, method,
+										config.isKeepFrames()));
+						}
+					} catch (InterruptedException ex) {
+						Thread.currentThread().interrupt();
+					} catch (Throwable t) {
+						failure.compareAndSet(null, t);
+					} finally {
+						put(resultQueue, END_OF_RESULTS);
+					}
+				});
+			}
+			// Hand off results on the calling thread
+			int remaining = workers;
+			while (remaining > 0) {
+				MethodResult result = resultQueue.take();
+				if (result == END_OF_RESULTS)
+					remaining--;
+				else
+					sink.accept(result);
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting on analysis results");
+		} finally {
+			service.shutdownNow();
+		}
+		Throwable t = failure.get();
+		if (t instanceof IOException)
+			throw (IOException) t;
+		else if (t instanceof RuntimeException)
+			throw (RuntimeException) t;
+		else if (t instanceof Error)
+			throw (Error) t;
+	}
+
+	private static <T> void put(BlockingQueue<T> queue, T value) {
+		try {
+			queue.put(value);
+		} catch (InterruptedException ex) {
+			// Pipeline stopped, keep the flag so later puts of this thread return immediately
+			Thread.currentThread().interrupt();
+		}
+	}
+}
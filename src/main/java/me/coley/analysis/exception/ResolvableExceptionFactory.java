@@ -38,6 +38,13 @@ public class ResolvableExceptionFactory {
 		this.blockHandler = blockHandler;
 	}
 
+	/**
+	 * @return Type resolver for comparison against other types.
+	 */
+	public TypeResolver getTypeResolver() {
+		return typeResolver;
+	}
+
 	/**
 	 * @param expectedType
 	 * 		Expected type.
@@ -0,0 +1,180 @@
+package me.coley.analysis.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Minimal class file scanner that only reads the name, super name and interfaces of a class.
+ * <br>
+ * Unlike {@link org.objectweb.asm.ClassReader} the constant pool is not indexed up front, entries are skipped
+ * over by their tag and only the few entries referenced by the header are decoded.
+ *
+ * @author Matt Coley
+ */
+public final class ClassHeader {
+	private static final int MAGIC = 0xCAFEBABE;
+	private static final String[] NO_INTERFACES = new String[0];
+	private final String name;
+	private final String superName;
+	private final String[] interfaces;
+
+	private ClassHeader(String name, String superName, String[] interfaces) {
+		this.name = name;
+		this.superName = superName;
+		this.interfaces = interfaces;
+	}
+
+	/**
+	 * @param code
+	 * 		Class bytecode.
+	 *
+	 * @return Header of the class.
+	 *
+	 * @throws IllegalArgumentException
+	 * 		When the bytecode is not a valid class file.
+	 */
+	public static ClassHeader read(byte[] code) {
+		return read(ByteBuffer.wrap(code));
+	}
+
+	/**
+	 * Reads the header directly from the buffer without copying it.
+	 * The class is read from the buffer's position to its limit, the position is not changed.
+	 *
+	 * @param buffer
+	 * 		Buffer holding class bytecode.
+	 *
+	 * @return Header of the class.
+	 *
+	 * @throws IllegalArgumentException
+	 * 		When the buffer does not hold a valid class file.
+	 */
+	public static ClassHeader read(ByteBuffer buffer) {
+		try {
+			return scan(buffer, buffer.position(), buffer.limit());
+		} catch (IndexOutOfBoundsException ex) {
+			throw new IllegalArgumentException("Truncated class file", ex);
+		}
+	}
+
+	private static ClassHeader scan(ByteBuffer buffer, int start, int limit) {
+		if (limit - start < 10 || (u2(buffer, start) << 16 | u2(buffer, start + 2)) != MAGIC)
+			throw new IllegalArgumentException("Not a class file");
+		// Record the offset of each constant pool entry, skipping over their content
+		int count = u2(buffer, start + 8);
+		int[] offsets = new int[count];
+		int offset = start + 10;
+		for (int i = 1; i < count; i++) {
+			offsets[i] = offset;
+			int tag = buffer.get(offset);
+			switch (tag) {
+				case 1: // Utf8
+					offset += 3 + u2(buffer, offset + 1);
+					break;
+				case 7: // Class
+				case 8: // String
+				case 16: // MethodType
+				case 19: // Module
+				case 20: // Package
+					offset += 3;
+					break;
+				case 15: // MethodHandle
+					offset += 4;
+					break;
+				case 3: // Integer
+				case 4: // Float
+				case 9: // Fieldref
+				case 10: // Methodref
+				case 11: // InterfaceMethodref
+				case 12: // NameAndType
+				case 17: // Dynamic
+				case 18: // InvokeDynamic
+					offset += 5;
+					break;
+				case 5: // Long
+				case 6: // Double
+					offset += 9;
+					i++;
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown constant pool tag " + tag + " at " + (offset - start));
+			}
+			if (offset > limit)
+				throw new IllegalArgumentException("Truncated constant pool");
+		}
+		// Skip access flags
+		offset += 2;
+		String name = className(buffer, offsets, u2(buffer, offset));
+		String superName = className(buffer, offsets, u2(buffer, offset + 2));
+		int interfaceCount = u2(buffer, offset + 4);
+		String[] interfaces = interfaceCount == 0 ? NO_INTERFACES : new String[interfaceCount];
+		offset += 6;
+		for (int i = 0; i < interfaceCount; i++, offset += 2)
+			interfaces[i] = className(buffer, offsets, u2(buffer, offset));
+		return new ClassHeader(name, superName, interfaces);
+	}
+
+	private static String className(ByteBuffer buffer, int[] offsets, int index) {
+		if (index == 0)
+			return null;
+		int offset = entry(buffer, offsets, index, 7);
+		return utf8(buffer, entry(buffer, offsets, u2(buffer, offset + 1), 1));
+	}
+
+	private static int entry(ByteBuffer buffer, int[] offsets, int index, int tag) {
+		if (index <= 0 || index >= offsets.length || offsets[index] == 0 || buffer.get(offsets[index]) != tag)
+			throw new IllegalArgumentException("Invalid constant pool reference " + index);
+		return offsets[index];
+	}
+
+	private static String utf8(ByteBuffer buffer, int offset) {
+		int length = u2(buffer, offset + 1);
+		int pos = offset + 3;
+		int end = pos + length;
+		char[] chars = new char[length];
+		int size = 0;
+		// Modified UTF-8, see JVMS 4.4.7
+		while (pos < end) {
+			int b = buffer.get(pos++);
+			if ((b & 0x80) == 0) {
+				chars[size++] = (char) (b & 0x7F);
+			} else if ((b & 0xE0) == 0xC0) {
+				chars[size++] = (char) (((b & 0x1F) << 6) + (buffer.get(pos++) & 0x3F));
+			} else {
+				chars[size++] = (char) (((b & 0xF) << 12) + ((buffer.get(pos++) & 0x3F) << 6)
+						+ (buffer.get(pos++) & 0x3F));
+			}
+		}
+		return new String(chars, 0, size);
+	}
+
+	private static int u2(ByteBuffer buffer, int offset) {
+		// Independent of the byte order of the buffer
+		return (buffer.get(offset) & 0xFF) << 8 | (buffer.get(offset + 1) & 0xFF);
+	}
+
+	/**
+	 * @return Internal name of the class.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return Internal name of the super class. May be {@code null} for {@code java/lang/Object} and modules.
+	 */
+	public String getSuperName() {
+		return superName;
+	}
+
+	/**
+	 * @return Internal names of the implemented interfaces.
+	 */
+	public String[] getInterfaces() {
+		return interfaces;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
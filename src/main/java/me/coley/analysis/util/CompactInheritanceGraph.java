@@ -0,0 +1,383 @@
+package me.coley.analysis.util;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Read-only inheritance graph where class names are interned to dense integer ids and the parents and children
+ * of each class are stored as compressed rows of ids, see {@link InheritanceGraph#compact()}.
+ * <br>
+ * Compared to the map based graph this avoids a set object per class and string hashing during traversal,
+ * transitive lookups walk the id arrays directly.
+ * <br>
+ * The ancestors of every class are computed once when the graph is built, both in breadth-first order and sorted
+ * by id. This makes {@link #isAssignableFrom(String, String)} a binary search over the ancestors of the child, and
+ * {@link #getCommon(String, String)} a scan of the ancestors of the second type that usually ends after a few
+ * entries, rather than walking the hierarchy on every query. The descendants of every class are the inverse of
+ * its ancestors, and take the same space.
+ * <br>
+ * Lookups return read-only views over these rows rather than copies.
+ * Use {@link #copy()} to obtain a graph that can be modified.
+ *
+ * @author Matt Coley
+ */
+public class CompactInheritanceGraph extends InheritanceGraph {
+	private static final String OBJECT = "java/lang/Object";
+	private static final int FLAG_PARENTS = 1;
+	private static final int FLAG_CHILDREN = 2;
+	private final String[] names;
+	// Open addressing table of id + 1, zero for empty slots
+	private final int[] table;
+	private final int[] parentOffsets;
+	private final int[] parents;
+	private final int[] childOffsets;
+	private final int[] children;
+	private final byte[] flags;
+	// Transitive parents of each class, in breadth-first order and sorted by id
+	private final int[] ancestorOffsets;
+	private final int[] ancestorsOrdered;
+	private final int[] ancestorsSorted;
+	// Transitive children of each class, sorted by id
+	private final int[] descendantOffsets;
+	private final int[] descendants;
+
+	private CompactInheritanceGraph(String[] names, int[] parentOffsets, int[] parents, byte[] flags) {
+		int count = names.length;
+		this.names = names;
+		this.parentOffsets = parentOffsets;
+		this.parents = parents;
+		this.flags = flags;
+		// Load factor of at most one half
+		table = new int[Integer.highestOneBit(Math.max(1, count) * 2 - 1) << 1];
+		for (int i = 0; i < count; i++) {
+			int slot = names[i].hashCode() & (table.length - 1);
+			while (table[slot] != 0)
+				slot = (slot + 1) & (table.length - 1);
+			table[slot] = i + 1;
+		}
+		// Children are the inverse of the parent rows
+		childOffsets = new int[count + 1];
+		for (int parent : parents)
+			childOffsets[parent + 1]++;
+		for (int i = 0; i < count; i++) {
+			childOffsets[i + 1] += childOffsets[i];
+			if (childOffsets[i + 1] != childOffsets[i])
+				flags[i] |= FLAG_CHILDREN;
+		}
+		children = new int[parents.length];
+		int[] fill = Arrays.copyOf(childOffsets, count);
+		for (int child = 0; child < count; child++)
+			for (int i = parentOffsets[child]; i < parentOffsets[child + 1]; i++)
+				children[fill[parents[i]]++] = child;
+		// Breadth-first walk of the parents of each class, stamping visited ids with the class id
+		ancestorOffsets = new int[count + 1];
+		int[] ordered = new int[Math.max(16, parents.length * 2)];
+		int size = 0;
+		int[] stamp = new int[count];
+		int[] queue = new int[count];
+		for (int id = 0; id < count; id++) {
+			ancestorOffsets[id] = size;
+			int head = 0;
+			int tail = 0;
+			queue[tail++] = id;
+			stamp[id] = id + 1;
+			while (head < tail) {
+				int next = queue[head++];
+				for (int i = parentOffsets[next]; i < parentOffsets[next + 1]; i++) {
+					int parent = parents[i];
+					if (stamp[parent] != id + 1) {
+						stamp[parent] = id + 1;
+						queue[tail++] = parent;
+						if (size == ordered.length)
+							ordered = Arrays.copyOf(ordered, size * 2);
+						ordered[size++] = parent;
+					}
+				}
+			}
+		}
+		ancestorOffsets[count] = size;
+		ancestorsOrdered = Arrays.copyOf(ordered, size);
+		ancestorsSorted = ancestorsOrdered.clone();
+		for (int id = 0; id < count; id++)
+			Arrays.sort(ancestorsSorted, ancestorOffsets[id], ancestorOffsets[id + 1]);
+		// Descendants are the inverse of the ancestor rows, filled in order of id so each row is sorted
+		descendantOffsets = new int[count + 1];
+		for (int ancestor : ancestorsSorted)
+			descendantOffsets[ancestor + 1]++;
+		for (int i = 0; i < count; i++)
+			descendantOffsets[i + 1] += descendantOffsets[i];
+		descendants = new int[size];
+		fill = Arrays.copyOf(descendantOffsets, count);
+		for (int id = 0; id < count; id++)
+			for (int i = ancestorOffsets[id]; i < ancestorOffsets[id + 1]; i++)
+				descendants[fill[ancestorsSorted[i]]++] = id;
+	}
+
+	/**
+	 * @param parentsOf
+	 * 		Map of classes to their direct parents.
+	 *
+	 * @return Compact graph of the given classes.
+	 */
+	static CompactInheritanceGraph of(Map<String, Set<String>> parentsOf) {
+		Map<String, Integer> ids = new LinkedHashMap<>();
+		int edges = 0;
+		for (Map.Entry<String, Set<String>> e : parentsOf.entrySet()) {
+			ids.putIfAbsent(e.getKey(), ids.size());
+			for (String parent : e.getValue())
+				ids.putIfAbsent(parent, ids.size());
+			edges += e.getValue().size();
+		}
+		String[] names = ids.keySet().toArray(new String[0]);
+		int[] parentOffsets = new int[names.length + 1];
+		int[] parents = new int[edges];
+		byte[] flags = new byte[names.length];
+		int offset = 0;
+		for (int i = 0; i < names.length; i++) {
+			parentOffsets[i] = offset;
+			Set<String> set = parentsOf.get(names[i]);
+			if (set != null) {
+				flags[i] |= FLAG_PARENTS;
+				for (String parent : set)
+					parents[offset++] = ids.get(parent);
+			}
+		}
+		parentOffsets[names.length] = offset;
+		return new CompactInheritanceGraph(names, parentOffsets, parents, flags);
+	}
+
+	/**
+	 * @param name
+	 * 		Internal name of class.
+	 *
+	 * @return Id of the class, or {@code -1} if it is not known.
+	 */
+	public int getId(String name) {
+		if (name == null)
+			return -1;
+		int slot = name.hashCode() & (table.length - 1);
+		int id;
+		while ((id = table[slot]) != 0) {
+			if (names[id - 1].equals(name))
+				return id - 1;
+			slot = (slot + 1) & (table.length - 1);
+		}
+		return -1;
+	}
+
+	/**
+	 * @param id
+	 * 		Id of class.
+	 *
+	 * @return Internal name of the class.
+	 */
+	public String getName(int id) {
+		return names[id];
+	}
+
+	/**
+	 * @return Number of classes in the graph, including parents that have no lookup of their own.
+	 */
+	public int size() {
+		return names.length;
+	}
+
+	@Override
+	public InheritanceGraph copy() {
+		InheritanceGraph copy = new InheritanceGraph();
+		for (int i = 0; i < names.length; i++)
+			if ((flags[i] & FLAG_PARENTS) != 0)
+				copy.add(names[i], toSet(parentOffsets, parents, i));
+		return copy;
+	}
+
+	@Override
+	public CompactInheritanceGraph compact() {
+		return this;
+	}
+
+	@Override
+	public void save(Path path) throws IOException {
+		copy().save(path);
+	}
+
+	@Override
+	public void add(String child, Set<String> parents) {
+		throw new UnsupportedOperationException("Compact inheritance graphs are read-only, use 'copy()' first");
+	}
+
+	@Override
+	public void replace(String child, Set<String> parents) {
+		throw new UnsupportedOperationException("Compact inheritance graphs are read-only, use 'copy()' first");
+	}
+
+	@Override
+	public boolean remove(String child) {
+		throw new UnsupportedOperationException("Compact inheritance graphs are read-only, use 'copy()' first");
+	}
+
+	@Override
+	public boolean addModulePath(int parallelism) {
+		// Would otherwise be reported as an unavailable module path
+		throw new UnsupportedOperationException("Compact inheritance graphs are read-only, use 'copy()' first");
+	}
+
+	@Override
+	public boolean addModulePathLazily() {
+		throw new UnsupportedOperationException("Compact inheritance graphs are read-only, use 'copy()' first");
+	}
+
+	@Override
+	public boolean hasParentLookup(String name) {
+		int id = getId(name);
+		return id >= 0 && (flags[id] & FLAG_PARENTS) != 0;
+	}
+
+	@Override
+	public boolean hasChildrenLookup(String name) {
+		int id = getId(name);
+		return id >= 0 && (flags[id] & FLAG_CHILDREN) != 0;
+	}
+
+	@Override
+	public Set<String> getParents(String name) {
+		int id = getId(name);
+		if (id < 0 || parentOffsets[id] == parentOffsets[id + 1])
+			return Collections.emptySet();
+		return new NameSet(parents, parentOffsets[id], parentOffsets[id + 1], false);
+	}
+
+	@Override
+	public Set<String> getAllParents(String name) {
+		int id = getId(name);
+		if (id < 0 || ancestorOffsets[id] == ancestorOffsets[id + 1])
+			return Collections.emptySet();
+		return new NameSet(ancestorsSorted, ancestorOffsets[id], ancestorOffsets[id + 1], true);
+	}
+
+	@Override
+	public Set<String> getChildren(String name) {
+		int id = getId(name);
+		if (id < 0 || childOffsets[id] == childOffsets[id + 1])
+			return Collections.emptySet();
+		return new NameSet(children, childOffsets[id], childOffsets[id + 1], true);
+	}
+
+	@Override
+	public Set<String> getAllChildren(String name) {
+		int id = getId(name);
+		if (id < 0 || descendantOffsets[id] == descendantOffsets[id + 1])
+			return Collections.emptySet();
+		return new NameSet(descendants, descendantOffsets[id], descendantOffsets[id + 1], true);
+	}
+
+	@Override
+	public boolean isAssignableFrom(String parent, String child) {
+		if (parent.equals(child))
+			return true;
+		int parentId = getId(parent);
+		int childId = getId(child);
+		return parentId >= 0 && childId >= 0 && isAncestor(childId, parentId);
+	}
+
+	@Override
+	public String getCommon(String first, String second) {
+		if (first.equals(second))
+			return second;
+		int firstId = getId(first);
+		int secondId = getId(second);
+		// Unknown types have no parents, and cannot be the parent of a known type
+		if (firstId < 0 || secondId < 0)
+			return OBJECT;
+		// Base case
+		if (isAncestor(firstId, secondId))
+			return second;
+		// First of second's parents, in breadth-first order, in the hierarchy of the first
+		for (int i = ancestorOffsets[secondId]; i < ancestorOffsets[secondId + 1]; i++) {
+			int parent = ancestorsOrdered[i];
+			if (parent == firstId || isAncestor(firstId, parent))
+				return names[parent];
+		}
+		// Fallback option
+		return OBJECT;
+	}
+
+	/**
+	 * @param id
+	 * 		Id of a class.
+	 * @param ancestor
+	 * 		Id of another class.
+	 *
+	 * @return {@code true} when the other class is a transitive parent of the class.
+	 */
+	private boolean isAncestor(int id, int ancestor) {
+		return Arrays.binarySearch(ancestorsSorted, ancestorOffsets[id], ancestorOffsets[id + 1], ancestor) >= 0;
+	}
+
+	@Override
+	public String convertToString() {
+		return copy().convertToString();
+	}
+
+	private Set<String> toSet(int[] offsets, int[] values, int id) {
+		Set<String> set = new HashSet<>();
+		for (int i = offsets[id]; i < offsets[id + 1]; i++)
+			set.add(names[values[i]]);
+		return set;
+	}
+
+	/**
+	 * Read-only view of a row of class ids, as class names.
+	 */
+	private final class NameSet extends AbstractSet<String> {
+		private final int[] row;
+		private final int start;
+		private final int end;
+		private final boolean sorted;
+
+		private NameSet(int[] row, int start, int end, boolean sorted) {
+			this.row = row;
+			this.start = start;
+			this.end = end;
+			this.sorted = sorted;
+		}
+
+		@Override
+		public Iterator<String> iterator() {
+			return new Iterator<String>() {
+				private int next = start;
+
+				@Override
+				public boolean hasNext() {
+					return next < end;
+				}
+
+				@Override
+				public String next() {
+					if (next >= end)
+						throw new NoSuchElementException();
+					return names[row[next++]];
+				}
+			};
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			int id = o instanceof String ? getId((String) o) : -1;
+			if (id < 0)
+				return false;
+			if (sorted)
+				return Arrays.binarySearch(row, start, end, id) >= 0;
+			for (int i = start; i < end; i++)
+				if (row[i] == id)
+					return true;
+			return false;
+		}
+
+		@Override
+		public int size() {
+			return end - start;
+		}
+	}
+}
@@ -6,7 +6,10 @@ import java.util.Objects;
  * Temporary control flow to record {@link org.objectweb.asm.tree.analysis.Analyzer#newControlFlowEdge(int, int)}.
  *
  * @author Matt Coley
+ * @deprecated No longer used by the analyzer, which records control flow edges as compressed rows per method.
+ * Use {@link me.coley.analysis.SimFrame#getFlowInputs()} and {@link me.coley.analysis.SimFrame#getFlowOutputs()}.
  */
+@Deprecated
 public class Flow {
 	private final int from;
 	private final int to;
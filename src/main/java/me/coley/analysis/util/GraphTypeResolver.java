@@ -0,0 +1,122 @@
+package me.coley.analysis.util;
+
+import me.coley.analysis.TypeResolver;
+import org.objectweb.asm.Type;
+
+/**
+ * Type resolver backed by an {@link InheritanceGraph}.
+ * <br>
+ * Merges in the interpreter ask about the same pairs of types over and over, so the results of each query are
+ * memoized per pair of types. Each cache is bounded, once full it is cleared and filled again.
+ * The resolver can be shared between analyzers on different threads.
+ *
+ * @author Matt Coley
+ */
+public class GraphTypeResolver implements TypeResolver {
+	private static final int DEFAULT_CACHE_SIZE = 4096;
+	private static final Type CLONEABLE_TYPE = Type.getObjectType("java/lang/Cloneable");
+	private static final Type SERIALIZABLE_TYPE = Type.getObjectType("java/io/Serializable");
+	private final InheritanceGraph graph;
+	private final TypePairCache<Boolean> assignableCache;
+	private final TypePairCache<Type> commonCache;
+	private final TypePairCache<Type> commonExceptionCache;
+
+	/**
+	 * @param graph
+	 * 		Graph to look up type hierarchies in.
+	 */
+	public GraphTypeResolver(InheritanceGraph graph) {
+		this(graph, DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * @param graph
+	 * 		Graph to look up type hierarchies in.
+	 * @param cacheSize
+	 * 		Maximum number of type pairs to remember per kind of query.
+	 */
+	public GraphTypeResolver(InheritanceGraph graph, int cacheSize) {
+		this.graph = graph;
+		assignableCache = new TypePairCache<>(cacheSize, this::computeAssignable);
+		commonCache = new TypePairCache<>(cacheSize, (a, b) -> computeCommon(a, b, TypeUtil.OBJECT_TYPE));
+		commonExceptionCache = new TypePairCache<>(cacheSize, (a, b) -> computeCommon(a, b, TypeUtil.EXCEPTION_TYPE));
+	}
+
+	/**
+	 * @return Graph used to look up type hierarchies.
+	 */
+	public InheritanceGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Forget all memoized results. Required when the backing graph is modified.
+	 */
+	public void clearCaches() {
+		assignableCache.clear();
+		commonCache.clear();
+		commonExceptionCache.clear();
+	}
+
+	@Override
+	public boolean isAssignableFrom(Type first, Type second) {
+		if (first.equals(second))
+			return true;
+		return assignableCache.get(first, second);
+	}
+
+	@Override
+	public Type common(Type type1, Type type2) {
+		if (type1.equals(type2))
+			return type1;
+		return commonCache.get(type1, type2);
+	}
+
+	@Override
+	public Type commonException(Type type1, Type type2) {
+		if (type1.equals(type2))
+			return type1;
+		return commonExceptionCache.get(type1, type2);
+	}
+
+	private boolean computeAssignable(Type first, Type second) {
+		if (first.equals(second))
+			return true;
+		if (TypeUtil.isPrimitive(first) || TypeUtil.isPrimitive(second))
+			return false;
+		if (second.getSort() == Type.ARRAY) {
+			if (first.getSort() == Type.ARRAY)
+				return computeAssignable(componentType(first), componentType(second));
+			// Arrays are objects that implement these interfaces
+			return first.equals(TypeUtil.OBJECT_TYPE) || first.equals(CLONEABLE_TYPE)
+					|| first.equals(SERIALIZABLE_TYPE);
+		}
+		if (first.getSort() == Type.ARRAY)
+			return false;
+		return first.equals(TypeUtil.OBJECT_TYPE)
+				|| graph.isAssignableFrom(first.getInternalName(), second.getInternalName());
+	}
+
+	private Type computeCommon(Type type1, Type type2, Type fallback) {
+		if (type1.equals(type2))
+			return type1;
+		if (type1.getSort() == Type.ARRAY && type2.getSort() == Type.ARRAY) {
+			Type component1 = componentType(type1);
+			Type component2 = componentType(type2);
+			// Arrays of primitives only share a parent with arrays of the same type
+			if (TypeUtil.isPrimitive(component1) || TypeUtil.isPrimitive(component2))
+				return TypeUtil.OBJECT_TYPE;
+			return Type.getType("[" + computeCommon(component1, component2, TypeUtil.OBJECT_TYPE).getDescriptor());
+		}
+		if (type1.getSort() != Type.OBJECT || type2.getSort() != Type.OBJECT)
+			return TypeUtil.OBJECT_TYPE;
+		String common = graph.getCommon(type1.getInternalName(), type2.getInternalName());
+		if (common == null || common.equals(TypeUtil.OBJECT_TYPE.getInternalName()))
+			return fallback;
+		return Type.getObjectType(common);
+	}
+
+	private static Type componentType(Type array) {
+		return Type.getType(array.getDescriptor().substring(1));
+	}
+}
@@ -1,17 +1,22 @@
 package me.coley.analysis.util;
 
-import org.objectweb.asm.ClassReader;
-
 import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Method;
 import java.nio.ByteBuffer;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -19,16 +24,30 @@ import java.util.zip.ZipFile;
 
 /**
  * Simple class inheritance graph.
+ * <br>
+ * The graph is thread safe: classes may be added while other threads query it, and transitive lookups are
+ * cached in concurrent maps as unmodifiable sets, so one graph can be shared by many analyzers without locking.
+ * For an immutable snapshot see {@link #compact()}.
  *
  * @author Matt Coley
  */
 public class InheritanceGraph {
 	private static final String MAP_KV_SPLIT = ":::";
 	private static final String MAP_VAL_SPLIT = ",";
-	private final SetMap<String, String> parentsOf = new SetMap<>();
-	private final SetMap<String, String> childrenOf = new SetMap<>();
-	private final SetMap<String, String> parentsOfCachedAll = new SetMap<>();
-	private final SetMap<String, String> childrenOfCachedAll = new SetMap<>();
+	private static final int READ_THRESHOLD = 16;
+	private static final long UPDATE_FINISHED = (1L << 32) - 1;
+	private final Map<String, Set<String>> parentsOf = new ConcurrentHashMap<>();
+	private final Map<String, Set<String>> childrenOf = new ConcurrentHashMap<>();
+	private final Map<String, Set<String>> parentsOfCachedAll = new ConcurrentHashMap<>();
+	private final Map<String, Set<String>> childrenOfCachedAll = new ConcurrentHashMap<>();
+	// Work like seqlocks, so that lookups racing an update do not cache stale results. The low half counts
+	// updates in progress and the high half counts finished updates, so concurrent updates are also accounted for.
+	// Lazily resolved classes only affect cached children, so each cache has its own version.
+	private final AtomicLong parentsVersion = new AtomicLong();
+	private final AtomicLong childrenVersion = new AtomicLong();
+	// Lazily resolved system module classes, and names known not to be in them
+	private volatile JrtClassLookup jrtLookup;
+	private final Set<String> jrtMisses = ConcurrentHashMap.newKeySet();
 
 	/**
 	 * @return Copied instance.
@@ -36,8 +55,15 @@ public class InheritanceGraph {
 	public InheritanceGraph copy() {
 		InheritanceGraph copy = new InheritanceGraph();
 		copy.parentsOf.putAll(parentsOf);
-		copy.childrenOf.putAll(childrenOf);
+		// Children sets are modified in place when classes are added, so they cannot be shared
+		childrenOf.forEach((parent, children) -> {
+			Set<String> set = ConcurrentHashMap.newKeySet();
+			set.addAll(children);
+			copy.childrenOf.put(parent, set);
+		});
 		copy.parentsOfCachedAll.putAll(parentsOfCachedAll);
+		copy.jrtLookup = jrtLookup;
+		copy.jrtMisses.addAll(jrtMisses);
 		copy.childrenOfCachedAll.putAll(childrenOfCachedAll);
 		return copy;
 	}
@@ -64,6 +90,45 @@ public class InheritanceGraph {
 	 * 		When a classpath item cannot be added.
 	 */
 	public void addClasspath() throws IOException {
+		for (File file : getClasspathItems()) {
+			if (file.isDirectory())
+				addDirectory(file);
+			else
+				addArchive(file);
+		}
+	}
+
+	/**
+	 * Add classes from the current classpath to the inheritance graph.
+	 * Entries of all classpath items are read, parsed and added to the graph concurrently.
+	 *
+	 * @param parallelism
+	 * 		Number of threads to read classes with.
+	 *
+	 * @throws IOException
+	 * 		When a classpath item cannot be added.
+	 */
+	public void addClasspath(int parallelism) throws IOException {
+		List<Closeable> opened = new ArrayList<>();
+		try {
+			List<ClassSource> sources = new ArrayList<>();
+			for (File file : getClasspathItems()) {
+				if (file.isDirectory())
+					collectDirectory(file.toPath(), sources, opened);
+				else
+					collectArchive(file, sources, opened);
+			}
+			addSources(sources, parallelism);
+		} finally {
+			closeAll(opened);
+		}
+	}
+
+	/**
+	 * @return Existing directories and archives on the classpath.
+	 */
+	private static List<File> getClasspathItems() {
+		List<File> files = new ArrayList<>();
 		String path = System.getProperty("java.class.path");
 		String separator = System.getProperty("path.separator");
 		String localDir = System.getProperty("user.dir");
@@ -79,14 +144,11 @@ public class InheritanceGraph {
 					file = Paths.get(localDir, item).toFile();
 				if (!file.exists())
 					continue;
-				if (file.isDirectory())
-					addDirectory(file);
-				else if (file.getName().endsWith(".jar") || file.getName().endsWith(".jmod"))
-					addArchive(file);
-				else if (file.getName().endsWith(".jmod") || file.getName().endsWith(".jmod"))
-					addArchive(file);
+				if (file.isDirectory() || file.getName().endsWith(".jar") || file.getName().endsWith(".jmod"))
+					files.add(file);
 			}
 		}
+		return files;
 	}
 
 	/**
@@ -97,8 +159,25 @@ public class InheritanceGraph {
 	 * @return {@code true} when successfully run.
 	 * {@code false} implies the module path could not be read, probably because you are on JDK 8.
 	 */
-	@SuppressWarnings("unchecked")
 	public boolean addModulePath() {
+		return addModulePath(1);
+	}
+
+	/**
+	 * Add classes from the current module path to the inheritance graph.
+	 * Classes of all modules are read, parsed and added to the graph concurrently.
+	 * <br>
+	 * Intended to be used in a Java 9+ environment.
+	 *
+	 * @param parallelism
+	 * 		Number of threads to read classes with.
+	 *
+	 * @return {@code true} when successfully run.
+	 * {@code false} implies the module path could not be read, probably because you are on JDK 8.
+	 */
+	@SuppressWarnings("unchecked")
+	public boolean addModulePath(int parallelism) {
+		List<Closeable> opened = new ArrayList<>();
 		try {
 			// Set<ModuleReference> refs = ModuleFinder.ofSystem().findAll()
 			Class<?> c_finder = Class.forName("java.lang.module.ModuleFinder");
@@ -113,33 +192,137 @@ public class InheritanceGraph {
 			Method reader_list = c_reader.getDeclaredMethod("list");
 			Method reader_read = c_reader.getDeclaredMethod("read", String.class);
 			Method reader_close = c_reader.getDeclaredMethod("release", ByteBuffer.class);
+			List<ClassSource> sources = new ArrayList<>();
 			for (Object ref : refs) {
 				// ModuleReader reader = ref.open();
 				// reader.list().filter(name -> name.endsWith(".class"))
 				Object reader = ref_open.invoke(ref);
-				Stream<String> stream = (Stream<String>) reader_list.invoke(reader);
-				stream.filter(name -> name.endsWith(".class")).forEach(name -> {
-					try {
-						// Optional<ByteBuffer> read = reader.read(name);
-						Optional<ByteBuffer> read = (Optional<ByteBuffer>) reader_read.invoke(reader, name);
-						if (read.isPresent()) {
-							ByteBuffer buffer = read.get();
-							byte[] bytecode = new byte[buffer.remaining()];
-							buffer.slice().get(bytecode);
-							reader_close.invoke(reader, buffer);
-							addClass(bytecode);
+				opened.add((Closeable) reader);
+				try (Stream<String> stream = (Stream<String>) reader_list.invoke(reader)) {
+					stream.filter(name -> name.endsWith(".class")).forEach(name -> sources.add(() -> {
+						try {
+							// Optional<ByteBuffer> read = reader.read(name);
+							Optional<ByteBuffer> read = (Optional<ByteBuffer>) reader_read.invoke(reader, name);
+							if (read.isPresent()) {
+								// Scan the buffer in place rather than copying it out
+								ByteBuffer buffer = read.get();
+								try {
+									return ClassHeader.read(buffer);
+								} finally {
+									reader_close.invoke(reader, buffer);
+								}
+							}
+						} catch (Exception ignored) {
+							// no-op
 						}
-					} catch (Exception ignored) {
-						// no-op
-					}
-				});
+						return null;
+					}));
+				}
 			}
+			addSources(sources, parallelism);
 		} catch (Exception ignored) {
 			return false;
+		} finally {
+			try {
+				closeAll(opened);
+			} catch (IOException ignored) {
+				// no-op
+			}
 		}
 		return true;
 	}
 
+	/**
+	 * Resolve classes of the current module path lazily. Instead of reading every class up front, a class of the
+	 * system modules is added to the graph the first time its parents are looked up.
+	 * <br>
+	 * Since classes are only added once they are looked up, {@link #getChildren(String)} and
+	 * {@link #getAllChildren(String)} only include system classes that have been resolved so far.
+	 * <br>
+	 * Intended to be used in a Java 9+ environment.
+	 *
+	 * @return {@code true} when successfully run.
+	 * {@code false} implies the {@code jrt:/} file system is not available, probably because you are on JDK 8.
+	 */
+	public boolean addModulePathLazily() {
+		JrtClassLookup lookup = JrtClassLookup.open();
+		if (lookup == null)
+			return false;
+		jrtLookup = lookup;
+		jrtMisses.clear();
+		// Cached lookups may stop at system classes that were unknown until now
+		startUpdate();
+		try {
+			parentsOfCachedAll.clear();
+			childrenOfCachedAll.clear();
+		} finally {
+			finishUpdate();
+		}
+		return true;
+	}
+
+	/**
+	 * @param name
+	 * 		Internal name of class without a lookup for its parents.
+	 *
+	 * @return Parents of the class if it was lazily resolved from the system modules, otherwise {@code null}.
+	 */
+	private Set<String> resolveLazily(String name) {
+		JrtClassLookup lookup = jrtLookup;
+		if (lookup == null || jrtMisses.contains(name))
+			return null;
+		ClassHeader header = lookup.read(name);
+		if (header == null || !name.equals(header.getName())) {
+			jrtMisses.add(name);
+			return null;
+		}
+		// Another thread may have resolved it, or it may have been added manually in the meantime
+		Set<String> parents = parentsOf.get(name);
+		if (parents == null)
+			parents = addResolved(header);
+		return parents;
+	}
+
+	/**
+	 * Add a class resolved from the system modules. Unlike {@link #update(String, Set)} this does not invalidate
+	 * cached parents: lookups passing through the class resolve it first, so none can be missing its parents.
+	 *
+	 * @param header
+	 * 		Header of the class.
+	 *
+	 * @return Parents of the class.
+	 */
+	private Set<String> addResolved(ClassHeader header) {
+		String name = header.getName();
+		Set<String> parents = new HashSet<>();
+		parents.add(header.getSuperName());
+		parents.addAll(Arrays.asList(header.getInterfaces()));
+		parents.remove(null);
+		boolean[] added = new boolean[1];
+		Set<String> result = parentsOf.computeIfAbsent(name, k -> {
+			for (String parent : parents)
+				childrenOf.compute(parent, (p, set) -> {
+					if (set == null)
+						set = ConcurrentHashMap.newKeySet();
+					set.add(name);
+					return set;
+				});
+			added[0] = true;
+			return Collections.unmodifiableSet(parents);
+		});
+		// The class is a new transitive child of its ancestors
+		if (added[0] && !childrenOfCachedAll.isEmpty()) {
+			childrenVersion.incrementAndGet();
+			try {
+				for (String ancestor : closure(name, this::getParents))
+					childrenOfCachedAll.remove(ancestor);
+			} finally {
+				childrenVersion.addAndGet(UPDATE_FINISHED);
+			}
+		}
+		return result;
+	}
+
 	/**
 	 * Add classes from the given directory to the inheritance graph.
 	 *
@@ -188,22 +371,37 @@ public class InheritanceGraph {
 	 */
 	public void addArchive(File archive) throws IOException {
 		try (ZipFile jarArchive = new ZipFile(archive)) {
-			byte[] data = new byte[1024];
 			for (Enumeration<? extends ZipEntry> entries = jarArchive.entries(); entries.hasMoreElements(); ) {
 				ZipEntry e = entries.nextElement();
-				int nRead;
-				if (e.getName().endsWith(".class")) {
-					InputStream is = jarArchive.getInputStream(e);
-					ByteArrayOutputStream baos = new ByteArrayOutputStream();
-					while ((nRead = is.read(data, 0, data.length)) != -1)
-						baos.write(data, 0, nRead);
-					baos.flush();
-					addClass(baos.toByteArray());
-				}
+				if (e.getName().endsWith(".class"))
+					addClass(readEntry(jarArchive, e));
 			}
 		}
 	}
 
+	/**
+	 * Add classes from the given archive to the inheritance graph.
+	 * Entries are read, parsed and added to the graph concurrently.
+	 *
+	 * @param archive
+	 * 		Archive to use.
+	 * @param parallelism
+	 * 		Number of threads to read classes with.
+	 *
+	 * @throws IOException
+	 * 		When reading classes from the archive fails.
+	 */
+	public void addArchive(File archive, int parallelism) throws IOException {
+		List<Closeable> opened = new ArrayList<>();
+		try {
+			List<ClassSource> sources = new ArrayList<>();
+			collectArchive(archive, sources, opened);
+			addSources(sources, parallelism);
+		} finally {
+			closeAll(opened);
+		}
+	}
+
 	/**
 	 * Add classes from the given jar to the inheritance graph.
 	 *
@@ -224,12 +422,124 @@ public class InheritanceGraph {
 	 * 		Class bytecode.
 	 */
 	public void addClass(byte[] code) {
+		addHeader(ClassHeader.read(code));
+	}
+
+	/**
+	 * Add a class to the inheritance graph, reading it directly from the given buffer.
+	 *
+	 * @param code
+	 * 		Buffer holding class bytecode, from its position to its limit.
+	 */
+	public void addClass(ByteBuffer code) {
+		addHeader(ClassHeader.read(code));
+	}
+
+	private void addHeader(ClassHeader header) {
 		Set<String> parents = new HashSet<>();
-		ClassReader cr = new ClassReader(code);
-		String child = cr.getClassName();
-		parents.add(cr.getSuperName());
-		parents.addAll(Arrays.asList(cr.getInterfaces()));
-		add(child, parents);
+		parents.add(header.getSuperName());
+		parents.addAll(Arrays.asList(header.getInterfaces()));
+		add(header.getName(), parents);
+	}
+
+	/**
+	 * Read and parse the headers of the given classes in parallel, adding them to the graph as they are read.
+	 *
+	 * @param sources
+	 * 		Classes to add.
+	 * @param parallelism
+	 * 		Number of threads to read classes with.
+	 *
+	 * @throws IOException
+	 * 		When a class cannot be read.
+	 */
+	private void addSources(List<ClassSource> sources, int parallelism) throws IOException {
+		if (parallelism <= 1) {
+			for (ClassSource source : sources) {
+				ClassHeader header = source.readHeader();
+				if (header != null)
+					addHeader(header);
+			}
+			return;
+		}
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			pool.invoke(new HeaderTask(sources, 0, sources.size()));
+		} catch (UncheckedIOException ex) {
+			throw ex.getCause();
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static void collectArchive(File archive, List<ClassSource> sources, List<Closeable> opened)
+			throws IOException {
+		ZipFile zip = new ZipFile(archive);
+		opened.add(zip);
+		for (Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements(); ) {
+			ZipEntry e = entries.nextElement();
+			if (e.getName().endsWith(".class"))
+				sources.add(() -> ClassHeader.read(readEntry(zip, e)));
+		}
+	}
+
+	private static void collectDirectory(Path dir, List<ClassSource> sources, List<Closeable> opened)
+			throws IOException {
+		if (!Files.isDirectory(dir))
+			return;
+		Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				if (file.toString().endsWith(".class"))
+					sources.add(() -> ClassHeader.read(Files.readAllBytes(file)));
+				else if (file.toString().endsWith(".jar") || file.toString().endsWith(".jmod"))
+					collectArchive(file.toFile(), sources, opened);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	private static byte[] readEntry(ZipFile zip, ZipEntry entry) throws IOException {
+		try (InputStream is = zip.getInputStream(entry)) {
+			long size = entry.getSize();
+			if (size >= 0 && size < Integer.MAX_VALUE) {
+				// Size is known, read directly into the result
+				byte[] data = new byte[(int) size];
+				int offset = 0;
+				int nRead;
+				while (offset < data.length && (nRead = is.read(data, offset, data.length - offset)) != -1)
+					offset += nRead;
+				if (offset == data.length && is.read() == -1)
+					return data;
+				// Entry size was not accurate, fall back to reading the rest
+				ByteArrayOutputStream baos = new ByteArrayOutputStream(data.length * 2);
+				baos.write(data, 0, offset);
+				return readRemaining(is, baos);
+			}
+			return readRemaining(is, new ByteArrayOutputStream(8192));
+		}
+	}
+
+	private static byte[] readRemaining(InputStream is, ByteArrayOutputStream baos) throws IOException {
+		byte[] data = new byte[8192];
+		int nRead;
+		while ((nRead = is.read(data, 0, data.length)) != -1)
+			baos.write(data, 0, nRead);
+		return baos.toByteArray();
+	}
+
+	private static void closeAll(List<Closeable> opened) throws IOException {
+		IOException error = null;
+		for (Closeable closeable : opened) {
+			try {
+				closeable.close();
+			} catch (IOException ex) {
+				if (error == null)
+					error = ex;
+			}
+		}
+		if (error != null)
+			throw error;
 	}
 
 	/**
@@ -241,7 +551,8 @@ public class InheritanceGraph {
 	 * 		Collection of parents of the child.
 	 */
 	public void add(String child, Collection<String> parents) {
-		add(child, new HashSet<>(parents));
+		// Sets are copied when they are added
+		add(child, parents instanceof Set ? (Set<String>) parents : new HashSet<>(parents));
 	}
 
 	/**
@@ -255,9 +566,111 @@ public class InheritanceGraph {
 	public void add(String child, Set<String> parents) {
 		if (child == null || parents == null)
 			return;
-		parents.remove(null);
-		parentsOf.put(child, parents);
-		parents.forEach(parent -> childrenOf.putSingle(parent, child));
+		replace(child, parents);
+	}
+
+	/**
+	 * Set the parents of a child, replacing any parents previously recorded for it.
+	 * <br>
+	 * Only cached lookups affected by the change are invalidated: the transitive parents of the child and its
+	 * descendants, and the transitive children of its old and new ancestors.
+	 *
+	 * @param child
+	 * 		A child type.
+	 * @param parents
+	 * 		Set of parents of the child.
+	 */
+	public void replace(String child, Set<String> parents) {
+		// Copied, so that later changes to the given set do not bypass invalidation
+		Set<String> copy = new HashSet<>(parents);
+		copy.remove(null);
+		update(child, Collections.unmodifiableSet(copy));
+	}
+
+	/**
+	 * Remove a class from the inheritance graph. Classes extending the removed class keep it as a parent.
+	 * <br>
+	 * Only cached lookups affected by the change are invalidated, see {@link #replace(String, Set)}.
+	 *
+	 * @param child
+	 * 		Class to remove.
+	 *
+	 * @return {@code true} when the class had a lookup for its parents in the graph.
+	 */
+	public boolean remove(String child) {
+		// Do not resolve it again lazily
+		if (jrtLookup != null)
+			jrtMisses.add(child);
+		return update(child, null) != null;
+	}
+
+	/**
+	 * @param child
+	 * 		A child type.
+	 * @param parents
+	 * 		New parents of the child, or {@code null} to remove it.
+	 *
+	 * @return Prior parents of the child.
+	 */
+	private Set<String> update(String child, Set<String> parents) {
+		startUpdate();
+		try {
+			return doUpdate(child, parents);
+		} finally {
+			finishUpdate();
+		}
+	}
+
+	private void startUpdate() {
+		parentsVersion.incrementAndGet();
+		childrenVersion.incrementAndGet();
+	}
+
+	private void finishUpdate() {
+		// Only bumped after invalidation, so lookups that started during the update see a different version
+		parentsVersion.addAndGet(UPDATE_FINISHED);
+		childrenVersion.addAndGet(UPDATE_FINISHED);
+	}
+
+	private Set<String> doUpdate(String child, Set<String> parents) {
+		// Ancestors whose children are cached need to be found before the old parents are removed
+		boolean invalidateChildren = !childrenOfCachedAll.isEmpty();
+		Set<String> ancestors = invalidateChildren ? closure(child, this::getParents) : null;
+		// Children are updated within the same atomic step as the parents, so that concurrent updates of the
+		// same child cannot leave it as a child of a parent it no longer has
+		AtomicReference<Set<String>> prior = new AtomicReference<>();
+		parentsOf.compute(child, (k, old) -> {
+			prior.set(old);
+			if (old != null)
+				for (String parent : old)
+					if (parents == null || !parents.contains(parent))
+						childrenOf.computeIfPresent(parent, (p, set) -> {
+							set.remove(child);
+							return set.isEmpty() ? null : set;
+						});
+			if (parents != null)
+				for (String parent : parents)
+					childrenOf.compute(parent, (p, set) -> {
+						if (set == null)
+							set = ConcurrentHashMap.newKeySet();
+						set.add(child);
+						return set;
+					});
+			return parents;
+		});
+		Set<String> old = prior.get();
+		if (invalidateChildren) {
+			ancestors.addAll(closure(child, this::getParents));
+			for (String ancestor : ancestors)
+				childrenOfCachedAll.remove(ancestor);
+		}
+		// The transitive parents of every descendant include the child's parents
+		if (!parentsOfCachedAll.isEmpty()) {
+			parentsOfCachedAll.remove(child);
+			for (String descendant : closure(child, this::getChildren))
+				parentsOfCachedAll.remove(descendant);
+		}
+		return old;
 	}
 
 	/**
@@ -268,7 +681,7 @@ public class InheritanceGraph {
 	 * {@code false} when the graph is not aware of any types by the given name.
 	 */
 	public boolean hasParentLookup(String name) {
-		return parentsOf.containsKey(name);
+		return name != null && (parentsOf.containsKey(name) || resolveLazily(name) != null);
 	}
 
 	/**
@@ -279,7 +692,7 @@ public class InheritanceGraph {
 	 * {@code false} when the graph is not aware of any types by the given name.
 	 */
 	public boolean hasChildrenLookup(String name) {
-		return childrenOf.containsKey(name);
+		return name != null && childrenOf.containsKey(name);
 	}
 
 	/**
@@ -289,7 +702,11 @@ public class InheritanceGraph {
 	 * @return Direct parents of the class.
 	 */
 	public Set<String> getParents(String name) {
+		if (name == null)
+			return Collections.emptySet();
 		Set<String> set = parentsOf.get(name);
+		if (set == null)
+			set = resolveLazily(name);
 		if (set == null)
 			return Collections.emptySet();
 		return set;
@@ -302,14 +719,7 @@ public class InheritanceGraph {
 	 * @return All parents of the class.
 	 */
 	public Set<String> getAllParents(String name) {
-		Set<String> set = parentsOfCachedAll.get(name);
-		if (set == null)
-			parentsOfCachedAll.put(name, set =
-					(getParents(name).stream()
-							.map(n -> getAllParents(n).stream())
-							.reduce(getParents(name).stream(), Stream::concat))
-							.collect(Collectors.toSet()));
-		return set;
+		return cachedClosure(name, parentsOfCachedAll, parentsVersion, this::getParents);
 	}
 
 	/**
@@ -319,10 +729,10 @@ public class InheritanceGraph {
 	 * @return Direct children of the class.
 	 */
 	public Set<String> getChildren(String name) {
-		Set<String> set = childrenOf.get(name);
+		Set<String> set = name == null ? null : childrenOf.get(name);
 		if (set == null)
 			return Collections.emptySet();
-		return set;
+		return Collections.unmodifiableSet(set);
 	}
 
 	/**
@@ -332,16 +742,74 @@ public class InheritanceGraph {
 	 * @return All children of the class.
 	 */
 	public Set<String> getAllChildren(String name) {
-		Set<String> set = childrenOfCachedAll.get(name);
-		if (set == null)
-			childrenOfCachedAll.put(name, set =
-					(getChildren(name).stream()
-							.map(n -> getAllChildren(n).stream())
-							.reduce(getChildren(name).stream(), Stream::concat))
-							.collect(Collectors.toSet()));
+		return cachedClosure(name, childrenOfCachedAll, childrenVersion, this::getChildren);
+	}
+
+	/**
+	 * @param name
+	 * 		Internal name of class.
+	 * @param cache
+	 * 		Cache of transitive relations.
+	 * @param version
+	 * 		Version of the cache.
+	 * @param edges
+	 * 		Lookup of the direct relations of a class.
+	 *
+	 * @return Transitive relations of the class.
+	 */
+	private Set<String> cachedClosure(String name, Map<String, Set<String>> cache, AtomicLong version,
+									  Function<String, Set<String>> edges) {
+		if (name == null)
+			return Collections.emptySet();
+		Set<String> set = cache.get(name);
+		if (set == null) {
+			long start = version.get();
+			set = Collections.unmodifiableSet(closure(name, edges));
+			// An update was in progress, the result may already be outdated
+			if ((int) start != 0)
+				return set;
+			// Another thread may have computed it first, both results are equal
+			Set<String> existing = cache.putIfAbsent(name, set);
+			if (existing != null)
+				set = existing;
+			else if (version.get() != start)
+				// Graph was modified while computing, the result may already be outdated
+				cache.remove(name, set);
+		}
 		return set;
 	}
 
+	/**
+	 * @param name
+	 * 		Internal name of class.
+	 * @param edges
+	 * 		Lookup of the direct relations of a class.
+	 *
+	 * @return Transitive relations of the class.
+	 */
+	private static Set<String> closure(String name, Function<String, Set<String>> edges) {
+		Set<String> result = new HashSet<>();
+		Deque<String> queue = new ArrayDeque<>();
+		queue.add(name);
+		while (!queue.isEmpty())
+			for (String next : edges.apply(queue.poll()))
+				if (result.add(next))
+					queue.add(next);
+		return result;
+	}
+
+	/**
+	 * @param parent
+	 * 		Internal name of the assumed parent class.
+	 * @param child
+	 * 		Internal name of the assumed child class.
+	 *
+	 * @return {@code true} when the child is the parent, or the parent is one of the child's transitive parents.
+	 */
+	public boolean isAssignableFrom(String parent, String child) {
+		return parent.equals(child) || getAllParents(child).contains(parent);
+	}
+
 	/**
 	 * @param first
 	 * 		First class name.
@@ -351,14 +819,13 @@ public class InheritanceGraph {
 	 * @return Common parent of the classes.
 	 */
 	public String getCommon(String first, String second) {
-		// Full upwards hierarchy for the first
+		// Full upwards hierarchy for the first, the cached set is shared and must not be modified
 		Set<String> firstParents = getAllParents(first);
-		firstParents.add(first);
 		// Base case
-		if (firstParents.contains(second))
+		if (first.equals(second) || firstParents.contains(second))
 			return second;
 		// Iterate over second's parents via breadth-first-search
-		Queue<String> queue = new LinkedList<>();
+		Queue<String> queue = new ArrayDeque<>();
 		queue.add(second);
 		do {
 			// Item to fetch parents of
@@ -367,7 +834,7 @@ public class InheritanceGraph {
 				break;
 			for (String parent : getParents(next)) {
 				// Parent in the set of visited classes? Then its valid.
-				if (firstParents.contains(parent))
+				if (parent.equals(first) || firstParents.contains(parent))
 					return parent;
 				// Queue up the parent
 				if (!parent.equals("java/lang/Object"))
@@ -378,6 +845,45 @@ public class InheritanceGraph {
 		return "java/lang/Object";
 	}
 
+	/**
+	 * Create a read-only copy of the graph where names are interned to integer ids and relations are stored in
+	 * flat arrays. This uses several times less memory than the map based graph for large hierarchies.
+	 *
+	 * @return Compact copy of the graph.
+	 */
+	public CompactInheritanceGraph compact() {
+		return CompactInheritanceGraph.of(parentsOf);
+	}
+
+	/**
+	 * Write a compact binary snapshot of the graph, which can be loaded with {@link #load(Path)}.
+	 *
+	 * @param path
+	 * 		File to write to.
+	 *
+	 * @throws IOException
+	 * 		When the file cannot be written.
+	 */
+	public void save(Path path) throws IOException {
+		MappedInheritanceGraph.write(path, parentsOf);
+	}
+
+	/**
+	 * Load a snapshot written by {@link #save(Path)}. The file is memory-mapped and lookups are answered
+	 * directly from it, so loading does not depend on the size of the graph.
+	 *
+	 * @param path
+	 * 		File to load.
+	 *
+	 * @return Read-only graph backed by the file. Use {@link #copy()} to obtain a graph that can be modified.
+	 *
+	 * @throws IOException
+	 * 		When the file cannot be read, or is not a valid snapshot.
+	 */
+	public static InheritanceGraph load(Path path) throws IOException {
+		return MappedInheritanceGraph.map(path);
+	}
+
 	/**
 	 * @return String to write to file for caching purposes.
 	 */
@@ -390,4 +896,51 @@ public class InheritanceGraph {
 		});
 		return sb.toString();
 	}
+
+	/**
+	 * Supplier of class headers.
+	 */
+	private interface ClassSource {
+		/**
+		 * @return Header of the class, or {@code null} if the class should be skipped.
+		 *
+		 * @throws IOException
+		 * 		When the class cannot be read.
+		 */
+		ClassHeader readHeader() throws IOException;
+	}
+
+	/**
+	 * Adds class headers over a range of sources, split in halves until below a threshold.
+	 */
+	private class HeaderTask extends RecursiveAction {
+		private final List<ClassSource> sources;
+		private final int start;
+		private final int end;
+
+		private HeaderTask(List<ClassSource> sources, int start, int end) {
+			this.sources = sources;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start <= READ_THRESHOLD) {
+				try {
+					for (int i = start; i < end; i++) {
+						ClassHeader header = sources.get(i).readHeader();
+						if (header != null)
+							addHeader(header);
+					}
+				} catch (IOException ex) {
+					throw new UncheckedIOException(ex);
+				}
+			} else {
+				int mid = (start + end) >>> 1;
+				invokeAll(new HeaderTask(sources, start, mid),
+						new HeaderTask(sources, mid, end));
+			}
+		}
+	}
 }
@@ -0,0 +1,78 @@
+package me.coley.analysis.util;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Looks up the headers of classes in the system modules through the {@code jrt:/} file system.
+ * <br>
+ * Only the package to module index is read up front, classes are read when they are requested.
+ *
+ * @author Matt Coley
+ */
+final class JrtClassLookup {
+	private final FileSystem fs;
+	// Modules with a directory for the package, usually only one of them holds classes
+	private final Map<String, String[]> packageToModule;
+
+	private JrtClassLookup(FileSystem fs, Map<String, String[]> packageToModule) {
+		this.fs = fs;
+		this.packageToModule = packageToModule;
+	}
+
+	/**
+	 * @return Lookup of the current runtime's system modules, or {@code null} if there is no {@code jrt:/} file
+	 * system, such as on JDK 8.
+	 */
+	static JrtClassLookup open() {
+		FileSystem fs;
+		try {
+			fs = FileSystems.getFileSystem(URI.create("jrt:/"));
+		} catch (RuntimeException ex) {
+			return null;
+		}
+		// Layout is '/packages/<package.name>/<module name>'
+		Map<String, String[]> packageToModule = new HashMap<>();
+		try (Stream<Path> packages = Files.list(fs.getPath("/packages"))) {
+			for (Path pkg : (Iterable<Path>) packages::iterator) {
+				try (Stream<Path> modules = Files.list(pkg)) {
+					packageToModule.put(pkg.getFileName().toString().replace('.', '/'),
+							modules.map(module -> module.getFileName().toString()).toArray(String[]::new));
+				}
+			}
+		} catch (IOException ex) {
+			return null;
+		}
+		return new JrtClassLookup(fs, packageToModule);
+	}
+
+	/**
+	 * @param name
+	 * 		Internal name of class.
+	 *
+	 * @return Header of the class, or {@code null} when no system module contains it.
+	 */
+	ClassHeader read(String name) {
+		int split = name.lastIndexOf('/');
+		if (split < 0)
+			return null;
+		String[] modules = packageToModule.get(name.substring(0, split));
+		if (modules == null)
+			return null;
+		for (String module : modules) {
+			Path path = fs.getPath("/modules", module, name + ".class");
+			if (!Files.isRegularFile(path))
+				continue;
+			try {
+				return ClassHeader.read(Files.readAllBytes(path));
+			} catch (IOException | IllegalArgumentException ex) {
+				return null;
+			}
+		}
+		return null;
+	}
+}
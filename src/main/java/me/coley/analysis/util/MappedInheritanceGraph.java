@@ -0,0 +1,326 @@
+package me.coley.analysis.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Read-only inheritance graph answering lookups directly from a memory-mapped snapshot,
+ * see {@link InheritanceGraph#save(Path)} and {@link InheritanceGraph#load(Path)}.
+ * <br>
+ * The snapshot is a string table of class names, an open addressing hash table from name to index,
+ * and the parents and children of each class as compressed rows of indices.
+ * Names are only decoded once they are part of a lookup result.
+ * Use {@link #copy()} to obtain a graph that can be modified.
+ *
+ * @author Matt Coley
+ */
+public class MappedInheritanceGraph extends InheritanceGraph {
+	private static final int MAGIC = 0x53494D47;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 28;
+	private static final int FLAG_PARENTS = 1;
+	private static final int FLAG_CHILDREN = 2;
+	private final ByteBuffer buffer;
+	private final int count;
+	private final int tableSize;
+	private final int nameOffsetsStart;
+	private final int tableStart;
+	private final int parentOffsetsStart;
+	private final int parentsStart;
+	private final int childOffsetsStart;
+	private final int childrenStart;
+	private final int flagsStart;
+	private final int namesStart;
+	private final String[] names;
+
+	private MappedInheritanceGraph(ByteBuffer buffer) throws IOException {
+		if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+			throw new IOException("Not an inheritance graph snapshot");
+		if (buffer.getInt(4) != VERSION)
+			throw new IOException("Unsupported inheritance graph snapshot version: " + buffer.getInt(4));
+		this.buffer = buffer;
+		this.count = buffer.getInt(8);
+		this.tableSize = buffer.getInt(12);
+		int parentCount = buffer.getInt(16);
+		int childCount = buffer.getInt(20);
+		int nameBytes = buffer.getInt(24);
+		nameOffsetsStart = HEADER_SIZE;
+		tableStart = nameOffsetsStart + (count + 1) * 4;
+		parentOffsetsStart = tableStart + tableSize * 4;
+		parentsStart = parentOffsetsStart + (count + 1) * 4;
+		childOffsetsStart = parentsStart + parentCount * 4;
+		childrenStart = childOffsetsStart + (count + 1) * 4;
+		flagsStart = childrenStart + childCount * 4;
+		namesStart = flagsStart + count;
+		if (namesStart + nameBytes != buffer.limit())
+			throw new IOException("Truncated inheritance graph snapshot");
+		names = new String[count];
+	}
+
+	/**
+	 * @param path
+	 * 		Snapshot file to map.
+	 *
+	 * @return Graph backed by the mapped file.
+	 *
+	 * @throws IOException
+	 * 		When the file cannot be mapped, or is not a valid snapshot.
+	 */
+	static MappedInheritanceGraph map(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			// The mapping stays valid after the channel is closed
+			return new MappedInheritanceGraph(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * @param path
+	 * 		Snapshot file to write to.
+	 * @param parentsOf
+	 * 		Map of classes to their direct parents. May be modified concurrently.
+	 *
+	 * @throws IOException
+	 * 		When the file cannot be written.
+	 */
+	static void write(Path path, Map<String, Set<String>> parentsOf) throws IOException {
+		// Copy the graph once, so that concurrent additions cannot make the rows disagree with the header
+		Map<String, List<String>> parentRows = new LinkedHashMap<>();
+		parentsOf.forEach((child, parents) -> parentRows.put(child, new ArrayList<>(parents)));
+		// Children are the inverse of the parent rows
+		Map<String, List<String>> childRows = new LinkedHashMap<>();
+		parentRows.forEach((child, parents) -> {
+			for (String parent : parents)
+				childRows.computeIfAbsent(parent, k -> new ArrayList<>()).add(child);
+		});
+		// Assign indices to every known name
+		Map<String, Integer> ids = new LinkedHashMap<>();
+		for (Map.Entry<String, List<String>> e : parentRows.entrySet()) {
+			ids.putIfAbsent(e.getKey(), ids.size());
+			for (String parent : e.getValue())
+				ids.putIfAbsent(parent, ids.size());
+		}
+		int count = ids.size();
+		String[] names = ids.keySet().toArray(new String[0]);
+		byte[][] encoded = new byte[count][];
+		int nameBytes = 0;
+		for (int i = 0; i < count; i++)
+			nameBytes += (encoded[i] = names[i].getBytes(StandardCharsets.UTF_8)).length;
+		// Load factor of at most one half
+		int tableSize = Integer.highestOneBit(Math.max(1, count) * 2 - 1) << 1;
+		int[] table = new int[tableSize];
+		for (int i = 0; i < count; i++) {
+			int slot = names[i].hashCode() & (tableSize - 1);
+			while (table[slot] != 0)
+				slot = (slot + 1) & (tableSize - 1);
+			table[slot] = i + 1;
+		}
+		int parentCount = 0;
+		int childCount = 0;
+		for (List<String> row : parentRows.values())
+			parentCount += row.size();
+		for (List<String> row : childRows.values())
+			childCount += row.size();
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(count);
+			out.writeInt(tableSize);
+			out.writeInt(parentCount);
+			out.writeInt(childCount);
+			out.writeInt(nameBytes);
+			int offset = 0;
+			for (int i = 0; i < count; i++) {
+				out.writeInt(offset);
+				offset += encoded[i].length;
+			}
+			out.writeInt(offset);
+			for (int slot : table)
+				out.writeInt(slot);
+			writeRows(out, names, ids, parentRows);
+			writeRows(out, names, ids, childRows);
+			for (String name : names) {
+				int flags = 0;
+				if (parentRows.containsKey(name))
+					flags |= FLAG_PARENTS;
+				if (childRows.containsKey(name))
+					flags |= FLAG_CHILDREN;
+				out.writeByte(flags);
+			}
+			for (byte[] name : encoded)
+				out.write(name);
+		}
+	}
+
+	private static void writeRows(DataOutputStream out, String[] names, Map<String, Integer> ids,
+								  Map<String, List<String>> rows) throws IOException {
+		int offset = 0;
+		for (String name : names) {
+			out.writeInt(offset);
+			offset += rows.getOrDefault(name, Collections.emptyList()).size();
+		}
+		out.writeInt(offset);
+		for (String name : names)
+			for (String value : rows.getOrDefault(name, Collections.emptyList()))
+				out.writeInt(ids.get(value));
+	}
+
+	/**
+	 * @param name
+	 * 		Internal name of class.
+	 *
+	 * @return Index of the class in the snapshot, or {@code -1} if it is not known.
+	 */
+	private int indexOf(String name) {
+		if (name == null)
+			return -1;
+		byte[] bytes = null;
+		int slot = name.hashCode() & (tableSize - 1);
+		int id;
+		while ((id = buffer.getInt(tableStart + slot * 4)) != 0) {
+			int index = id - 1;
+			if (bytes == null)
+				bytes = name.getBytes(StandardCharsets.UTF_8);
+			if (nameEquals(index, bytes))
+				return index;
+			slot = (slot + 1) & (tableSize - 1);
+		}
+		return -1;
+	}
+
+	private boolean nameEquals(int index, byte[] bytes) {
+		int start = buffer.getInt(nameOffsetsStart + index * 4);
+		int end = buffer.getInt(nameOffsetsStart + (index + 1) * 4);
+		if (end - start != bytes.length)
+			return false;
+		for (int i = 0; i < bytes.length; i++)
+			if (buffer.get(namesStart + start + i) != bytes[i])
+				return false;
+		return true;
+	}
+
+	private String nameOf(int index) {
+		String name = names[index];
+		if (name == null) {
+			int start = buffer.getInt(nameOffsetsStart + index * 4);
+			int end = buffer.getInt(nameOffsetsStart + (index + 1) * 4);
+			byte[] bytes = new byte[end - start];
+			for (int i = 0; i < bytes.length; i++)
+				bytes[i] = buffer.get(namesStart + start + i);
+			names[index] = name = new String(bytes, StandardCharsets.UTF_8);
+		}
+		return name;
+	}
+
+	private Set<String> row(int offsetsStart, int valuesStart, int index) {
+		int start = buffer.getInt(offsetsStart + index * 4);
+		int end = buffer.getInt(offsetsStart + (index + 1) * 4);
+		if (start == end)
+			return Collections.emptySet();
+		Set<String> set = new HashSet<>();
+		for (int i = start; i < end; i++)
+			set.add(nameOf(buffer.getInt(valuesStart + i * 4)));
+		return Collections.unmodifiableSet(set);
+	}
+
+	private boolean hasFlag(String name, int flag) {
+		int index = indexOf(name);
+		return index >= 0 && (buffer.get(flagsStart + index) & flag) != 0;
+	}
+
+	/**
+	 * @return Number of classes in the snapshot, including parents that have no lookup of their own.
+	 */
+	public int size() {
+		return count;
+	}
+
+	@Override
+	public InheritanceGraph copy() {
+		InheritanceGraph copy = new InheritanceGraph();
+		for (int i = 0; i < count; i++)
+			if ((buffer.get(flagsStart + i) & FLAG_PARENTS) != 0)
+				copy.add(nameOf(i), new HashSet<>(row(parentOffsetsStart, parentsStart, i)));
+		return copy;
+	}
+
+	@Override
+	public CompactInheritanceGraph compact() {
+		return copy().compact();
+	}
+
+	@Override
+	public void save(Path path) throws IOException {
+		ByteBuffer content = buffer.duplicate();
+		content.clear();
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (content.hasRemaining())
+				channel.write(content);
+		}
+	}
+
+	@Override
+	public void add(String child, Set<String> parents) {
+		throw new UnsupportedOperationException("Mapped inheritance graphs are read-only, use 'copy()' first");
+	}
+
+	@Override
+	public void replace(String child, Set<String> parents) {
+		throw new UnsupportedOperationException("Mapped inheritance graphs are read-only, use 'copy()' first");
+	}
+
+	@Override
+	public boolean remove(String child) {
+		throw new UnsupportedOperationException("Mapped inheritance graphs are read-only, use 'copy()' first");
+	}
+
+	@Override
+	public boolean addModulePath(int parallelism) {
+		// Would otherwise be reported as an unavailable module path
+		throw new UnsupportedOperationException("Mapped inheritance graphs are read-only, use 'copy()' first");
+	}
+
+	@Override
+	public boolean addModulePathLazily() {
+		throw new UnsupportedOperationException("Mapped inheritance graphs are read-only, use 'copy()' first");
+	}
+
+	@Override
+	public boolean hasParentLookup(String name) {
+		return hasFlag(name, FLAG_PARENTS);
+	}
+
+	@Override
+	public boolean hasChildrenLookup(String name) {
+		return hasFlag(name, FLAG_CHILDREN);
+	}
+
+	@Override
+	public Set<String> getParents(String name) {
+		int index = indexOf(name);
+		if (index < 0)
+			return Collections.emptySet();
+		return row(parentOffsetsStart, parentsStart, index);
+	}
+
+	@Override
+	public Set<String> getChildren(String name) {
+		int index = indexOf(name);
+		if (index < 0)
+			return Collections.emptySet();
+		return row(childOffsetsStart, childrenStart, index);
+	}
+
+	@Override
+	public String convertToString() {
+		return copy().convertToString();
+	}
+}
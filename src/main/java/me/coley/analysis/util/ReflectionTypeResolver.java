@@ -0,0 +1,83 @@
+package me.coley.analysis.util;
+
+import me.coley.analysis.TypeResolver;
+import org.objectweb.asm.Type;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Type resolver that checks assignability by loading classes through reflection.
+ * Common types are only resolved for equal types, otherwise {@code Object} or {@code Exception} is used.
+ * <br>
+ * Loaded classes and names that failed to load are both cached, so a class is only looked up once,
+ * and the results of {@link #isAssignableFrom(Type, Type)} are memoized per pair of types.
+ * The resolver can be shared between analyzers on different threads.
+ *
+ * @author Matt Coley
+ */
+public class ReflectionTypeResolver implements TypeResolver {
+	private static final int DEFAULT_CACHE_SIZE = 4096;
+	private final Map<String, Optional<Class<?>>> classes = new ConcurrentHashMap<>();
+	private final TypePairCache<Boolean> assignableCache;
+	private final ClassLoader loader;
+
+	/**
+	 * Create a resolver using the system class loader.
+	 */
+	public ReflectionTypeResolver() {
+		this(ClassLoader.getSystemClassLoader());
+	}
+
+	/**
+	 * @param loader
+	 * 		Loader to look up classes with.
+	 */
+	public ReflectionTypeResolver(ClassLoader loader) {
+		this.loader = loader;
+		assignableCache = new TypePairCache<>(DEFAULT_CACHE_SIZE, this::computeAssignable);
+	}
+
+	@Override
+	public boolean isAssignableFrom(Type first, Type second) {
+		return assignableCache.get(first, second);
+	}
+
+	@Override
+	public Type common(Type type1, Type type2) {
+		return type1.equals(type2) ? type1 : TypeUtil.OBJECT_TYPE;
+	}
+
+	@Override
+	public Type commonException(Type type1, Type type2) {
+		return type1.equals(type2) ? type1 : TypeUtil.EXCEPTION_TYPE;
+	}
+
+	private boolean computeAssignable(Type first, Type second) {
+		Class<?> clsParent = lookup(first.getClassName());
+		if (clsParent == null)
+			return false;
+		Class<?> clsChild = lookup(second.getClassName());
+		return clsChild != null && clsParent.isAssignableFrom(clsChild);
+	}
+
+	/**
+	 * @param name
+	 * 		Class name.
+	 *
+	 * @return Class of the name, or {@code null} if it cannot be loaded.
+	 */
+	private Class<?> lookup(String name) {
+		Optional<Class<?>> cls = classes.get(name);
+		if (cls == null) {
+			try {
+				cls = Optional.of(Class.forName(name, false, loader));
+			} catch (Throwable t) {
+				cls = Optional.empty();
+			}
+			classes.put(name, cls);
+		}
+		return cls.orElse(null);
+	}
+}
@@ -0,0 +1,144 @@
+package me.coley.analysis.util;
+
+import org.objectweb.asm.Type;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of parsed {@link Type} instances, keyed by descriptor or internal name.
+ * The same descriptors show up at every call site and on every pass over a loop,
+ * so parsing each of them once avoids creating many identical types during analysis.
+ * Each cache is bounded, once full it is cleared and filled again.
+ * Safe to use from multiple threads.
+ * <br>
+ * Types are immutable, but the arrays returned by {@link #getArgumentTypes(String)} are shared
+ * and must not be modified.
+ *
+ * @author Matt Coley
+ */
+public class TypeCache {
+	/**
+	 * Cache shared by default between all interpreters.
+	 */
+	public static final TypeCache SHARED = new TypeCache();
+	private static final int DEFAULT_LIMIT = 8192;
+	private final Map<String, Type> types = new ConcurrentHashMap<>();
+	private final Map<String, Type> objectTypes = new ConcurrentHashMap<>();
+	private final Map<String, Type> methodTypes = new ConcurrentHashMap<>();
+	private final Map<String, Type[]> argumentTypes = new ConcurrentHashMap<>();
+	private final Map<String, Type> returnTypes = new ConcurrentHashMap<>();
+	private final Map<Type, Type> arrayTypes = new ConcurrentHashMap<>();
+	private final Map<Type, Type> componentTypes = new ConcurrentHashMap<>();
+	private final int limit;
+
+	/**
+	 * Create a cache with the default size.
+	 */
+	public TypeCache() {
+		this(DEFAULT_LIMIT);
+	}
+
+	/**
+	 * @param limit
+	 * 		Maximum number of entries to remember per kind of lookup.
+	 */
+	public TypeCache(int limit) {
+		this.limit = limit;
+	}
+
+	/**
+	 * @param desc
+	 * 		Field or class descriptor.
+	 *
+	 * @return Type of the descriptor.
+	 */
+	public Type getType(String desc) {
+		return lookup(types, desc, Type::getType);
+	}
+
+	/**
+	 * @param internalName
+	 * 		Internal name of a class, or descriptor of an array.
+	 *
+	 * @return Type of the class or array.
+	 */
+	public Type getObjectType(String internalName) {
+		return lookup(objectTypes, internalName, Type::getObjectType);
+	}
+
+	/**
+	 * @param desc
+	 * 		Method descriptor.
+	 *
+	 * @return Method type of the descriptor.
+	 */
+	public Type getMethodType(String desc) {
+		return lookup(methodTypes, desc, Type::getMethodType);
+	}
+
+	/**
+	 * @param desc
+	 * 		Method descriptor.
+	 *
+	 * @return Argument types of the descriptor. The array is shared and must not be modified.
+	 */
+	public Type[] getArgumentTypes(String desc) {
+		return lookup(argumentTypes, desc, Type::getArgumentTypes);
+	}
+
+	/**
+	 * @param desc
+	 * 		Method descriptor.
+	 *
+	 * @return Return type of the descriptor.
+	 */
+	public Type getReturnType(String desc) {
+		return lookup(returnTypes, desc, Type::getReturnType);
+	}
+
+	/**
+	 * @param element
+	 * 		Some type.
+	 *
+	 * @return Type of a one dimensional array holding the given type.
+	 */
+	public Type getArrayType(Type element) {
+		return lookup(arrayTypes, element, e -> Type.getType("[" + e.getDescriptor()));
+	}
+
+	/**
+	 * @param array
+	 * 		Some array type.
+	 *
+	 * @return Type of the array's components, one dimension less than the given type.
+	 */
+	public Type getComponentType(Type array) {
+		return lookup(componentTypes, array, a -> Type.getType(a.getDescriptor().substring(1)));
+	}
+
+	/**
+	 * Forget all cached types.
+	 */
+	public void clear() {
+		types.clear();
+		objectTypes.clear();
+		methodTypes.clear();
+		argumentTypes.clear();
+		returnTypes.clear();
+		arrayTypes.clear();
+		componentTypes.clear();
+	}
+
+	private <K, V> V lookup(Map<K, V> cache, K key, Function<K, V> parser) {
+		V value = cache.get(key);
+		if (value == null) {
+			value = parser.apply(key);
+			if (cache.size() >= limit)
+				cache.clear();
+			cache.put(key, value);
+		}
+		return value;
+	}
+}
@@ -0,0 +1,90 @@
+package me.coley.analysis.util;
+
+import org.objectweb.asm.Type;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * Bounded memo of results for ordered pairs of types. Once full the cache is cleared and filled again.
+ * Safe to use from multiple threads.
+ *
+ * @param <R>
+ * 		Result type.
+ *
+ * @author Matt Coley
+ */
+final class TypePairCache<R> {
+	private final Map<Pair, R> cache = new ConcurrentHashMap<>();
+	private final int limit;
+	private final BiFunction<Type, Type, R> function;
+
+	/**
+	 * @param limit
+	 * 		Maximum number of pairs to remember.
+	 * @param function
+	 * 		Function computing the result of a pair.
+	 */
+	TypePairCache(int limit, BiFunction<Type, Type, R> function) {
+		this.limit = limit;
+		this.function = function;
+	}
+
+	/**
+	 * @param first
+	 * 		First type.
+	 * @param second
+	 * 		Second type.
+	 *
+	 * @return Memoized or computed result of the pair.
+	 */
+	R get(Type first, Type second) {
+		Pair key = new Pair(first, second);
+		R result = cache.get(key);
+		if (result == null) {
+			result = function.apply(first, second);
+			if (cache.size() >= limit)
+				cache.clear();
+			cache.put(key, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Forget all results.
+	 */
+	void clear() {
+		cache.clear();
+	}
+
+	/**
+	 * Ordered pair of types.
+	 */
+	private static final class Pair {
+		private final Type first;
+		private final Type second;
+		private final int hash;
+
+		private Pair(Type first, Type second) {
+			this.first = first;
+			this.second = second;
+			this.hash = 31 * first.hashCode() + second.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o)
+				return true;
+			if (!(o instanceof Pair))
+				return false;
+			Pair other = (Pair) o;
+			return hash == other.hash && first.equals(other.first) && second.equals(other.second);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
@@ -6,8 +6,9 @@ import me.coley.analysis.value.NullConstantValue;
 import me.coley.analysis.value.UninitializedValue;
 import org.objectweb.asm.Type;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Utilities for ASM's {@link Type} class <i>(And some additional descriptor cases)</i>
@@ -15,9 +16,12 @@ import java.util.List;
  * @author Matt Coley
  */
 public class TypeUtil {
-	private static final List<Integer> SORT_ORDER = new ArrayList<>();
+	private static final int[] PROMOTION_INDEX = new int[Type.METHOD + 1];
+	private static final int ELEMENT_TYPES_LIMIT = 1024;
+	private static final Map<Type, Type> ELEMENT_TYPES = new ConcurrentHashMap<>();
 	public static final Type OBJECT_TYPE = Type.getObjectType("java/lang/Object");
 	public static final Type EXCEPTION_TYPE = Type.getObjectType("java/lang/Exception");
+	public static final Type THROWABLE_TYPE = Type.getObjectType("java/lang/Throwable");
 	public static final Type BOOLEAN_ARRAY_TYPE = Type.getType("[Z");
 	public static final Type CHAR_ARRAY_TYPE = Type.getType("[C");
 	public static final Type BYTE_ARRAY_TYPE = Type.getType("[B");
@@ -26,6 +30,7 @@ public class TypeUtil {
 	public static final Type FLOAT_ARRAY_TYPE = Type.getType("[F");
 	public static final Type DOUBLE_ARRAY_TYPE = Type.getType("[D");
 	public static final Type LONG_ARRAY_TYPE = Type.getType("[J");
+	public static final Type OBJECT_ARRAY_TYPE = Type.getType("[Ljava/lang/Object;");
 
 	/**
 	 * @param desc
@@ -95,7 +100,9 @@ public class TypeUtil {
 	 * @return Promotion order.
 	 */
 	public static int getPromotionIndex(int sort) {
-		return SORT_ORDER.indexOf(sort);
+		if (sort < 0 || sort >= PROMOTION_INDEX.length)
+			return -1;
+		return PROMOTION_INDEX[sort];
 	}
 
 	/**
@@ -153,54 +160,68 @@ public class TypeUtil {
 	 */
 	public static boolean isSubTypeOf(TypeResolver typeResolver, Type child, Type parent) {
 		// Can't handle null type
-		if (child == null)
+		if (child == null || parent == null)
 			return false;
 		// Simple equality check
 		if (child.equals(parent))
 			return true;
+		int childSort = child.getSort();
+		int parentSort = parent.getSort();
 		// Look at array element type
-		boolean bothArrays = child.getSort() == Type.ARRAY && parent.getSort() == Type.ARRAY;
-		if (bothArrays) {
+		if (childSort == Type.ARRAY && parentSort == Type.ARRAY) {
 			// TODO: With usage cases of "isSubTypeOf(...)" should we just check the element types are equals?
 			//  - Or should sub-typing with array element types be used like it currently is?
-			boolean dimsNe = child.getDimensions() != parent.getDimensions();
-
-			int minDims = Math.min(child.getDimensions(), parent.getDimensions());
-			// shitty hack
-			child = Type.getType(child.getDescriptor().substring(minDims));
-			parent = Type.getType(parent.getDescriptor().substring(minDims));
-
-			if (dimsNe) {
-				// dimensions dont match and parent sort isn't Object, this won't work
-				if (!parent.equals(TypeUtil.OBJECT_TYPE)) return false;
-			}
+			int childDims = child.getDimensions();
+			int parentDims = parent.getDimensions();
+			// Dimensions don't match, only works when the extra child dimensions can be lumped into an object
+			if (childDims != parentDims)
+				return childDims > parentDims && getElementType(parent).equals(OBJECT_TYPE);
+			child = getElementType(child);
+			parent = getElementType(parent);
+			childSort = child.getSort();
+			parentSort = parent.getSort();
 		}
-		// Null check in case
-		if (parent == null)
-			return false;
 		// Treat lesser primitives as integers.
 		//  - Because of boolean consts are ICONST_0/ICONST_1
 		//  - Short parameters take the stack value of BIPUSH (int)
-		if (parent.getSort() >= Type.BOOLEAN && parent.getSort() <= Type.INT)
-			parent = Type.INT_TYPE;
+		if (parentSort >= Type.BOOLEAN && parentSort <= Type.INT)
+			parentSort = Type.INT;
 		// Check for primitives
 		//  - ASM sorts are in a specific order
 		//  - If the expected sort is a larger type (greater sort) then the given type can
 		//    be assumed to be compatible.
-		if (isPrimitive(parent) && isPrimitive(child))
-			return parent.getSort() >= child.getSort();
+		boolean childPrimitive = childSort < Type.ARRAY;
+		boolean parentPrimitive = parentSort < Type.ARRAY;
+		if (childPrimitive || parentPrimitive)
+			return childPrimitive && parentPrimitive && parentSort >= childSort;
 		// Use a simplified check if the expected type is just "Object"
 		//  - Most things can be lumped into an object
-		if (!isPrimitive(child) && parent.getDescriptor().equals("Ljava/lang/Object;"))
+		if (parent.equals(OBJECT_TYPE))
 			return true;
 		// Check if types are compatible
-		if (child.getSort() == parent.getSort()) {
-			AbstractValue host = AbstractValue.ofDefault(null, typeResolver, parent);
-			return host != null && host.canMerge(AbstractValue.ofDefault(null, typeResolver, child));
-		}
+		if (childSort == Type.OBJECT && parentSort == Type.OBJECT)
+			return child.equals(parent) || typeResolver.isAssignableFrom(parent, child);
 		return false;
 	}
 
+	/**
+	 * @param array
+	 * 		Some array type.
+	 *
+	 * @return Element type of the array. Recently used element types are cached,
+	 * so repeated lookups do not create new types.
+	 */
+	private static Type getElementType(Type array) {
+		Type element = ELEMENT_TYPES.get(array);
+		if (element == null) {
+			if (ELEMENT_TYPES.size() >= ELEMENT_TYPES_LIMIT)
+				ELEMENT_TYPES.clear();
+			element = array.getElementType();
+			ELEMENT_TYPES.put(array, element);
+		}
+		return element;
+	}
+
 	/**
 	 * @param type
 	 * 		Some type.
@@ -212,23 +233,24 @@ public class TypeUtil {
 	}
 
 	static {
-		// 0
-		SORT_ORDER.add(Type.VOID);
-		// 1
-		SORT_ORDER.add(Type.BOOLEAN);
-		// 8
-		SORT_ORDER.add(Type.BYTE);
-		// 16
-		SORT_ORDER.add(Type.SHORT);
-		SORT_ORDER.add(Type.CHAR);
-		// 32
-		SORT_ORDER.add(Type.INT);
-		SORT_ORDER.add(Type.FLOAT);
-		// 64
-		SORT_ORDER.add(Type.DOUBLE);
-		SORT_ORDER.add(Type.LONG);
-		// ?
-		SORT_ORDER.add(Type.ARRAY);
-		SORT_ORDER.add(Type.OBJECT);
+		Arrays.fill(PROMOTION_INDEX, -1);
+		int[] order = {
+				// 0
+				Type.VOID,
+				// 1
+				Type.BOOLEAN,
+				// 8
+				Type.BYTE,
+				// 16
+				Type.SHORT, Type.CHAR,
+				// 32
+				Type.INT, Type.FLOAT,
+				// 64
+				Type.DOUBLE, Type.LONG,
+				// ?
+				Type.ARRAY, Type.OBJECT
+		};
+		for (int i = 0; i < order.length; i++)
+			PROMOTION_INDEX[order[i]] = i;
 	}
 }
@@ -1,8 +1,10 @@
 package me.coley.analysis.value;
 
 import me.coley.analysis.TypeResolver;
-import me.coley.analysis.util.CollectUtils;
 import me.coley.analysis.util.TypeUtil;
+import me.coley.analysis.value.provenance.ListProvenance;
+import me.coley.analysis.value.provenance.NoProvenance;
+import me.coley.analysis.value.provenance.Provenance;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.AbstractInsnNode;
@@ -11,8 +13,6 @@ import org.objectweb.asm.tree.analysis.Value;
 
 import java.util.*;
 
-import static me.coley.analysis.util.CollectUtils.add;
-
 /**
  * Value wrapper recording the type and value.
  *
@@ -21,19 +21,23 @@ import static me.coley.analysis.util.CollectUtils.add;
 public abstract class AbstractValue implements Value {
 	protected final Type type;
 	protected final Object value;
-	protected final List<AbstractInsnNode> insns;
+	protected Provenance provenance;
 	private JumpInsnNode nullCheck;
 	private AbstractValue copySource;
 
 	protected AbstractValue(AbstractInsnNode insn, Type type, final Object value) {
-		this(insn == null ? new ArrayList<>() : CollectUtils.of(insn), type, value);
+		this(ListProvenance.of(insn), type, value);
 	}
 
 	protected AbstractValue(List<AbstractInsnNode> insns, Type type, final Object value) {
+		this(ListProvenance.of(insns), type, value);
+	}
+
+	protected AbstractValue(Provenance provenance, Type type, final Object value) {
 		// Set contributing insns
-		if (insns == null)
-			insns = new ArrayList<>();
-		this.insns = insns;
+		if (provenance == null)
+			provenance = ListProvenance.EMPTY;
+		this.provenance = provenance;
 		// Validate type must exist if value given
 		if (type == null && value != null)
 			throw new IllegalStateException("Analyzer value wrapper was given a value but no type information");
@@ -44,7 +48,29 @@ public abstract class AbstractValue implements Value {
 		this.value = value;
 	}
 
-	protected abstract AbstractValue create(List<AbstractInsnNode> collection);
+	/**
+	 * @param insns
+	 * 		Instructions of the copy.
+	 *
+	 * @return Copy of the current value with the given instructions.
+	 *
+	 * @deprecated Override {@link #create(Provenance)} instead, which keeps the provenance representation
+	 * chosen by the interpreter. Values only overriding this method fall back to list provenance on copies.
+	 */
+	@Deprecated
+	protected AbstractValue create(List<AbstractInsnNode> insns) {
+		throw new UnsupportedOperationException(getClass().getName() + " does not override create(Provenance)");
+	}
+
+	/**
+	 * @param provenance
+	 * 		Provenance of the copy.
+	 *
+	 * @return Copy of the current value with the given provenance.
+	 */
+	protected AbstractValue create(Provenance provenance) {
+		return create(provenance.getInsns());
+	}
 
 	/**
 	 * @param insn
@@ -91,10 +117,13 @@ public abstract class AbstractValue implements Value {
 	 * 		Inferred self type.
 	 *
 	 * @return Copy of current value, with additional instruction added.
+	 * Primitives without tracked provenance have nothing to add, so they yield themselves.
 	 */
 	@SuppressWarnings("unchecked")
 	public final <A extends AbstractValue> A copy(AbstractInsnNode insn) {
-		AbstractValue copy = create(add(getInsns(), insn));
+		if (provenance == NoProvenance.INSTANCE && isPrimitive())
+			return (A) this;
+		AbstractValue copy = create(provenance.derive(insn));
 		copy.setNullCheckedBy(getNullCheck());
 		copy.copySource = this;
 		return (A) copy;
@@ -173,7 +202,14 @@ public abstract class AbstractValue implements Value {
 	 * @return Instructions that contributed to the current value.
 	 */
 	public List<AbstractInsnNode> getInsns() {
-		return Collections.unmodifiableList(insns);
+		return provenance.getInsns();
+	}
+
+	/**
+	 * @return Provenance of the instructions that contributed to the current value.
+	 */
+	public Provenance getProvenance() {
+		return provenance;
 	}
 
 	/**
@@ -181,8 +217,7 @@ public abstract class AbstractValue implements Value {
 	 * 		Single instruction that contributes.
 	 */
 	public void addContributing(AbstractInsnNode contributing) {
-		if (!insns.contains(contributing))
-			insns.add(contributing);
+		provenance = provenance.add(contributing);
 	}
 
 	/**
@@ -190,9 +225,16 @@ public abstract class AbstractValue implements Value {
 	 * 		Instructions that contribute.
 	 */
 	public void addContributing(Collection<AbstractInsnNode> contributing) {
-		contributing = new ArrayList<>(contributing);
-		contributing.removeAll(insns);
-		insns.addAll(contributing);
+		for (AbstractInsnNode insn : contributing)
+			provenance = provenance.add(insn);
+	}
+
+	/**
+	 * @param contributing
+	 * 		Provenance of instructions that contribute.
+	 */
+	public void addContributing(Provenance contributing) {
+		provenance = provenance.combine(contributing);
 	}
 
 	/**
@@ -225,6 +267,7 @@ public abstract class AbstractValue implements Value {
 	public int hashCode() {
 		if (type == null)
 			return 0;
+		Object value = getValue();
 		if (value == null)
 			return type.hashCode();
 		return Objects.hash(type.getDescriptor(), value);
@@ -244,7 +287,7 @@ public abstract class AbstractValue implements Value {
 		else if (isNull())
 			return "<" + type + ":NULL>";
 		else if (isValueResolved())
-			return "<" + type + ":" + value + ">";
+			return "<" + type + ":" + getValue() + ">";
 		else
 			return "<" + type + ">";
 	}
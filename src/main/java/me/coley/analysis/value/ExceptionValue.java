@@ -1,6 +1,7 @@
 package me.coley.analysis.value;
 
 import me.coley.analysis.TypeResolver;
+import me.coley.analysis.value.provenance.Provenance;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.AbstractInsnNode;
 
@@ -14,6 +15,10 @@ public class ExceptionValue extends VirtualValue {
 		super(insn, type, value, typeResolver);
 	}
 
+	protected ExceptionValue(Provenance provenance, Type type, Object value, TypeResolver typeResolver) {
+		super(provenance, type, value, typeResolver);
+	}
+
 	/**
 	 * @param handler The label where this exception spawns from.
 	 * @param typeResolver Type resolver for comparison against other types.
@@ -23,4 +28,14 @@ public class ExceptionValue extends VirtualValue {
 	public static AbstractValue ofHandledException(AbstractInsnNode handler, TypeResolver typeResolver, Type exceptionType) {
 		return new ExceptionValue(handler, exceptionType, exceptionType, typeResolver);
 	}
+
+	/**
+	 * @param handler The provenance of the label where this exception spawns from.
+	 * @param typeResolver Type resolver for comparison against other types.
+	 * @param exceptionType Type to virtualize.
+	 * @return Virtual exception value of type.
+	 */
+	public static AbstractValue ofHandledException(Provenance handler, TypeResolver typeResolver, Type exceptionType) {
+		return new ExceptionValue(handler, exceptionType, exceptionType, typeResolver);
+	}
 }
@@ -1,6 +1,7 @@
 package me.coley.analysis.value;
 
 import me.coley.analysis.util.TypeUtil;
+import me.coley.analysis.value.provenance.Provenance;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.AbstractInsnNode;
 
@@ -22,6 +23,10 @@ public class NullConstantValue extends AbstractValue {
 		super(insns, NULL_VALUE_TYPE, null);
 	}
 
+	protected NullConstantValue(Provenance provenance) {
+		super(provenance, NULL_VALUE_TYPE, null);
+	}
+
 	/**
 	 * @param insn
 	 * 		Instruction of the value.
@@ -30,9 +35,17 @@ public class NullConstantValue extends AbstractValue {
 	 */
 	public static NullConstantValue newNull(AbstractInsnNode insn) { return new NullConstantValue(insn); }
 
+	/**
+	 * @param provenance
+	 * 		Instructions of the value.
+	 *
+	 * @return Null constant value.
+	 */
+	public static NullConstantValue newNull(Provenance provenance) { return new NullConstantValue(provenance); }
+
 	@Override
-	protected NullConstantValue create(List<AbstractInsnNode> collection) {
-		return new NullConstantValue(collection);
+	protected NullConstantValue create(Provenance provenance) {
+		return new NullConstantValue(provenance);
 	}
 
 	@Override
@@ -1,19 +1,38 @@
 package me.coley.analysis.value;
 
 import me.coley.analysis.util.TypeUtil;
+import me.coley.analysis.value.provenance.ListProvenance;
+import me.coley.analysis.value.provenance.Provenance;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.AbstractInsnNode;
 
 import java.util.List;
 
-import static me.coley.analysis.util.CollectUtils.*;
-
 /**
  * Value wrapper for primitives.
+ * <br>
+ * Known values are stored unboxed as raw bits, interpreted by the sort of the {@link #getType() type}.
+ * Floats and doubles are stored with {@link Float#floatToIntBits(float)} and {@link Double#doubleToLongBits(double)}.
+ * The boxed form is only created when requested by {@link #getValue()}.
  *
  * @author Matt Coley
  */
 public class PrimitiveValue extends AbstractValue {
+	// Operations, those after SHL only apply to int/long
+	private static final int ADD = 0;
+	private static final int SUB = 1;
+	private static final int MUL = 2;
+	private static final int DIV = 3;
+	private static final int REM = 4;
+	private static final int SHL = 5;
+	private static final int SHR = 6;
+	private static final int USHR = 7;
+	private static final int AND = 8;
+	private static final int OR = 9;
+	private static final int XOR = 10;
+	private final boolean hasBits;
+	private final long bits;
+
 	/**
 	 * Create primitive when the value is given.
 	 *
@@ -25,7 +44,9 @@ public class PrimitiveValue extends AbstractValue {
 	 * 		Value of primitive.
 	 */
 	protected PrimitiveValue(AbstractInsnNode insn, Type type, Object value) {
-		super(insn, type, value);
+		super(insn, type, isUnboxable(type, value) ? null : value);
+		this.hasBits = isUnboxable(type, value);
+		this.bits = hasBits ? unbox(this.type, value) : 0;
 	}
 
 	/**
@@ -38,6 +59,8 @@ public class PrimitiveValue extends AbstractValue {
 	 */
 	public PrimitiveValue(AbstractInsnNode insn, Type type) {
 		super(insn, type, null);
+		this.hasBits = false;
+		this.bits = 0;
 	}
 
 	/**
@@ -51,7 +74,9 @@ public class PrimitiveValue extends AbstractValue {
 	 * 		Value of primitive.
 	 */
 	public PrimitiveValue(List<AbstractInsnNode> insns, Type type, Object value) {
-		super(insns, type, value);
+		super(insns, type, isUnboxable(type, value) ? null : value);
+		this.hasBits = isUnboxable(type, value);
+		this.bits = hasBits ? unbox(this.type, value) : 0;
 	}
 
 	/**
@@ -64,6 +89,84 @@ public class PrimitiveValue extends AbstractValue {
 	 */
 	protected PrimitiveValue(List<AbstractInsnNode> insns, Type type) {
 		super(insns, type, null);
+		this.hasBits = false;
+		this.bits = 0;
+	}
+
+	/**
+	 * Create primitive when the value may not be given.
+	 *
+	 * @param provenance
+	 * 		The instructions of this value.
+	 * @param type
+	 * 		Type of primitive.
+	 * @param value
+	 * 		Value of primitive.
+	 */
+	public PrimitiveValue(Provenance provenance, Type type, Object value) {
+		super(provenance, type, isUnboxable(type, value) ? null : value);
+		this.hasBits = isUnboxable(type, value);
+		this.bits = hasBits ? unbox(this.type, value) : 0;
+	}
+
+	/**
+	 * Create primitive when the value is not given.
+	 *
+	 * @param provenance
+	 * 		The instructions of this value.
+	 * @param type
+	 * 		Type of primitive.
+	 */
+	protected PrimitiveValue(Provenance provenance, Type type) {
+		super(provenance, type, null);
+		this.hasBits = false;
+		this.bits = 0;
+	}
+
+	/**
+	 * Create primitive from raw bits.
+	 *
+	 * @param insn
+	 * 		The instruction of this value.
+	 * @param type
+	 * 		Type of primitive.
+	 * @param bits
+	 * 		Raw bits of the value.
+	 */
+	private PrimitiveValue(AbstractInsnNode insn, Type type, long bits) {
+		super(insn, type, null);
+		this.hasBits = true;
+		this.bits = bits;
+	}
+
+	/**
+	 * Create primitive from raw bits.
+	 *
+	 * @param provenance
+	 * 		The instructions of this value.
+	 * @param type
+	 * 		Type of primitive.
+	 * @param bits
+	 * 		Raw bits of the value.
+	 */
+	private PrimitiveValue(Provenance provenance, Type type, long bits) {
+		super(provenance, type, null);
+		this.hasBits = true;
+		this.bits = bits;
+	}
+
+	/**
+	 * Copy constructor.
+	 *
+	 * @param provenance
+	 * 		The instructions of this value.
+	 * @param other
+	 * 		Value to copy.
+	 */
+	private PrimitiveValue(Provenance provenance, PrimitiveValue other) {
+		super(provenance, other.type, other.value);
+		this.hasBits = other.hasBits;
+		this.bits = other.bits;
 	}
 
 	/**
@@ -75,7 +178,7 @@ public class PrimitiveValue extends AbstractValue {
 	 * @return int value.
 	 */
 	public static AbstractValue ofInt(AbstractInsnNode insn, int value) {
-		return new PrimitiveValue(insn, Type.INT_TYPE, value);
+		return new PrimitiveValue(insn, Type.INT_TYPE, (long) value);
 	}
 
 	/**
@@ -87,7 +190,19 @@ public class PrimitiveValue extends AbstractValue {
 	 * @return int value.
 	 */
 	public static AbstractValue ofInt(List<AbstractInsnNode> insns, int value) {
-		return new PrimitiveValue(insns, Type.INT_TYPE, value);
+		return new PrimitiveValue(ListProvenance.of(insns), Type.INT_TYPE, (long) value);
+	}
+
+	/**
+	 * @param provenance
+	 * 		The instructions of this value.
+	 * @param value
+	 * 		Int.
+	 *
+	 * @return int value.
+	 */
+	public static AbstractValue ofInt(Provenance provenance, int value) {
+		return new PrimitiveValue(provenance, Type.INT_TYPE, (long) value);
 	}
 
 	/**
@@ -99,7 +214,7 @@ public class PrimitiveValue extends AbstractValue {
 	 * @return char value.
 	 */
 	public static AbstractValue ofChar(AbstractInsnNode insn, char value) {
-		return new PrimitiveValue(insn, Type.INT_TYPE, (int) value);
+		return new PrimitiveValue(insn, Type.INT_TYPE, (long) value);
 	}
 
 	/**
@@ -111,7 +226,7 @@ public class PrimitiveValue extends AbstractValue {
 	 * @return char value.
 	 */
 	public static AbstractValue ofChar(List<AbstractInsnNode> insns, char value) {
-		return new PrimitiveValue(insns, Type.INT_TYPE, (int) value);
+		return new PrimitiveValue(ListProvenance.of(insns), Type.INT_TYPE, (long) value);
 	}
 
 	/**
@@ -123,7 +238,7 @@ public class PrimitiveValue extends AbstractValue {
 	 * @return byte value.
 	 */
 	public static AbstractValue ofByte(AbstractInsnNode insn, byte value) {
-		return new PrimitiveValue(insn, Type.INT_TYPE, value);
+		return new PrimitiveValue(insn, Type.INT_TYPE, (long) value);
 	}
 
 	/**
@@ -135,7 +250,7 @@ public class PrimitiveValue extends AbstractValue {
 	 * @return byte value.
 	 */
 	public static AbstractValue ofByte(List<AbstractInsnNode> insns, byte value) {
-		return new PrimitiveValue(insns, Type.INT_TYPE, value);
+		return new PrimitiveValue(ListProvenance.of(insns), Type.INT_TYPE, (long) value);
 	}
 
 	/**
@@ -147,7 +262,7 @@ public class PrimitiveValue extends AbstractValue {
 	 * @return short value.
 	 */
 	public static AbstractValue ofShort(AbstractInsnNode insn, short value) {
-		return new PrimitiveValue(insn, Type.INT_TYPE, value);
+		return new PrimitiveValue(insn, Type.INT_TYPE, (long) value);
 	}
 
 	/**
@@ -159,7 +274,7 @@ public class PrimitiveValue extends AbstractValue {
 	 * @return short value.
 	 */
 	public static AbstractValue ofShort(List<AbstractInsnNode> insns, short value) {
-		return new PrimitiveValue(insns, Type.INT_TYPE, value);
+		return new PrimitiveValue(ListProvenance.of(insns), Type.INT_TYPE, (long) value);
 	}
 
 	/**
@@ -171,7 +286,7 @@ public class PrimitiveValue extends AbstractValue {
 	 * @return boolean value.
 	 */
 	public static AbstractValue ofBool(AbstractInsnNode insn, boolean value) {
-		return new PrimitiveValue(insn, Type.INT_TYPE, value ? 1 : 0);
+		return new PrimitiveValue(insn, Type.INT_TYPE, value ? 1L : 0L);
 	}
 
 	/**
@@ -183,7 +298,7 @@ public class PrimitiveValue extends AbstractValue {
 	 * @return boolean value.
 	 */
 	public static AbstractValue ofBool(List<AbstractInsnNode> insns, boolean value) {
-		return new PrimitiveValue(insns, Type.INT_TYPE, value ? 1 : 0);
+		return new PrimitiveValue(ListProvenance.of(insns), Type.INT_TYPE, value ? 1L : 0L);
 	}
 
 	/**
@@ -207,7 +322,19 @@ public class PrimitiveValue extends AbstractValue {
 	 * @return long value.
 	 */
 	public static AbstractValue ofLong(List<AbstractInsnNode> insns, long value) {
-		return new PrimitiveValue(insns, Type.LONG_TYPE, value);
+		return new PrimitiveValue(ListProvenance.of(insns), Type.LONG_TYPE, value);
+	}
+
+	/**
+	 * @param provenance
+	 * 		The instructions of this value.
+	 * @param value
+	 * 		Long.
+	 *
+	 * @return long value.
+	 */
+	public static AbstractValue ofLong(Provenance provenance, long value) {
+		return new PrimitiveValue(provenance, Type.LONG_TYPE, value);
 	}
 
 	/**
@@ -219,7 +346,7 @@ public class PrimitiveValue extends AbstractValue {
 	 * @return float value.
 	 */
 	public static AbstractValue ofFloat(AbstractInsnNode insn, float value) {
-		return new PrimitiveValue(insn, Type.FLOAT_TYPE, value);
+		return new PrimitiveValue(insn, Type.FLOAT_TYPE, (long) Float.floatToIntBits(value));
 	}
 
 	/**
@@ -231,7 +358,19 @@ public class PrimitiveValue extends AbstractValue {
 	 * @return float value.
 	 */
 	public static AbstractValue ofFloat(List<AbstractInsnNode> insns, float value) {
-		return new PrimitiveValue(insns, Type.FLOAT_TYPE, value);
+		return new PrimitiveValue(ListProvenance.of(insns), Type.FLOAT_TYPE, (long) Float.floatToIntBits(value));
+	}
+
+	/**
+	 * @param provenance
+	 * 		The instructions of this value.
+	 * @param value
+	 * 		Float.
+	 *
+	 * @return float value.
+	 */
+	public static AbstractValue ofFloat(Provenance provenance, float value) {
+		return new PrimitiveValue(provenance, Type.FLOAT_TYPE, (long) Float.floatToIntBits(value));
 	}
 
 	/**
@@ -243,7 +382,7 @@ public class PrimitiveValue extends AbstractValue {
 	 * @return double value.
 	 */
 	public static AbstractValue ofDouble(AbstractInsnNode insn, double value) {
-		return new PrimitiveValue(insn, Type.DOUBLE_TYPE, value);
+		return new PrimitiveValue(insn, Type.DOUBLE_TYPE, Double.doubleToLongBits(value));
 	}
 
 	/**
@@ -255,42 +394,114 @@ public class PrimitiveValue extends AbstractValue {
 	 * @return double value.
 	 */
 	public static AbstractValue ofDouble(List<AbstractInsnNode> insns, double value) {
-		return new PrimitiveValue(insns, Type.DOUBLE_TYPE, value);
+		return new PrimitiveValue(ListProvenance.of(insns), Type.DOUBLE_TYPE, Double.doubleToLongBits(value));
+	}
+
+	/**
+	 * @param provenance
+	 * 		The instruction of this value.
+	 * @param value
+	 * 		Double.
+	 *
+	 * @return double value.
+	 */
+	public static AbstractValue ofDouble(Provenance provenance, double value) {
+		return new PrimitiveValue(provenance, Type.DOUBLE_TYPE, Double.doubleToLongBits(value));
+	}
+
+	@Override
+	public Object getValue() {
+		if (!hasBits)
+			return value;
+		switch (getSort()) {
+			case Type.LONG:
+				return bits;
+			case Type.FLOAT:
+				return Float.intBitsToFloat((int) bits);
+			case Type.DOUBLE:
+				return Double.longBitsToDouble(bits);
+			default:
+				return (int) bits;
+		}
 	}
 
 	/**
 	 * @return Current value as boolean.
 	 */
 	public boolean getBooleanValue() {
-		return ((Number) getValue()).intValue() > 1;
+		return getIntValue() > 1;
 	}
 
 	/**
 	 * @return Current value as integer.
 	 */
 	public int getIntValue() {
-		return ((Number) getValue()).intValue();
+		if (!hasBits)
+			return ((Number) getValue()).intValue();
+		switch (getSort()) {
+			case Type.LONG:
+				return (int) bits;
+			case Type.FLOAT:
+				return (int) Float.intBitsToFloat((int) bits);
+			case Type.DOUBLE:
+				return (int) Double.longBitsToDouble(bits);
+			default:
+				return (int) bits;
+		}
 	}
 
 	/**
 	 * @return Current value as integer.
 	 */
 	public float getFloatValue() {
-		return ((Number) getValue()).floatValue();
+		if (!hasBits)
+			return ((Number) getValue()).floatValue();
+		switch (getSort()) {
+			case Type.LONG:
+				return (float) bits;
+			case Type.FLOAT:
+				return Float.intBitsToFloat((int) bits);
+			case Type.DOUBLE:
+				return (float) Double.longBitsToDouble(bits);
+			default:
+				return (float) (int) bits;
+		}
 	}
 
 	/**
 	 * @return Current value as double.
 	 */
 	public double getDoubleValue() {
-		return ((Number) getValue()).doubleValue();
+		if (!hasBits)
+			return ((Number) getValue()).doubleValue();
+		switch (getSort()) {
+			case Type.LONG:
+				return (double) bits;
+			case Type.FLOAT:
+				return Float.intBitsToFloat((int) bits);
+			case Type.DOUBLE:
+				return Double.longBitsToDouble(bits);
+			default:
+				return (int) bits;
+		}
 	}
 
 	/**
 	 * @return Current value as long.
 	 */
 	public long getLongValue() {
-		return ((Number) getValue()).longValue();
+		if (!hasBits)
+			return ((Number) getValue()).longValue();
+		switch (getSort()) {
+			case Type.LONG:
+				return bits;
+			case Type.FLOAT:
+				return (long) Float.intBitsToFloat((int) bits);
+			case Type.DOUBLE:
+				return (long) Double.longBitsToDouble(bits);
+			default:
+				return (int) bits;
+		}
 	}
 
 	/**
@@ -302,11 +513,7 @@ public class PrimitiveValue extends AbstractValue {
 	 * @return Adds this value to another.
 	 */
 	public PrimitiveValue add(AbstractInsnNode opInsn, AbstractValue other) {
-		Type common = commonMathType(type, other.type);
-		List<AbstractInsnNode> mergedInsns = combineAdd(insns, other.insns, opInsn);
-		if (isValueUnresolved() || other.isValueUnresolved())
-			return new PrimitiveValue(mergedInsns, common);
-		return new PrimitiveValue(mergedInsns, common, addN((Number) value, (Number) other.value));
+		return math(opInsn, other, ADD);
 	}
 
 	/**
@@ -318,11 +525,7 @@ public class PrimitiveValue extends AbstractValue {
 	 * @return Subtract this value by another.
 	 */
 	public PrimitiveValue sub(AbstractInsnNode opInsn, AbstractValue other) {
-		Type common = commonMathType(type, other.type);
-		List<AbstractInsnNode> mergedInsns = combineAdd(insns, other.insns, opInsn);
-		if (isValueUnresolved() || other.isValueUnresolved())
-			return new PrimitiveValue(mergedInsns, common);
-		return new PrimitiveValue(mergedInsns, common, subN((Number) value, (Number) other.value));
+		return math(opInsn, other, SUB);
 	}
 
 	/**
@@ -334,11 +537,7 @@ public class PrimitiveValue extends AbstractValue {
 	 * @return Multiply this value by another.
 	 */
 	public PrimitiveValue mul(AbstractInsnNode opInsn, AbstractValue other) {
-		Type common = commonMathType(type, other.type);
-		List<AbstractInsnNode> mergedInsns = combineAdd(insns, other.insns, opInsn);
-		if (isValueUnresolved() || other.isValueUnresolved())
-			return new PrimitiveValue(mergedInsns, common);
-		return new PrimitiveValue(mergedInsns, common, mulN((Number) value, (Number) other.value));
+		return math(opInsn, other, MUL);
 	}
 
 	/**
@@ -350,15 +549,7 @@ public class PrimitiveValue extends AbstractValue {
 	 * @return Divide this value by another.
 	 */
 	public PrimitiveValue div(AbstractInsnNode opInsn, AbstractValue other) {
-		Type common = commonMathType(type, other.type);
-		List<AbstractInsnNode> mergedInsns = combineAdd(insns, other.insns, opInsn);
-		if (isValueUnresolved() || other.isValueUnresolved())
-			return new PrimitiveValue(mergedInsns, common);
-		try {
-			return new PrimitiveValue(mergedInsns, common, divN((Number) value, (Number) other.value));
-		} catch(ArithmeticException ex) {
-			return new PrimitiveValue(mergedInsns, common);
-		}
+		return math(opInsn, other, DIV);
 	}
 
 	/**
@@ -370,15 +561,7 @@ public class PrimitiveValue extends AbstractValue {
 	 * @return Get remainder of this value by another.
 	 */
 	public PrimitiveValue rem(AbstractInsnNode opInsn, AbstractValue other) {
-		Type common = commonMathType(type, other.type);
-		List<AbstractInsnNode> mergedInsns = combineAdd(insns, other.insns, opInsn);
-		if (isValueUnresolved() || other.isValueUnresolved())
-			return new PrimitiveValue(mergedInsns, common);
-		try {
-			return new PrimitiveValue(mergedInsns, common, remN((Number) value, (Number) other.value));
-		} catch(ArithmeticException ex) {
-			return new PrimitiveValue(mergedInsns, common);
-		}
+		return math(opInsn, other, REM);
 	}
 
 	/**
@@ -390,13 +573,7 @@ public class PrimitiveValue extends AbstractValue {
 	 * @return Shift this value by another.
 	 */
 	public PrimitiveValue shl(AbstractInsnNode opInsn, AbstractValue other) {
-		Type common = commonMathType(type, other.type);
-		List<AbstractInsnNode> mergedInsns = combineAdd(insns, other.insns, opInsn);
-		if (!(common.equals(Type.INT_TYPE) || common.equals(Type.LONG_TYPE)))
-			throw new IllegalStateException("Requires int/long types");
-		if (isValueUnresolved() || other.isValueUnresolved())
-			return new PrimitiveValue(mergedInsns, common);
-		return new PrimitiveValue(mergedInsns, common, shlN((Number) value, (Number) other.value));
+		return math(opInsn, other, SHL);
 	}
 
 	/**
@@ -408,13 +585,7 @@ public class PrimitiveValue extends AbstractValue {
 	 * @return Shift this value by another.
 	 */
 	public PrimitiveValue shr(AbstractInsnNode opInsn, AbstractValue other) {
-		Type common = commonMathType(type, other.type);
-		if (!(common.equals(Type.INT_TYPE) || common.equals(Type.LONG_TYPE)))
-			throw new IllegalStateException("Requires int/long types");
-		List<AbstractInsnNode> mergedInsns = combineAdd(insns, other.insns, opInsn);
-		if (isValueUnresolved() || other.isValueUnresolved())
-			return new PrimitiveValue(mergedInsns, common);
-		return new PrimitiveValue(mergedInsns, common, shrN((Number) value, (Number) other.value));
+		return math(opInsn, other, SHR);
 	}
 
 	/**
@@ -426,13 +597,7 @@ public class PrimitiveValue extends AbstractValue {
 	 * @return Shift this value by another.
 	 */
 	public PrimitiveValue ushr(AbstractInsnNode opInsn, AbstractValue other) {
-		Type common = commonMathType(type, other.type);
-		if (!(common.equals(Type.INT_TYPE) || common.equals(Type.LONG_TYPE)))
-			throw new IllegalStateException("Requires int/long types");
-		List<AbstractInsnNode> mergedInsns = combineAdd(insns, other.insns, opInsn);
-		if (isValueUnresolved() || other.isValueUnresolved())
-			return new PrimitiveValue(mergedInsns, common);
-		return new PrimitiveValue(mergedInsns, common, ushrN((Number) value, (Number) other.value));
+		return math(opInsn, other, USHR);
 	}
 
 	/**
@@ -444,13 +609,7 @@ public class PrimitiveValue extends AbstractValue {
 	 * @return Bitwise and this and another value.
 	 */
 	public PrimitiveValue and(AbstractInsnNode opInsn, AbstractValue other) {
-		Type common = commonMathType(type, other.type);
-		if (!(common.equals(Type.INT_TYPE) || common.equals(Type.LONG_TYPE)))
-			throw new IllegalStateException("Requires int/long types");
-		List<AbstractInsnNode> mergedInsns = combineAdd(insns, other.insns, opInsn);
-		if (isValueUnresolved() || other.isValueUnresolved())
-			return new PrimitiveValue(mergedInsns, common);
-		return new PrimitiveValue(mergedInsns, common, andN((Number) value, (Number) other.value));
+		return math(opInsn, other, AND);
 	}
 
 	/**
@@ -462,15 +621,7 @@ public class PrimitiveValue extends AbstractValue {
 	 * @return Bitwise or this and another value.
 	 */
 	public PrimitiveValue or(AbstractInsnNode opInsn, AbstractValue other) {
-		Type common = commonMathType(type, other.type);
-		if (!(common.equals(Type.INT_TYPE) || common.equals(Type.LONG_TYPE)))
-			throw new IllegalStateException("Requires int/long types");
-		List<AbstractInsnNode> mergedInsns = combineAdd(insns, other.insns, opInsn);
-		if (value == null || other.value == null)
-			return new PrimitiveValue(mergedInsns, common);
-		if (value instanceof Unresolved || other.value instanceof Unresolved)
-			return new PrimitiveValue(mergedInsns, common);
-		return new PrimitiveValue(mergedInsns, common, orN((Number) value, (Number) other.value));
+		return math(opInsn, other, OR);
 	}
 
 	/**
@@ -482,18 +633,40 @@ public class PrimitiveValue extends AbstractValue {
 	 * @return Bitwise or this and another value.
 	 */
 	public PrimitiveValue xor(AbstractInsnNode opInsn, AbstractValue other) {
-		Type common = commonMathType(type, other.type);
-		if (!(common.equals(Type.INT_TYPE) || common.equals(Type.LONG_TYPE)))
+		return math(opInsn, other, XOR);
+	}
+
+	private PrimitiveValue math(AbstractInsnNode opInsn, AbstractValue other, int op) {
+		Type common = TypeUtil.commonMathType(type, other.type);
+		int sort = common.getSort();
+		if (op >= SHL && !(sort == Type.INT || sort == Type.LONG))
 			throw new IllegalStateException("Requires int/long types");
-		List<AbstractInsnNode> mergedInsns = combineAdd(insns, other.insns, opInsn);
-		if (isValueUnresolved() || other.isValueUnresolved())
+		Provenance mergedInsns = provenance.derive(other.provenance, opInsn);
+		if (isValueUnresolved() || other.isValueUnresolved() || !(other instanceof PrimitiveValue))
 			return new PrimitiveValue(mergedInsns, common);
-		return new PrimitiveValue(mergedInsns, common, xorN((Number) value, (Number) other.value));
+		PrimitiveValue pOther = (PrimitiveValue) other;
+		try {
+			switch (sort) {
+				case Type.DOUBLE:
+					return new PrimitiveValue(mergedInsns, common,
+							Double.doubleToLongBits(mathD(getDoubleValue(), pOther.getDoubleValue(), op)));
+				case Type.FLOAT:
+					return new PrimitiveValue(mergedInsns, common,
+							(long) Float.floatToIntBits(mathF(getFloatValue(), pOther.getFloatValue(), op)));
+				case Type.LONG:
+					return new PrimitiveValue(mergedInsns, common, mathJ(getLongValue(), pOther.getLongValue(), op));
+				default:
+					return new PrimitiveValue(mergedInsns, common, (long) mathI(getIntValue(), pOther.getIntValue(), op));
+			}
+		} catch (ArithmeticException ex) {
+			// Division by zero
+			return new PrimitiveValue(mergedInsns, common);
+		}
 	}
 
 	@Override
-	protected PrimitiveValue create(List<AbstractInsnNode> collection) {
-		return new PrimitiveValue(collection, getType(), getValue());
+	protected PrimitiveValue create(Provenance provenance) {
+		return new PrimitiveValue(provenance, this);
 	}
 
 	@Override
@@ -512,7 +685,7 @@ public class PrimitiveValue extends AbstractValue {
 
 	@Override
 	public boolean isValueResolved() {
-		return (value != null) && !(value instanceof Unresolved);
+		return hasBits || ((value != null) && !(value instanceof Unresolved));
 	}
 
 	@Override
@@ -533,124 +706,111 @@ public class PrimitiveValue extends AbstractValue {
 			PrimitiveValue pOther = (PrimitiveValue) other;
 			if (isValueUnresolved() || pOther.isValueUnresolved())
 				return type.equals(pOther.type);
-			return type.equals(pOther.type) && value.equals(pOther.value);
+			if (hasBits && pOther.hasBits)
+				return bits == pOther.bits && type.equals(pOther.type);
+			return type.equals(pOther.type) && getValue().equals(pOther.getValue());
 		}
 		// Other is not a primitive
 		return false;
 	}
 
+	@Override
+	public int hashCode() {
+		if (type == null)
+			return 0;
+		if (!hasBits)
+			return super.hashCode();
+		return 31 * type.hashCode() + Long.hashCode(bits);
+	}
+
 	private boolean isPromotionOf(AbstractValue other) {
 		int i1 = TypeUtil.getPromotionIndex(type.getSort());
 		int i2 = TypeUtil.getPromotionIndex(other.getType().getSort());
 		return i1 >= i2;
 	}
 
-	private static Number addN(Number a, Number b) {
-		if(a instanceof Double || b instanceof Double)
-			return a.doubleValue() + b.doubleValue();
-		else if(a instanceof Float || b instanceof Float)
-			return a.floatValue() + b.floatValue();
-		else if(a instanceof Long || b instanceof Long)
-			return a.longValue() + b.longValue();
-		else
-			return a.intValue() + b.intValue();
-	}
-
-	private static Number subN(Number a, Number b) {
-		if(a instanceof Double || b instanceof Double)
-			return a.doubleValue() - b.doubleValue();
-		else if(a instanceof Float || b instanceof Float)
-			return a.floatValue() - b.floatValue();
-		else if(a instanceof Long || b instanceof Long)
-			return a.longValue() - b.longValue();
-		else
-			return a.intValue() - b.intValue();
-	}
-
-	private static Number mulN(Number a, Number b) {
-		if(a instanceof Double || b instanceof Double)
-			return a.doubleValue() * b.doubleValue();
-		else if(a instanceof Float || b instanceof Float)
-			return a.floatValue() * b.floatValue();
-		else if(a instanceof Long || b instanceof Long)
-			return a.longValue() * b.longValue();
-		else
-			return a.intValue() * b.intValue();
-	}
-
-	private static Number divN(Number a, Number b) {
-		if(a instanceof Double || b instanceof Double)
-			return a.doubleValue() / b.doubleValue();
-		else if(a instanceof Float || b instanceof Float)
-			return a.floatValue() / b.floatValue();
-		else if(a instanceof Long || b instanceof Long)
-			return a.longValue() / b.longValue();
-		else
-			return a.intValue() / b.intValue();
-	}
-
-	private static Number remN(Number a, Number b) {
-		if(a instanceof Double || b instanceof Double)
-			return a.doubleValue() % b.doubleValue();
-		else if(a instanceof Float || b instanceof Float)
-			return a.floatValue() % b.floatValue();
-		else if(a instanceof Long || b instanceof Long)
-			return a.longValue() % b.longValue();
-		else
-			return a.intValue() % b.intValue();
-	}
-
-	private static Number shlN(Number a, Number b) {
-		if(a instanceof Long || b instanceof Long)
-			return a.longValue() << b.longValue();
-		else
-			return a.intValue() << b.intValue();
-	}
-
-	private static Number shrN(Number a, Number b) {
-		if(a instanceof Long || b instanceof Long)
-			return a.longValue() >> b.longValue();
-		else
-			return a.intValue() >> b.intValue();
-	}
-
-	private static Number ushrN(Number a, Number b) {
-		if(a instanceof Long || b instanceof Long)
-			return a.longValue() >>> b.longValue();
-		else
-			return a.intValue() >>> b.intValue();
-	}
-
-	private static Number andN(Number a, Number b) {
-		if(a instanceof Long || b instanceof Long)
-			return a.longValue() & b.longValue();
-		else
-			return a.intValue() & b.intValue();
-	}
-
-	private static Number orN(Number a, Number b) {
-		if(a instanceof Long || b instanceof Long)
-			return a.longValue() | b.longValue();
-		else
-			return a.intValue() | b.intValue();
-	}
-
-	private static Number xorN(Number a, Number b) {
-		if(a instanceof Long || b instanceof Long)
-			return a.longValue() ^ b.longValue();
-		else
-			return a.intValue() ^ b.intValue();
-	}
-
-	private static Type commonMathType(Type a, Type b) {
-		if (a == null || b == null)
-			throw new IllegalStateException("Cannot find common type of a null type");
-		int i1 = TypeUtil.getPromotionIndex(a.getSort());
-		int i2 = TypeUtil.getPromotionIndex(b.getSort());
-		int max = Math.max(i1, i2);
-		if(max <= Type.DOUBLE)
-			return max == i1 ? a : b;
-		throw new IllegalStateException("Cannot do math on non-primitive types: " +
-				a.getDescriptor() + " & " + b.getDescriptor());
+	private int getSort() {
+		return type == null ? Type.INT : type.getSort();
+	}
+
+	private static int mathI(int a, int b, int op) {
+		switch (op) {
+			case ADD: return a + b;
+			case SUB: return a - b;
+			case MUL: return a * b;
+			case DIV: return a / b;
+			case REM: return a % b;
+			case SHL: return a << b;
+			case SHR: return a >> b;
+			case USHR: return a >>> b;
+			case AND: return a & b;
+			case OR: return a | b;
+			case XOR: return a ^ b;
+			default: throw new IllegalStateException("Unknown operation: " + op);
+		}
+	}
+
+	private static long mathJ(long a, long b, int op) {
+		switch (op) {
+			case ADD: return a + b;
+			case SUB: return a - b;
+			case MUL: return a * b;
+			case DIV: return a / b;
+			case REM: return a % b;
+			case SHL: return a << b;
+			case SHR: return a >> b;
+			case USHR: return a >>> b;
+			case AND: return a & b;
+			case OR: return a | b;
+			case XOR: return a ^ b;
+			default: throw new IllegalStateException("Unknown operation: " + op);
+		}
+	}
+
+	private static float mathF(float a, float b, int op) {
+		switch (op) {
+			case ADD: return a + b;
+			case SUB: return a - b;
+			case MUL: return a * b;
+			case DIV: return a / b;
+			case REM: return a % b;
+			default: throw new IllegalStateException("Unknown operation: " + op);
+		}
+	}
+
+	private static double mathD(double a, double b, int op) {
+		switch (op) {
+			case ADD: return a + b;
+			case SUB: return a - b;
+			case MUL: return a * b;
+			case DIV: return a / b;
+			case REM: return a % b;
+			default: throw new IllegalStateException("Unknown operation: " + op);
+		}
+	}
+
+	private static boolean isUnboxable(Type type, Object value) {
+		if (type == null || !(value instanceof Number || value instanceof Boolean || value instanceof Character))
+			return false;
+		int sort = type.getSort();
+		return sort >= Type.BOOLEAN && sort <= Type.DOUBLE;
+	}
+
+	private static long unbox(Type type, Object value) {
+		if (value instanceof Boolean)
+			return ((Boolean) value) ? 1 : 0;
+		else if (value instanceof Character)
+			return (Character) value;
+		Number number = (Number) value;
+		switch (type.getSort()) {
+			case Type.LONG:
+				return number.longValue();
+			case Type.FLOAT:
+				return Float.floatToIntBits(number.floatValue());
+			case Type.DOUBLE:
+				return Double.doubleToLongBits(number.doubleValue());
+			default:
+				return number.intValue();
+		}
 	}
 }
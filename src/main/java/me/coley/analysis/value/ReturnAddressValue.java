@@ -1,10 +1,9 @@
 package me.coley.analysis.value;
 
+import me.coley.analysis.value.provenance.Provenance;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.AbstractInsnNode;
 
-import java.util.List;
-
 /**
  * Value wrapper for return addresses.
  *
@@ -15,8 +14,8 @@ public class ReturnAddressValue extends AbstractValue {
 		super(insn, Type.VOID_TYPE, null);
 	}
 
-	private ReturnAddressValue(List<AbstractInsnNode> insns) {
-		super(insns, Type.VOID_TYPE, null);
+	private ReturnAddressValue(Provenance provenance) {
+		super(provenance, Type.VOID_TYPE, null);
 	}
 
 	/**
@@ -30,8 +29,8 @@ public class ReturnAddressValue extends AbstractValue {
 	}
 
 	@Override
-	protected ReturnAddressValue create(List<AbstractInsnNode> collection) {
-		return new ReturnAddressValue(collection);
+	protected ReturnAddressValue create(Provenance provenance) {
+		return new ReturnAddressValue(provenance);
 	}
 
 	@Override
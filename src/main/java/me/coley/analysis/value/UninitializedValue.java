@@ -1,9 +1,7 @@
 package me.coley.analysis.value;
 
+import me.coley.analysis.value.provenance.Provenance;
 import org.objectweb.asm.Type;
-import org.objectweb.asm.tree.AbstractInsnNode;
-
-import java.util.List;
 
 /**
  * Value wrapper for uninitialized values.
@@ -14,11 +12,11 @@ public class UninitializedValue extends AbstractValue {
 	public static final AbstractValue UNINITIALIZED_VALUE = new UninitializedValue(null, null);
 
 	private UninitializedValue(Type type, Object value) {
-		super((List<AbstractInsnNode>) null, type, value);
+		super((Provenance) null, type, value);
 	}
 
 	@Override
-	protected UninitializedValue create(List<AbstractInsnNode> collection) {
+	protected UninitializedValue create(Provenance provenance) {
 		throw new IllegalStateException("Copying an uninitialized value should not occur!");
 	}
 
@@ -1,6 +1,7 @@
 package me.coley.analysis.value;
 
 import me.coley.analysis.TypeResolver;
+import me.coley.analysis.value.provenance.Provenance;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.AbstractInsnNode;
 
@@ -12,6 +13,7 @@ import java.util.List;
  * @author Matt Coley
  */
 public class VirtualValue extends AbstractValue {
+	private static final Type CLASS_TYPE = Type.getObjectType("java/lang/Class");
 	protected final TypeResolver typeResolver;
 
 	protected VirtualValue(AbstractInsnNode insn, Type type, Object value, TypeResolver typeResolver) {
@@ -24,6 +26,11 @@ public class VirtualValue extends AbstractValue {
 		this.typeResolver = typeResolver;
 	}
 
+	protected VirtualValue(Provenance provenance, Type type, Object value, TypeResolver typeResolver) {
+		super(provenance, type, value);
+		this.typeResolver = typeResolver;
+	}
+
 	/**
 	 * @param insn
 	 * 		The instruction of this value.
@@ -84,6 +91,20 @@ public class VirtualValue extends AbstractValue {
 		return new VirtualValue(insns, type, new Unresolved(type), typeResolver);
 	}
 
+	/**
+	 * @param provenance
+	 * 		The instructions of this value.
+	 * @param typeResolver
+	 * 		Type resolver for comparison against other types.
+	 * @param type
+	 * 		Type to virtualize.
+	 *
+	 * @return Virtual value of type.
+	 */
+	public static VirtualValue ofVirtual(Provenance provenance, TypeResolver typeResolver, Type type) {
+		return new VirtualValue(provenance, type, new Unresolved(type), typeResolver);
+	}
+
 	/**
 	 * @param insn
 	 * 		The instruction of this value.
@@ -95,7 +116,21 @@ public class VirtualValue extends AbstractValue {
 	 * @return Class value.
 	 */
 	public static VirtualValue ofClass(AbstractInsnNode insn, TypeResolver typeResolver, Type value) {
-		return new VirtualValue(insn, Type.getObjectType("java/lang/Class"), value, typeResolver);
+		return new VirtualValue(insn, CLASS_TYPE, value, typeResolver);
+	}
+
+	/**
+	 * @param provenance
+	 * 		The instructions of this value.
+	 * @param typeResolver
+	 * 		Type resolver for comparison against other types.
+	 * @param value
+	 * 		The value / type of class.
+	 *
+	 * @return Class value.
+	 */
+	public static VirtualValue ofClass(Provenance provenance, TypeResolver typeResolver, Type value) {
+		return new VirtualValue(provenance, CLASS_TYPE, value, typeResolver);
 	}
 
 	/**
@@ -131,8 +166,8 @@ public class VirtualValue extends AbstractValue {
 	}
 
 	@Override
-	protected AbstractValue create(List<AbstractInsnNode> collection) {
-		return new VirtualValue(collection, getType(), getValue(), typeResolver);
+	protected AbstractValue create(Provenance provenance) {
+		return new VirtualValue(provenance, getType(), getValue(), typeResolver);
 	}
 
 	@Override
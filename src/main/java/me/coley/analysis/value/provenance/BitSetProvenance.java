@@ -0,0 +1,193 @@
+package me.coley.analysis.value.provenance;
+
+import org.objectweb.asm.tree.AbstractInsnNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Provenance backed by a bitset keyed by the index of instructions in the analyzed method.
+ * <br>
+ * Adding an instruction sets a single bit and combining two provenances is a word-wise OR.
+ * The {@link #getInsns() instruction list} is only materialized when requested, and is ordered by instruction
+ * index rather than by the order instructions were contributed in.
+ *
+ * @author Matt Coley
+ */
+public final class BitSetProvenance implements Provenance {
+	private static final long[] NO_WORDS = new long[0];
+	private final InsnTable table;
+	// Trimmed, the last word is never zero
+	private final long[] words;
+	// Instructions not belonging to the method, rarely used
+	private final List<AbstractInsnNode> foreign;
+	private List<AbstractInsnNode> insns;
+
+	private BitSetProvenance(InsnTable table, long[] words, List<AbstractInsnNode> foreign) {
+		this.table = table;
+		this.words = words;
+		this.foreign = foreign;
+	}
+
+	@Override
+	public List<AbstractInsnNode> getInsns() {
+		List<AbstractInsnNode> insns = this.insns;
+		if (insns == null) {
+			List<AbstractInsnNode> list = new ArrayList<>(size());
+			for (int w = 0; w < words.length; w++) {
+				long word = words[w];
+				while (word != 0) {
+					list.add(table.get((w << 6) + Long.numberOfTrailingZeros(word)));
+					word &= word - 1;
+				}
+			}
+			list.addAll(foreign);
+			this.insns = insns = Collections.unmodifiableList(list);
+		}
+		return insns;
+	}
+
+	@Override
+	public boolean contains(AbstractInsnNode insn) {
+		int index = table.indexOf(insn);
+		if (index < 0)
+			return foreign.contains(insn);
+		int w = index >>> 6;
+		return w < words.length && (words[w] & (1L << index)) != 0;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return words.length == 0 && foreign.isEmpty();
+	}
+
+	/**
+	 * @return Number of contributing instructions.
+	 */
+	public int size() {
+		int size = foreign.size();
+		for (long word : words)
+			size += Long.bitCount(word);
+		return size;
+	}
+
+	@Override
+	public Provenance add(AbstractInsnNode insn) {
+		int index = table.indexOf(insn);
+		if (index < 0) {
+			if (foreign.contains(insn))
+				return this;
+			List<AbstractInsnNode> copy = new ArrayList<>(foreign);
+			copy.add(insn);
+			return new BitSetProvenance(table, words, copy);
+		}
+		int w = index >>> 6;
+		long bit = 1L << index;
+		if (w < words.length && (words[w] & bit) != 0)
+			return this;
+		long[] copy = Arrays.copyOf(words, Math.max(words.length, w + 1));
+		copy[w] |= bit;
+		return new BitSetProvenance(table, copy, foreign);
+	}
+
+	@Override
+	public Provenance combine(Provenance other) {
+		if (other == this || other.isEmpty())
+			return this;
+		if (!(other instanceof BitSetProvenance) || ((BitSetProvenance) other).table != table)
+			return addAll(other.getInsns());
+		BitSetProvenance o = (BitSetProvenance) other;
+		if (isEmpty())
+			return o;
+		List<AbstractInsnNode> foreign = this.foreign;
+		for (AbstractInsnNode insn : o.foreign) {
+			if (!foreign.contains(insn)) {
+				if (foreign == this.foreign)
+					foreign = new ArrayList<>(this.foreign);
+				foreign.add(insn);
+			}
+		}
+		long[] longer = words.length >= o.words.length ? words : o.words;
+		long[] shorter = longer == words ? o.words : words;
+		long[] result = null;
+		for (int i = 0; i < shorter.length; i++) {
+			long merged = longer[i] | shorter[i];
+			if (result == null && merged != longer[i])
+				result = longer.clone();
+			if (result != null)
+				result[i] = merged;
+		}
+		if (result == null) {
+			// Shorter set is a subset of the longer one
+			if (foreign == this.foreign && longer == words)
+				return this;
+			if (foreign == o.foreign && longer == o.words)
+				return o;
+			result = longer;
+		}
+		return new BitSetProvenance(table, result, foreign);
+	}
+
+	private Provenance addAll(List<AbstractInsnNode> insns) {
+		long[] words = this.words;
+		List<AbstractInsnNode> foreign = this.foreign;
+		for (AbstractInsnNode insn : insns) {
+			int index = table.indexOf(insn);
+			if (index < 0) {
+				if (!foreign.contains(insn)) {
+					if (foreign == this.foreign)
+						foreign = new ArrayList<>(this.foreign);
+					foreign.add(insn);
+				}
+				continue;
+			}
+			int w = index >>> 6;
+			long bit = 1L << index;
+			if (w < words.length && (words[w] & bit) != 0)
+				continue;
+			if (words == this.words || w >= words.length)
+				words = Arrays.copyOf(words, Math.max(words.length, w + 1));
+			words[w] |= bit;
+		}
+		if (words == this.words && foreign == this.foreign)
+			return this;
+		return new BitSetProvenance(table, words, foreign);
+	}
+
+	@Override
+	public String toString() {
+		return getInsns().toString();
+	}
+
+	/**
+	 * Factory of bitset provenance for a single method.
+	 */
+	static final class Factory implements ProvenanceFactory {
+		private final BitSetProvenance empty;
+
+		Factory(InsnTable table) {
+			this.empty = new BitSetProvenance(table, NO_WORDS, Collections.emptyList());
+		}
+
+		@Override
+		public Provenance empty() {
+			return empty;
+		}
+
+		@Override
+		public Provenance of(AbstractInsnNode insn) {
+			if (insn == null)
+				return empty;
+			return empty.add(insn);
+		}
+
+		@Override
+		public Provenance adopt(Provenance provenance) {
+			if (provenance instanceof BitSetProvenance && ((BitSetProvenance) provenance).table == empty.table)
+				return provenance;
+			return empty.combine(provenance);
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package me.coley.analysis.value.provenance;
+
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.InsnList;
+
+/**
+ * Snapshot of a method's instructions, mapping instructions to their index and back.
+ *
+ * @author Matt Coley
+ */
+final class InsnTable {
+	private final InsnList list;
+	private final AbstractInsnNode[] insns;
+
+	InsnTable(InsnList list) {
+		this.list = list;
+		this.insns = list.toArray();
+	}
+
+	/**
+	 * @param insn
+	 * 		Some instruction.
+	 *
+	 * @return Index of the instruction, or {@code -1} if it does not belong to the method.
+	 */
+	int indexOf(AbstractInsnNode insn) {
+		// The list index is cached by ASM, but is stale for instructions of other lists
+		int index = list.indexOf(insn);
+		if (index >= 0 && index < insns.length && insns[index] == insn)
+			return index;
+		return -1;
+	}
+
+	/**
+	 * @param index
+	 * 		Instruction index.
+	 *
+	 * @return Instruction at the index.
+	 */
+	AbstractInsnNode get(int index) {
+		return insns[index];
+	}
+}
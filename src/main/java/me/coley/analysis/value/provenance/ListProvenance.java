@@ -0,0 +1,110 @@
+package me.coley.analysis.value.provenance;
+
+import me.coley.analysis.util.CollectUtils;
+import org.objectweb.asm.tree.AbstractInsnNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Provenance backed by a list of instructions in the order they were contributed.
+ * <br>
+ * Operations copy the list, making them linear in the size of the provenance.
+ *
+ * @author Matt Coley
+ */
+public final class ListProvenance implements Provenance {
+	/**
+	 * Provenance with no contributing instructions.
+	 */
+	public static final ListProvenance EMPTY = new ListProvenance(Collections.emptyList());
+	/**
+	 * Factory yielding list provenance.
+	 */
+	public static final ProvenanceFactory FACTORY = new ProvenanceFactory() {
+		@Override
+		public Provenance empty() {
+			return EMPTY;
+		}
+
+		@Override
+		public Provenance of(AbstractInsnNode insn) {
+			return ListProvenance.of(insn);
+		}
+
+		@Override
+		public Provenance adopt(Provenance provenance) {
+			// List provenance can combine with any other kind as-is
+			return provenance instanceof ListProvenance ? provenance : ListProvenance.of(provenance.getInsns());
+		}
+	};
+	private final List<AbstractInsnNode> insns;
+
+	private ListProvenance(List<AbstractInsnNode> insns) {
+		this.insns = insns;
+	}
+
+	/**
+	 * @param insn
+	 * 		Single contributing instruction.
+	 *
+	 * @return Provenance of the instruction.
+	 */
+	public static ListProvenance of(AbstractInsnNode insn) {
+		if (insn == null)
+			return EMPTY;
+		return new ListProvenance(Collections.singletonList(insn));
+	}
+
+	/**
+	 * @param insns
+	 * 		Contributing instructions. May be {@code null}.
+	 *
+	 * @return Provenance of a copy of the instructions.
+	 */
+	public static ListProvenance of(List<AbstractInsnNode> insns) {
+		if (insns == null || insns.isEmpty())
+			return EMPTY;
+		return new ListProvenance(new ArrayList<>(insns));
+	}
+
+	@Override
+	public List<AbstractInsnNode> getInsns() {
+		return Collections.unmodifiableList(insns);
+	}
+
+	@Override
+	public boolean contains(AbstractInsnNode insn) {
+		return insns.contains(insn);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return insns.isEmpty();
+	}
+
+	@Override
+	public Provenance add(AbstractInsnNode insn) {
+		if (insns.contains(insn))
+			return this;
+		return new ListProvenance(CollectUtils.add(insns, insn));
+	}
+
+	@Override
+	public Provenance combine(Provenance other) {
+		if (other == this || other.isEmpty())
+			return this;
+		if (!(other instanceof ListProvenance))
+			// Prefer the representation of the other provenance, which should be cheaper to combine
+			return other.combine(this);
+		if (isEmpty())
+			return other;
+		return new ListProvenance(CollectUtils.distinct(CollectUtils.combine(insns, other.getInsns())));
+	}
+
+	@Override
+	public String toString() {
+		return insns.toString();
+	}
+}
@@ -0,0 +1,75 @@
+package me.coley.analysis.value.provenance;
+
+import org.objectweb.asm.tree.AbstractInsnNode;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Provenance that does not track anything. Every operation yields the same instance.
+ *
+ * @author Matt Coley
+ */
+public final class NoProvenance implements Provenance {
+	/**
+	 * Shared instance.
+	 */
+	public static final NoProvenance INSTANCE = new NoProvenance();
+	/**
+	 * Factory yielding the shared instance, discarding any given instructions.
+	 */
+	public static final ProvenanceFactory FACTORY = new ProvenanceFactory() {
+		@Override
+		public Provenance empty() {
+			return INSTANCE;
+		}
+
+		@Override
+		public Provenance of(AbstractInsnNode insn) {
+			return INSTANCE;
+		}
+
+		@Override
+		public Provenance adopt(Provenance provenance) {
+			return INSTANCE;
+		}
+	};
+
+	private NoProvenance() {
+	}
+
+	@Override
+	public List<AbstractInsnNode> getInsns() {
+		return Collections.emptyList();
+	}
+
+	@Override
+	public boolean contains(AbstractInsnNode insn) {
+		return false;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return true;
+	}
+
+	@Override
+	public Provenance add(AbstractInsnNode insn) {
+		return this;
+	}
+
+	@Override
+	public Provenance combine(Provenance other) {
+		return this;
+	}
+
+	@Override
+	public Provenance combineAdd(Provenance other, AbstractInsnNode insn) {
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return "[]";
+	}
+}
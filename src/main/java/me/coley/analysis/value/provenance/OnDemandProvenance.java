@@ -0,0 +1,300 @@
+package me.coley.analysis.value.provenance;
+
+import me.coley.analysis.SimFrame;
+import me.coley.analysis.value.AbstractValue;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.IincInsnNode;
+import org.objectweb.asm.tree.InvokeDynamicInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MultiANewArrayInsnNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Provenance that only records the instructions defining a value. The remaining contributing instructions are
+ * reconstructed on demand by walking backwards through the analyzed frames: the values an instruction consumed
+ * are read from the frame at that instruction, and their own defining instructions are walked in turn.
+ * <br>
+ * Until the analysis of the method completes, {@link #getInsns()} only yields the recorded instructions.
+ * Since the walk reads the final frames, values merged at control flow joins contribute all of their
+ * incoming definitions. The order of the reconstructed instructions is not defined.
+ *
+ * @author Matt Coley
+ */
+public final class OnDemandProvenance implements Provenance {
+	private static final AbstractInsnNode[] NO_INSNS = new AbstractInsnNode[0];
+	private final Context context;
+	// Instructions whose inputs are recovered from the frames
+	private final AbstractInsnNode[] definitions;
+	// Instructions that contribute, but whose inputs do not
+	private final AbstractInsnNode[] contributors;
+	private List<AbstractInsnNode> insns;
+
+	private OnDemandProvenance(Context context, AbstractInsnNode[] definitions, AbstractInsnNode[] contributors) {
+		this.context = context;
+		this.definitions = definitions;
+		this.contributors = contributors;
+	}
+
+	@Override
+	public List<AbstractInsnNode> getInsns() {
+		List<AbstractInsnNode> insns = this.insns;
+		if (insns != null)
+			return insns;
+		if (context.frames == null) {
+			// Analysis has not completed, only the recorded instructions are known
+			Set<AbstractInsnNode> recorded = new LinkedHashSet<>(Arrays.asList(definitions));
+			recorded.addAll(Arrays.asList(contributors));
+			return Collections.unmodifiableList(new ArrayList<>(recorded));
+		}
+		this.insns = insns = Collections.unmodifiableList(new ArrayList<>(reconstruct()));
+		return insns;
+	}
+
+	@Override
+	public boolean contains(AbstractInsnNode insn) {
+		return getInsns().contains(insn);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return definitions.length == 0 && contributors.length == 0;
+	}
+
+	@Override
+	public Provenance add(AbstractInsnNode insn) {
+		if (indexOf(definitions, insn) >= 0 || indexOf(contributors, insn) >= 0)
+			return this;
+		return new OnDemandProvenance(context, definitions, append(contributors, insn));
+	}
+
+	@Override
+	public Provenance combine(Provenance other) {
+		if (other == this || other.isEmpty())
+			return this;
+		if (other instanceof OnDemandProvenance && ((OnDemandProvenance) other).context == context) {
+			OnDemandProvenance o = (OnDemandProvenance) other;
+			AbstractInsnNode[] definitions = this.definitions;
+			for (AbstractInsnNode insn : o.definitions)
+				if (indexOf(definitions, insn) < 0)
+					definitions = append(definitions, insn);
+			AbstractInsnNode[] contributors = this.contributors;
+			for (AbstractInsnNode insn : o.contributors)
+				if (indexOf(contributors, insn) < 0)
+					contributors = append(contributors, insn);
+			if (definitions == this.definitions && contributors == this.contributors)
+				return this;
+			return new OnDemandProvenance(context, definitions, contributors);
+		}
+		Provenance result = this;
+		for (AbstractInsnNode insn : other.getInsns())
+			result = result.add(insn);
+		return result;
+	}
+
+	@Override
+	public Provenance derive(AbstractInsnNode insn) {
+		// The consumed value is recovered from the frame at the instruction
+		return new OnDemandProvenance(context, new AbstractInsnNode[]{insn}, NO_INSNS);
+	}
+
+	@Override
+	public Provenance derive(Provenance other, AbstractInsnNode insn) {
+		return derive(insn);
+	}
+
+	@Override
+	public String toString() {
+		return getInsns().toString();
+	}
+
+	private Set<AbstractInsnNode> reconstruct() {
+		Set<AbstractInsnNode> result = new LinkedHashSet<>();
+		Set<AbstractInsnNode> expanded = Collections.newSetFromMap(new IdentityHashMap<>());
+		Set<AbstractValue> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+		Deque<AbstractInsnNode> work = new ArrayDeque<>();
+		include(this, result, expanded, work);
+		List<AbstractValue> sources = new ArrayList<>();
+		while (!work.isEmpty()) {
+			AbstractInsnNode insn = work.pop();
+			int index = context.table.indexOf(insn);
+			if (index < 0 || index >= context.frames.length || context.frames[index] == null)
+				continue;
+			sources.clear();
+			collectSources(insn, context.frames[index], sources);
+			for (AbstractValue source : sources) {
+				if (source == null || !visited.add(source))
+					continue;
+				Provenance provenance = source.getProvenance();
+				if (provenance instanceof OnDemandProvenance && ((OnDemandProvenance) provenance).context == context)
+					include((OnDemandProvenance) provenance, result, expanded, work);
+				else
+					result.addAll(provenance.getInsns());
+			}
+		}
+		return result;
+	}
+
+	private static void include(OnDemandProvenance provenance, Set<AbstractInsnNode> result,
+								Set<AbstractInsnNode> expanded, Deque<AbstractInsnNode> work) {
+		for (AbstractInsnNode insn : provenance.definitions) {
+			result.add(insn);
+			if (expanded.add(insn))
+				work.push(insn);
+		}
+		result.addAll(Arrays.asList(provenance.contributors));
+	}
+
+	/**
+	 * @param insn
+	 * 		Instruction that defined a value.
+	 * @param frame
+	 * 		Frame before the instruction executed.
+	 * @param sources
+	 * 		List to add the values the definition was computed from to.
+	 */
+	private static void collectSources(AbstractInsnNode insn, SimFrame frame, List<AbstractValue> sources) {
+		int op = insn.getOpcode();
+		int count = 0;
+		switch (op) {
+			case ILOAD:
+			case LLOAD:
+			case FLOAD:
+			case DLOAD:
+			case ALOAD:
+				sources.add(frame.getLocal(((VarInsnNode) insn).var));
+				return;
+			case IINC:
+				sources.add(frame.getLocal(((IincInsnNode) insn).var));
+				return;
+			case DUP2:
+			case DUP2_X1:
+			case DUP2_X2:
+				// Copies the top two values, or the top one if it is wide
+				count = frame.getStackSize() > 0 && frame.getStack(frame.getStackSize() - 1).getSize() == 2 ? 1 : 2;
+				break;
+			case ISTORE:
+			case LSTORE:
+			case FSTORE:
+			case DSTORE:
+			case ASTORE:
+			case DUP:
+			case DUP_X1:
+			case DUP_X2:
+			case INEG:
+			case LNEG:
+			case FNEG:
+			case DNEG:
+			case GETFIELD:
+			case NEWARRAY:
+			case ANEWARRAY:
+			case ARRAYLENGTH:
+			case CHECKCAST:
+			case INSTANCEOF:
+				count = 1;
+				break;
+			case SWAP:
+				count = 2;
+				break;
+			case INVOKEVIRTUAL:
+			case INVOKESPECIAL:
+			case INVOKEINTERFACE:
+				count = Type.getArgumentTypes(((MethodInsnNode) insn).desc).length + 1;
+				break;
+			case INVOKESTATIC:
+				count = Type.getArgumentTypes(((MethodInsnNode) insn).desc).length;
+				break;
+			case INVOKEDYNAMIC:
+				count = Type.getArgumentTypes(((InvokeDynamicInsnNode) insn).desc).length;
+				break;
+			case MULTIANEWARRAY:
+				count = ((MultiANewArrayInsnNode) insn).dims;
+				break;
+			default:
+				if (op >= IALOAD && op <= SALOAD)
+					count = 2;
+				else if ((op >= IADD && op <= DREM) || (op >= ISHL && op <= LXOR) || (op >= LCMP && op <= DCMPG))
+					count = 2;
+				else if (op >= I2L && op <= I2S)
+					count = 1;
+				break;
+		}
+		int size = frame.getStackSize();
+		for (int i = Math.max(0, size - count); i < size; i++)
+			sources.add(frame.getStack(i));
+	}
+
+	private static int indexOf(AbstractInsnNode[] insns, AbstractInsnNode insn) {
+		for (int i = 0; i < insns.length; i++)
+			if (insns[i] == insn)
+				return i;
+		return -1;
+	}
+
+	private static AbstractInsnNode[] append(AbstractInsnNode[] insns, AbstractInsnNode insn) {
+		AbstractInsnNode[] copy = Arrays.copyOf(insns, insns.length + 1);
+		copy[insns.length] = insn;
+		return copy;
+	}
+
+	/**
+	 * Method wide state shared by all provenance of a single analysis.
+	 */
+	private static final class Context {
+		private final InsnTable table;
+		private SimFrame[] frames;
+
+		private Context(InsnTable table) {
+			this.table = table;
+		}
+	}
+
+	/**
+	 * Factory of on-demand provenance for a single method.
+	 */
+	static final class Factory implements ProvenanceFactory {
+		private final Context context;
+		private final OnDemandProvenance empty;
+
+		Factory(InsnTable table) {
+			this.context = new Context(table);
+			this.empty = new OnDemandProvenance(context, NO_INSNS, NO_INSNS);
+		}
+
+		@Override
+		public Provenance empty() {
+			return empty;
+		}
+
+		@Override
+		public Provenance of(AbstractInsnNode insn) {
+			if (insn == null)
+				return empty;
+			return new OnDemandProvenance(context, new AbstractInsnNode[]{insn}, NO_INSNS);
+		}
+
+		@Override
+		public Provenance adopt(Provenance provenance) {
+			if (provenance instanceof OnDemandProvenance && ((OnDemandProvenance) provenance).context == context)
+				return provenance;
+			return empty.combine(provenance);
+		}
+
+		@Override
+		public void complete(SimFrame[] frames) {
+			context.frames = frames;
+		}
+	}
+}
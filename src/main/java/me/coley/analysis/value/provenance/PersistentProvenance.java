@@ -0,0 +1,150 @@
+package me.coley.analysis.value.provenance;
+
+import org.objectweb.asm.tree.AbstractInsnNode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Provenance stored as a persistent DAG of contributions. Each node records at most one instruction and links to
+ * the provenance it was derived from, so {@link #add(AbstractInsnNode) adding} and {@link #combine(Provenance)
+ * combining} are constant time and the history of a value is shared with every value derived from it.
+ * <br>
+ * The {@link #getInsns() instruction list} is only materialized when requested, and has the same order
+ * as {@link ListProvenance} would give for the same operations.
+ *
+ * @author Matt Coley
+ */
+public final class PersistentProvenance implements Provenance {
+	/**
+	 * Provenance with no contributing instructions.
+	 */
+	public static final PersistentProvenance EMPTY = new PersistentProvenance(null, null, null);
+	/**
+	 * Factory yielding persistent provenance.
+	 */
+	public static final ProvenanceFactory FACTORY = new ProvenanceFactory() {
+		@Override
+		public Provenance empty() {
+			return EMPTY;
+		}
+
+		@Override
+		public Provenance of(AbstractInsnNode insn) {
+			return EMPTY.add(insn);
+		}
+
+		@Override
+		public Provenance adopt(Provenance provenance) {
+			return wrap(provenance);
+		}
+	};
+	private final AbstractInsnNode insn;
+	private final Provenance first;
+	private final Provenance second;
+	private List<AbstractInsnNode> insns;
+
+	private PersistentProvenance(AbstractInsnNode insn, Provenance first, Provenance second) {
+		this.insn = insn;
+		this.first = first;
+		this.second = second;
+	}
+
+	@Override
+	public List<AbstractInsnNode> getInsns() {
+		List<AbstractInsnNode> insns = this.insns;
+		if (insns == null) {
+			if (this == EMPTY)
+				insns = Collections.emptyList();
+			else
+				insns = Collections.unmodifiableList(new ArrayList<>(materialize()));
+			this.insns = insns;
+		}
+		return insns;
+	}
+
+	@Override
+	public boolean contains(AbstractInsnNode insn) {
+		return getInsns().contains(insn);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this == EMPTY;
+	}
+
+	@Override
+	public Provenance add(AbstractInsnNode insn) {
+		if (insn == null || insn == this.insn)
+			return this;
+		return new PersistentProvenance(insn, this == EMPTY ? null : this, null);
+	}
+
+	@Override
+	public Provenance combine(Provenance other) {
+		if (other == this || other.isEmpty())
+			return this;
+		if (this == EMPTY)
+			return wrap(other);
+		return new PersistentProvenance(null, this, other);
+	}
+
+	@Override
+	public String toString() {
+		return getInsns().toString();
+	}
+
+	private static PersistentProvenance wrap(Provenance provenance) {
+		if (provenance instanceof PersistentProvenance)
+			return (PersistentProvenance) provenance;
+		if (provenance.isEmpty())
+			return EMPTY;
+		return new PersistentProvenance(null, provenance, null);
+	}
+
+	/**
+	 * Post-order walk of the DAG, visiting parents before the instruction of a node.
+	 * Shared nodes are only visited once. Iterative, since chains can be as long as the method.
+	 *
+	 * @return Contributing instructions in contribution order.
+	 */
+	private Set<AbstractInsnNode> materialize() {
+		Set<AbstractInsnNode> result = new LinkedHashSet<>();
+		Map<PersistentProvenance, Boolean> expanded = new IdentityHashMap<>();
+		Deque<Provenance> stack = new ArrayDeque<>();
+		stack.push(this);
+		while (!stack.isEmpty()) {
+			Provenance top = stack.peek();
+			if (!(top instanceof PersistentProvenance) || ((PersistentProvenance) top).insns != null) {
+				// Foreign or already materialized provenance
+				stack.pop();
+				result.addAll(top.getInsns());
+				continue;
+			}
+			PersistentProvenance node = (PersistentProvenance) top;
+			if (expanded.put(node, Boolean.TRUE) != null) {
+				// Parents have been visited, now the node itself
+				stack.pop();
+				if (node.insn != null)
+					result.add(node.insn);
+				continue;
+			}
+			push(stack, expanded, node.second);
+			push(stack, expanded, node.first);
+		}
+		return result;
+	}
+
+	private static void push(Deque<Provenance> stack, Map<PersistentProvenance, Boolean> expanded,
+							 Provenance provenance) {
+		if (provenance != null && !expanded.containsKey(provenance))
+			stack.push(provenance);
+	}
+}
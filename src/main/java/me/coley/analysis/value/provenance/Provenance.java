@@ -0,0 +1,91 @@
+package me.coley.analysis.value.provenance;
+
+import me.coley.analysis.value.AbstractValue;
+import org.objectweb.asm.tree.AbstractInsnNode;
+
+import java.util.List;
+
+/**
+ * Immutable set of instructions that contributed to an {@link AbstractValue}.
+ * <br>
+ * Operations never modify the instance they are called on, they yield a new instance <i>(or the same instance
+ * when nothing changes)</i>. This allows instances to be freely shared between values and frames.
+ *
+ * @author Matt Coley
+ */
+public interface Provenance {
+	/**
+	 * @return Contributing instructions, without duplicates.
+	 * The list may be materialized lazily and is not modifiable.
+	 */
+	List<AbstractInsnNode> getInsns();
+
+	/**
+	 * @param insn
+	 * 		Instruction to check.
+	 *
+	 * @return {@code true} when the instruction is a contributor.
+	 */
+	boolean contains(AbstractInsnNode insn);
+
+	/**
+	 * @return {@code true} when there are no contributing instructions.
+	 */
+	boolean isEmpty();
+
+	/**
+	 * @param insn
+	 * 		Instruction to add.
+	 *
+	 * @return Provenance of the current instructions with the given instruction.
+	 */
+	Provenance add(AbstractInsnNode insn);
+
+	/**
+	 * @param other
+	 * 		Another provenance, which does not need to be of the same implementation.
+	 *
+	 * @return Provenance of the union of both instruction sets.
+	 */
+	Provenance combine(Provenance other);
+
+	/**
+	 * @param other
+	 * 		Another provenance, which does not need to be of the same implementation.
+	 * @param insn
+	 * 		Instruction to add.
+	 *
+	 * @return Provenance of the union of both instruction sets, with the given instruction.
+	 */
+	default Provenance combineAdd(Provenance other, AbstractInsnNode insn) {
+		return combine(other).add(insn);
+	}
+
+	/**
+	 * Unlike {@link #add(AbstractInsnNode)} the instruction is known to consume a value of this provenance,
+	 * which allows implementations to recover this provenance from the instruction later on.
+	 *
+	 * @param insn
+	 * 		Instruction computing a new value from a value of this provenance.
+	 *
+	 * @return Provenance of the computed value.
+	 */
+	default Provenance derive(AbstractInsnNode insn) {
+		return add(insn);
+	}
+
+	/**
+	 * Unlike {@link #combineAdd(Provenance, AbstractInsnNode)} the instruction is known to consume values of
+	 * both provenances, which allows implementations to recover them from the instruction later on.
+	 *
+	 * @param other
+	 * 		Another provenance, which does not need to be of the same implementation.
+	 * @param insn
+	 * 		Instruction computing a new value from values of both provenances.
+	 *
+	 * @return Provenance of the computed value.
+	 */
+	default Provenance derive(Provenance other, AbstractInsnNode insn) {
+		return combineAdd(other, insn);
+	}
+}
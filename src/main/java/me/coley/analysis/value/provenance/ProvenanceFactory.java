@@ -0,0 +1,87 @@
+package me.coley.analysis.value.provenance;
+
+import me.coley.analysis.SimFrame;
+import org.objectweb.asm.tree.AbstractInsnNode;
+
+/**
+ * Creates and combines {@link Provenance} instances of a single implementation for one analyzed method.
+ * <br>
+ * Provenance of another implementation <i>(such as those of values supplied by user factories)</i>
+ * is {@link #adopt(Provenance) adopted} before being operated on.
+ *
+ * @author Matt Coley
+ */
+public interface ProvenanceFactory {
+	/**
+	 * @return Provenance with no contributing instructions.
+	 */
+	Provenance empty();
+
+	/**
+	 * @param insn
+	 * 		Single contributing instruction.
+	 *
+	 * @return Provenance of the instruction.
+	 */
+	Provenance of(AbstractInsnNode insn);
+
+	/**
+	 * @param provenance
+	 * 		Some provenance.
+	 *
+	 * @return Provenance of the same instructions, using this factory's implementation.
+	 */
+	Provenance adopt(Provenance provenance);
+
+	/**
+	 * @param provenance
+	 * 		Provenance of the value consumed by the instruction.
+	 * @param insn
+	 * 		Instruction computing a new value.
+	 *
+	 * @return Provenance of the computed value.
+	 *
+	 * @see Provenance#derive(AbstractInsnNode)
+	 */
+	default Provenance derive(Provenance provenance, AbstractInsnNode insn) {
+		return adopt(provenance).derive(insn);
+	}
+
+	/**
+	 * @param provenance1
+	 * 		Original provenance.
+	 * @param provenance2
+	 * 		Additional provenance.
+	 *
+	 * @return Union of both provenances.
+	 */
+	default Provenance combine(Provenance provenance1, Provenance provenance2) {
+		return adopt(provenance1).combine(provenance2);
+	}
+
+	/**
+	 * @param provenance1
+	 * 		Provenance of the first value consumed by the instruction.
+	 * @param provenance2
+	 * 		Provenance of the second value consumed by the instruction.
+	 * @param insn
+	 * 		Instruction computing a new value.
+	 *
+	 * @return Provenance of the computed value.
+	 *
+	 * @see Provenance#derive(Provenance, AbstractInsnNode)
+	 */
+	default Provenance derive(Provenance provenance1, Provenance provenance2, AbstractInsnNode insn) {
+		return adopt(provenance1).derive(provenance2, insn);
+	}
+
+	/**
+	 * Called once the analysis of the method completes.
+	 *
+	 * @param frames
+	 * 		Frames of the analyzed method.
+	 */
+	default void complete(SimFrame[] frames) {
+		// no-op by default
+	}
+}
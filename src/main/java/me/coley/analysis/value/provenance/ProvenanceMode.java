@@ -0,0 +1,66 @@
+package me.coley.analysis.value.provenance;
+
+import me.coley.analysis.SimInterpreter;
+import org.objectweb.asm.tree.MethodNode;
+
+/**
+ * Representations of contributing instructions available to the {@link SimInterpreter}.
+ *
+ * @author Matt Coley
+ */
+public enum ProvenanceMode {
+	/**
+	 * Insertion ordered lists, see {@link ListProvenance}.
+	 */
+	LIST {
+		@Override
+		public ProvenanceFactory newFactory(MethodNode method) {
+			return ListProvenance.FACTORY;
+		}
+	},
+	/**
+	 * Persistent DAG of contributions shared between values, see {@link PersistentProvenance}.
+	 */
+	PERSISTENT {
+		@Override
+		public ProvenanceFactory newFactory(MethodNode method) {
+			return PersistentProvenance.FACTORY;
+		}
+	},
+	/**
+	 * Bitsets keyed by instruction index, see {@link BitSetProvenance}.
+	 */
+	BITSET {
+		@Override
+		public ProvenanceFactory newFactory(MethodNode method) {
+			return new BitSetProvenance.Factory(new InsnTable(method.instructions));
+		}
+	},
+	/**
+	 * Only defining instructions are stored, the rest are reconstructed from the frames when requested.
+	 * See {@link OnDemandProvenance}.
+	 */
+	ON_DEMAND {
+		@Override
+		public ProvenanceFactory newFactory(MethodNode method) {
+			return new OnDemandProvenance.Factory(new InsnTable(method.instructions));
+		}
+	},
+	/**
+	 * No tracking, for when only types, values and control flow are needed. See {@link NoProvenance}.
+	 */
+	DISABLED {
+		@Override
+		public ProvenanceFactory newFactory(MethodNode method) {
+			return NoProvenance.FACTORY;
+		}
+	};
+
+	/**
+	 * @param method
+	 * 		Method about to be analyzed.
+	 *
+	 * @return Factory for provenance of values in the method.
+	 */
+	public abstract ProvenanceFactory newFactory(MethodNode method);
+}
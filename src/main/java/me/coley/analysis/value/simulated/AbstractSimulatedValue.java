@@ -7,6 +7,8 @@ import me.coley.analysis.util.TypeUtil;
 import me.coley.analysis.value.AbstractValue;
 import me.coley.analysis.value.PrimitiveValue;
 import me.coley.analysis.value.VirtualValue;
+import me.coley.analysis.value.provenance.ListProvenance;
+import me.coley.analysis.value.provenance.Provenance;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.AbstractInsnNode;
@@ -21,9 +23,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.BiFunction;
-import java.util.stream.Collectors;
-
-import static me.coley.analysis.util.CollectUtils.*;
 
 /**
  * Base logic of simulated value types.
@@ -34,7 +33,7 @@ import static me.coley.analysis.util.CollectUtils.*;
  * @author Matt Coley
  */
 public abstract class AbstractSimulatedValue<T> extends VirtualValue {
-	private static final Map<String, BiFunction<List<AbstractInsnNode>, TypeResolver, AbstractSimulatedValue<?>>>
+	private static final Map<String, BiFunction<Provenance, TypeResolver, AbstractSimulatedValue<?>>>
 			TYPE_PRODUCERS = new HashMap<>();
 	protected static final String[][] BLACKLISTED_METHODS = {
 			{"wait", "()V"},
@@ -64,15 +63,15 @@ public abstract class AbstractSimulatedValue<T> extends VirtualValue {
 	 */
 	protected final GetSet<T> resultValue;
 
-	protected AbstractSimulatedValue(List<AbstractInsnNode> insns, Type type, T value, TypeResolver typeResolver) {
+	protected AbstractSimulatedValue(Provenance provenance, Type type, T value, TypeResolver typeResolver) {
 		// Called to create a new chain of simulated values.
-		this(insns, type, value, new GetSet<>(value), typeResolver);
+		this(provenance, type, value, new GetSet<>(value), typeResolver);
 	}
 
-	protected AbstractSimulatedValue(List<AbstractInsnNode> insns, Type type, T value,
+	protected AbstractSimulatedValue(Provenance provenance, Type type, T value,
 	                                 GetSet<T> resultValue, TypeResolver typeResolver) {
 		// Called to add on to an existing chain of simulated values.
-		super(insns, type, copyValue(value), typeResolver);
+		super(provenance, type, copyValue(value), typeResolver);
 		this.resultValue = resultValue;
 	}
 
@@ -179,9 +178,7 @@ public abstract class AbstractSimulatedValue<T> extends VirtualValue {
 				for (int i = 0; i < argTypes.length; i++)
 					argsMatch &= argTypes[i].equals(Type.getType(c.getParameterTypes()[i]));
 				if (argsMatch) {
-					List<AbstractInsnNode> insns = distinct(combineAdd(arguments.stream()
-							.flatMap(arg -> arg.getInsns().stream())
-							.collect(Collectors.toList()), getInsns(), min));
+					Provenance insns = combineArguments(arguments, provenance).derive(provenance, min);
 					Object[] argValues = arguments.stream()
 							.map(AbstractValue::getValue).toArray();
 					c.setAccessible(true);
@@ -194,7 +191,7 @@ public abstract class AbstractSimulatedValue<T> extends VirtualValue {
 		// Check against blacklist. They are do-nothing methods that we want to skip.
 		for (String[] def : BLACKLISTED_METHODS)
 			if (def[0].equals(name) && def[1].equals(desc.getDescriptor()))
-				return new ReflectionSimulatedValue(insns,
+				return new ReflectionSimulatedValue(provenance,
 						getType(), getValue(), typeResolver);
 		// Check against normal methods
 		Type retType = desc.getReturnType();
@@ -220,9 +217,7 @@ public abstract class AbstractSimulatedValue<T> extends VirtualValue {
 					return null;
 				// Handle return value.
 				if (retVal != null) {
-					List<AbstractInsnNode> insns = distinct(combineAdd(arguments.stream()
-							.flatMap(arg -> arg.getInsns().stream())
-							.collect(Collectors.toList()), getInsns(), min));
+					Provenance insns = combineArguments(arguments, provenance).derive(provenance, min);
 					if (TypeUtil.isPrimitiveDesc(retType.getDescriptor())) {
 						// Unbox primitive wrappers if descriptor calls for it.
 						return unboxed(insns, retVal);
@@ -252,6 +247,7 @@ public abstract class AbstractSimulatedValue<T> extends VirtualValue {
 	 * 		Type resolver for comparison against other types.
 	 *
 	 * @return New value holder containing the new value from invoking the method.
+	 * Values of invokes without arguments use {@link ListProvenance list provenance}.
 	 *
 	 * @throws ReflectiveOperationException
 	 * 		When the target method could not be invoked.
@@ -259,6 +255,32 @@ public abstract class AbstractSimulatedValue<T> extends VirtualValue {
 	protected static AbstractValue invokeStatic(MethodInsnNode min, String owner, String name, Type desc,
 	                                            List<? extends AbstractValue> arguments, TypeResolver typeResolver)
 			throws ReflectiveOperationException {
+		return invokeStatic(min, owner, name, desc, arguments, typeResolver, ListProvenance.EMPTY);
+	}
+
+	/**
+	 * @param min
+	 * 		Method instruction.
+	 * @param name
+	 * 		Method name.
+	 * @param desc
+	 * 		Method type descriptor.
+	 * @param arguments
+	 * 		Argument values
+	 * @param typeResolver
+	 * 		Type resolver for comparison against other types.
+	 * @param empty
+	 * 		Empty provenance of the analyzed method, used when there are no arguments.
+	 *
+	 * @return New value holder containing the new value from invoking the method.
+	 *
+	 * @throws ReflectiveOperationException
+	 * 		When the target method could not be invoked.
+	 */
+	protected static AbstractValue invokeStatic(MethodInsnNode min, String owner, String name, Type desc,
+	                                            List<? extends AbstractValue> arguments, TypeResolver typeResolver,
+	                                            Provenance empty)
+			throws ReflectiveOperationException {
 		Class<?> cls = Class.forName(owner.replace('/', '.'));
 		Type retType = desc.getReturnType();
 		Type[] argTypes = desc.getArgumentTypes();
@@ -283,9 +305,7 @@ public abstract class AbstractSimulatedValue<T> extends VirtualValue {
 					return null;
 				// Handle return value.
 				if (retVal != null) {
-					List<AbstractInsnNode> insns = distinct(add(arguments.stream()
-							.flatMap(arg -> arg.getInsns().stream())
-							.collect(Collectors.toList()), min));
+					Provenance insns = combineArguments(arguments, empty).derive(min);
 					if (TypeUtil.isPrimitiveDesc(retType.getDescriptor())) {
 						// Unbox primitive wrappers if descriptor calls for it.
 						return unboxed(insns, retVal);
@@ -317,7 +337,7 @@ public abstract class AbstractSimulatedValue<T> extends VirtualValue {
 	 *
 	 * @return Value wrapper of primitive.
 	 */
-	protected static AbstractValue unboxed(List<AbstractInsnNode> insns, Object retVal) {
+	protected static AbstractValue unboxed(Provenance insns, Object retVal) {
 		if (retVal instanceof Integer || retVal instanceof Short || retVal instanceof Byte)
 			return PrimitiveValue.ofInt(insns, ((Number) retVal).intValue());
 		else if (retVal instanceof Float)
@@ -327,12 +347,27 @@ public abstract class AbstractSimulatedValue<T> extends VirtualValue {
 		else if (retVal instanceof Boolean)
 			return PrimitiveValue.ofInt(insns, ((Boolean) retVal) ? 1 : 0);
 		else if (retVal instanceof Character)
-			return PrimitiveValue.ofChar(insns, (Character) retVal);
+			return PrimitiveValue.ofInt(insns, (Character) retVal);
 		else if (retVal instanceof Long)
 			return PrimitiveValue.ofLong(insns, (Long) retVal);
 		throw new UnsupportedOperationException("Unsupported boxed type: " + retVal.getClass().getName());
 	}
 
+	/**
+	 * @param arguments
+	 * 		Argument values.
+	 * @param fallback
+	 * 		Provenance to use when there are no arguments.
+	 *
+	 * @return Union of the instructions contributing to the arguments.
+	 */
+	protected static Provenance combineArguments(List<? extends AbstractValue> arguments, Provenance fallback) {
+		Provenance provenance = null;
+		for (AbstractValue arg : arguments)
+			provenance = provenance == null ? arg.getProvenance() : provenance.combine(arg.getProvenance());
+		return provenance == null ? fallback : provenance;
+	}
+
 	/**
 	 * @return New value instance copied from current {@link #value}.
 	 */
@@ -373,7 +408,26 @@ public abstract class AbstractSimulatedValue<T> extends VirtualValue {
 	 */
 	@SuppressWarnings("unchecked")
 	public static <T> AbstractSimulatedValue<T> initialize(List<AbstractInsnNode> insns, TypeResolver typeResolver, Type type) {
-		return (AbstractSimulatedValue<T>) TYPE_PRODUCERS.get(type.getInternalName()).apply(insns, typeResolver);
+		return initialize(ListProvenance.of(insns), typeResolver, type);
+	}
+
+	/**
+	 * Create a new simulation object for the given type.
+	 *
+	 * @param provenance
+	 * 		Instructions of value.
+	 * @param typeResolver
+	 * 		Type resolver for comparison against other types.
+	 * @param type
+	 * 		Some type.
+	 * @param <T>
+	 * 		Value type.
+	 *
+	 * @return New instance of type.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> AbstractSimulatedValue<T> initialize(Provenance provenance, TypeResolver typeResolver, Type type) {
+		return (AbstractSimulatedValue<T>) TYPE_PRODUCERS.get(type.getInternalName()).apply(provenance, typeResolver);
 	}
 
 	static {
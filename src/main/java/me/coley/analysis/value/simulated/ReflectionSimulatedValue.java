@@ -5,8 +5,10 @@ import me.coley.analysis.TypeResolver;
 import me.coley.analysis.exception.SimFailedException;
 import me.coley.analysis.util.GetSet;
 import me.coley.analysis.value.AbstractValue;
+import me.coley.analysis.value.provenance.ListProvenance;
+import me.coley.analysis.value.provenance.Provenance;
+import me.coley.analysis.value.provenance.ProvenanceFactory;
 import org.objectweb.asm.Type;
-import org.objectweb.asm.tree.AbstractInsnNode;
 import org.objectweb.asm.tree.MethodInsnNode;
 
 import java.util.List;
@@ -17,22 +19,23 @@ import java.util.List;
  * @author Matt Coley
  */
 public class ReflectionSimulatedValue extends AbstractSimulatedValue<Object> {
-	protected ReflectionSimulatedValue(List<AbstractInsnNode> insns, Type type, Object value, TypeResolver typeResolver) {
-		super(insns, type, value, typeResolver);
+	protected ReflectionSimulatedValue(Provenance provenance, Type type, Object value, TypeResolver typeResolver) {
+		super(provenance, type, value, typeResolver);
 	}
 
-	protected ReflectionSimulatedValue(List<AbstractInsnNode> insns, Type type, Object value,
+	protected ReflectionSimulatedValue(Provenance provenance, Type type, Object value,
 									   GetSet<Object> resultValue, TypeResolver typeResolver) {
-		super(insns, type, value, resultValue, typeResolver);
+		super(provenance, type, value, resultValue, typeResolver);
 	}
 
 	@Override
-	protected AbstractValue create(List<AbstractInsnNode> collection) {
-		return new ReflectionSimulatedValue(collection, getType(), getValue(), resultValue, typeResolver);
+	protected AbstractValue create(Provenance provenance) {
+		return new ReflectionSimulatedValue(provenance, getType(), getValue(), resultValue, typeResolver);
 	}
 
 	/**
 	 * First, the factory is checked to see if it yields a value. If not, then the default static handling is invoked.
+	 * Values of invokes without arguments use {@link ListProvenance list provenance}.
 	 *
 	 * @param factory
 	 * 		Factory used to provide values. May be {@code null}. If
@@ -49,6 +52,30 @@ public class ReflectionSimulatedValue extends AbstractSimulatedValue<Object> {
 	public static AbstractValue ofStaticInvoke(StaticInvokeFactory factory, MethodInsnNode insn,
 											   List<? extends AbstractValue> arguments, TypeResolver typeResolver)
 			throws SimFailedException {
+		return ofStaticInvoke(factory, insn, arguments, typeResolver, ListProvenance.FACTORY);
+	}
+
+	/**
+	 * First, the factory is checked to see if it yields a value. If not, then the default static handling is invoked.
+	 *
+	 * @param factory
+	 * 		Factory used to provide values. May be {@code null}. If
+	 * @param insn
+	 * 		Method invoke instruction.
+	 * @param arguments
+	 * 		Argument values.
+	 * @param typeResolver
+	 * 		Type resolver for comparison against other types.
+	 * @param provenance
+	 * 		Provenance factory of the analyzed method, used when the invoke has no arguments.
+	 *
+	 * @return New instance from static method invoke.<br><b>Will be {@code null} if the method
+	 * could not be invoked</b>.
+	 */
+	public static AbstractValue ofStaticInvoke(StaticInvokeFactory factory, MethodInsnNode insn,
+											   List<? extends AbstractValue> arguments, TypeResolver typeResolver,
+											   ProvenanceFactory provenance)
+			throws SimFailedException {
 		String owner = insn.owner;
 		String name = insn.name;
 		String desc = insn.desc;
@@ -58,7 +85,7 @@ public class ReflectionSimulatedValue extends AbstractSimulatedValue<Object> {
 			throw new SimFailedException(insn, "Static method is not whitelisted.");
 		try {
 			return invokeStatic(insn, owner, name, Type.getMethodType(desc),
-					arguments, typeResolver);
+					arguments, typeResolver, provenance.empty());
 		} catch (Throwable t) {
 			throw new SimFailedException(insn, "Failed to invoke method", t);
 		}
@@ -4,11 +4,12 @@ import me.coley.analysis.TypeResolver;
 import me.coley.analysis.exception.SimFailedException;
 import me.coley.analysis.util.GetSet;
 import me.coley.analysis.value.AbstractValue;
+import me.coley.analysis.value.provenance.ListProvenance;
+import me.coley.analysis.value.provenance.Provenance;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.AbstractInsnNode;
 import org.objectweb.asm.tree.MethodInsnNode;
 
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -17,13 +18,13 @@ import java.util.List;
  * @author Matt Coley
  */
 public class StringSimulatedValue extends AbstractSimulatedValue<String> {
-	protected StringSimulatedValue(List<AbstractInsnNode> insns, Type type, String value, TypeResolver typeResolver) {
-		super(insns, type, value, typeResolver);
+	protected StringSimulatedValue(Provenance provenance, Type type, String value, TypeResolver typeResolver) {
+		super(provenance, type, value, typeResolver);
 	}
 
-	protected StringSimulatedValue(List<AbstractInsnNode> insns, Type type, String value,
+	protected StringSimulatedValue(Provenance provenance, Type type, String value,
 								   GetSet<String> resultValue, TypeResolver typeResolver) {
-		super(insns, type, value, resultValue, typeResolver);
+		super(provenance, type, value, resultValue, typeResolver);
 	}
 
 	/**
@@ -37,7 +38,7 @@ public class StringSimulatedValue extends AbstractSimulatedValue<String> {
 	 * @return String value.
 	 */
 	public static StringSimulatedValue of(AbstractInsnNode insn, TypeResolver typeResolver, String value) {
-		return of(Collections.singletonList(insn), typeResolver, value);
+		return of(ListProvenance.of(insn), typeResolver, value);
 	}
 
 	/**
@@ -51,12 +52,26 @@ public class StringSimulatedValue extends AbstractSimulatedValue<String> {
 	 * @return String value.
 	 */
 	public static StringSimulatedValue of(List<AbstractInsnNode> insns, TypeResolver typeResolver, String value) {
-		return new StringSimulatedValue(insns, Type.getObjectType("java/lang/String"), value, typeResolver);
+		return of(ListProvenance.of(insns), typeResolver, value);
+	}
+
+	/**
+	 * @param provenance
+	 * 		Instructions of value.
+	 * @param typeResolver
+	 * 		Type resolver for comparison against other types.
+	 * @param value
+	 * 		String.
+	 *
+	 * @return String value.
+	 */
+	public static StringSimulatedValue of(Provenance provenance, TypeResolver typeResolver, String value) {
+		return new StringSimulatedValue(provenance, Type.getObjectType("java/lang/String"), value, typeResolver);
 	}
 
 	@Override
-	protected AbstractValue create(List<AbstractInsnNode> collection) {
-		return new StringSimulatedValue(collection, getType(), (String) getValue(), resultValue, typeResolver);
+	protected AbstractValue create(Provenance provenance) {
+		return new StringSimulatedValue(provenance, getType(), (String) getValue(), resultValue, typeResolver);
 	}
 
 	@Override
@@ -0,0 +1,91 @@
+package me.coley.analysis;
+
+import me.coley.analysis.value.PrimitiveValue;
+import me.coley.analysis.value.UninitializedValue;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.InsnNode;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the storage of {@link SimFrame}, and its tracking of slots reserved by double/long locals.
+ */
+public class TestSimFrame {
+	private static final InsnNode OP = new InsnNode(Opcodes.NOP);
+
+	@Test
+	public void testReservedSlotsInheritedOnCopy() {
+		SimFrame frame = newFrame(100);
+		frame.setLocal(0, PrimitiveValue.ofLong(OP, 1L));
+		frame.setLocal(70, PrimitiveValue.ofDouble(OP, 1D));
+		assertTrue(frame.isReserved(1));
+		assertTrue(frame.isReserved(71));
+		assertFalse(frame.isReserved(2));
+		assertThrows(IllegalStateException.class, () -> frame.setLocal(1, PrimitiveValue.ofInt(OP, 0)));
+		// Copies keep the reservations, without sharing them
+		SimFrame copy = new SimFrame(frame);
+		assertTrue(copy.isReserved(1));
+		assertTrue(copy.isReserved(71));
+		copy.initJumpTarget(Opcodes.GOTO, null);
+		assertFalse(copy.isReserved(1));
+		assertTrue(frame.isReserved(1));
+		// Re-initializing from a frame without reservations drops them
+		frame.init(newFrame(100));
+		assertFalse(frame.isReserved(1));
+		assertFalse(frame.isReserved(71));
+	}
+
+	@Test
+	public void testReservedSlotsMerged() throws Exception {
+		SimInterpreter interpreter = new SimInterpreter();
+		SimFrame a = newFrame(4);
+		a.setLocal(0, PrimitiveValue.ofLong(OP, 1L));
+		a.setLocal(2, PrimitiveValue.ofLong(OP, 2L));
+		SimFrame b = newFrame(4);
+		b.setLocal(2, PrimitiveValue.ofLong(OP, 2L));
+		// Only slots reserved on both paths stay reserved
+		assertTrue(a.merge(b, interpreter));
+		assertFalse(a.isReserved(1));
+		assertTrue(a.isReserved(3));
+		assertFalse(a.merge(b, interpreter));
+	}
+
+	@Test
+	public void testCopiesDoNotAffectEachOther() throws Exception {
+		SimFrame frame = newFrame(20);
+		frame.push(PrimitiveValue.ofInt(OP, 1));
+		SimFrame copy = new SimFrame(frame);
+		SimFrame other = new SimFrame(1, 1);
+		other.init(frame);
+		// Writes to shared storage copy it first
+		copy.setLocal(3, PrimitiveValue.ofInt(OP, 3));
+		copy.setLocal(17, PrimitiveValue.ofInt(OP, 17));
+		copy.push(PrimitiveValue.ofInt(OP, 2));
+		frame.setStack(0, PrimitiveValue.ofInt(OP, 5));
+		assertSame(UninitializedValue.UNINITIALIZED_VALUE, frame.getLocal(3));
+		assertSame(UninitializedValue.UNINITIALIZED_VALUE, other.getLocal(3));
+		assertEquals(3, copy.getLocal(3).getValue());
+		assertEquals(17, copy.getLocal(17).getValue());
+		assertEquals(1, copy.getStack(0).getValue());
+		assertEquals(1, other.getStack(0).getValue());
+		assertEquals(5, frame.getStack(0).getValue());
+		assertEquals(1, frame.getStackSize());
+		assertEquals(2, copy.getStackSize());
+		assertEquals(20, other.getLocals());
+		assertEquals(4, other.getMaxStackSize());
+		// Merging a frame into a copy of itself changes nothing
+		SimInterpreter interpreter = new SimInterpreter();
+		SimFrame same = new SimFrame(copy);
+		assertFalse(same.merge(copy, interpreter));
+		assertThrows(IndexOutOfBoundsException.class, () -> frame.getLocal(20));
+		assertThrows(IndexOutOfBoundsException.class, () -> newFrame(1).pop());
+	}
+
+	private static SimFrame newFrame(int locals) {
+		SimFrame frame = new SimFrame(locals, 4);
+		for (int i = 0; i < locals; i++)
+			frame.setLocal(i, UninitializedValue.UNINITIALIZED_VALUE);
+		return frame;
+	}
+}
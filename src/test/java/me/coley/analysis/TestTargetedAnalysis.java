@@ -0,0 +1,86 @@
+package me.coley.analysis;
+
+import me.coley.analysis.value.AbstractValue;
+import me.coley.analysis.value.provenance.ProvenanceMode;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.util.Objects;
+import java.util.function.IntPredicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link SimAnalyzer#analyze(String, MethodNode, IntPredicate)} only returning requested frames.
+ */
+public class TestTargetedAnalysis extends TestUtils {
+	private static final String[] CLASSES = {
+			"bin/javac/HelloWorld.class",
+			"bin/javac/ExplodeStr.class",
+			"bin/javac/FindNArray.class",
+			"bin/javac/LongMath.class",
+			"bin/javac/SetItToNull.class",
+			"bin/javac/ZipIO.class",
+			"bin/javac/Encode.class",
+			"bin/javac/StringEquals.class"
+	};
+
+	@ParameterizedTest
+	@EnumSource(value = ProvenanceMode.class, names = {"PERSISTENT", "ON_DEMAND"})
+	public void testFramesMatchFullAnalysis(ProvenanceMode mode) throws Exception {
+		for (String path : CLASSES) {
+			ClassNode node = getFromName(path);
+			for (MethodNode method : node.methods) {
+				InsnList insns = method.instructions;
+				IntPredicate wantFrameAt = i -> insns.get(i).getOpcode() == Opcodes.INVOKESTATIC;
+				SimFrame[] full = newAnalyzer(mode).analyze(node.name, method);
+				SimAnalyzer analyzer = newAnalyzer(mode);
+				SimFrame[] targeted = analyzer.analyze(node.name, method, wantFrameAt);
+				assertSame(targeted, analyzer.getFrames());
+				assertEquals(full.length, targeted.length);
+				for (int i = 0; i < full.length; i++) {
+					if (!wantFrameAt.test(i)) {
+						assertNull(targeted[i]);
+						continue;
+					}
+					String message = node.name + "." + method.name + " @" + i;
+					assertEquals(full[i] == null, targeted[i] == null, message);
+					if (full[i] == null)
+						continue;
+					assertSame(insns.get(i), targeted[i].getInstruction(), message);
+					assertSameValues(full[i], targeted[i], message);
+					// Flow only links frames that are part of the result
+					for (SimFrame output : targeted[i].getFlowOutputs())
+						assertSame(output, targeted[insns.indexOf(output.getInstruction())], message);
+				}
+			}
+		}
+	}
+
+	private static void assertSameValues(SimFrame expected, SimFrame actual, String message) {
+		assertEquals(expected.getLocals(), actual.getLocals(), message);
+		assertEquals(expected.getStackSize(), actual.getStackSize(), message);
+		for (int i = 0; i < expected.getLocals(); i++)
+			assertSameValue(expected.getLocal(i), actual.getLocal(i), message);
+		for (int i = 0; i < expected.getStackSize(); i++) {
+			assertSameValue(expected.getStack(i), actual.getStack(i), message);
+			assertEquals(expected.getStack(i).getInsns(), actual.getStack(i).getInsns(), message);
+		}
+	}
+
+	private static void assertSameValue(AbstractValue expected, AbstractValue actual, String message) {
+		assertEquals(expected.getClass(), actual.getClass(), message);
+		assertEquals(expected.getType(), actual.getType(), message);
+		assertTrue(Objects.deepEquals(expected.getValue(), actual.getValue()), message);
+	}
+
+	private static SimAnalyzer newAnalyzer(ProvenanceMode mode) {
+		SimInterpreter interpreter = new SimInterpreter();
+		interpreter.setProvenanceMode(mode);
+		return new SimAnalyzer(interpreter);
+	}
+}
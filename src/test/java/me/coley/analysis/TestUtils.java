@@ -7,11 +7,17 @@ import org.objectweb.asm.tree.analysis.AnalyzerException;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URL;
 import java.net.URLDecoder;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
 import java.util.NavigableMap;
 import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 /**
  * Some common utilities.
@@ -41,6 +47,66 @@ public class TestUtils {
 		return classLoader.getResource(file);
 	}
 
+	/**
+	 * @param dir
+	 * 		Path to directory in classpath.
+	 *
+	 * @return Class files directly in the directory.
+	 *
+	 * @throws IOException
+	 * 		Thrown if the URL to the directory could not be created.
+	 */
+	public static File[] getClasspathClassFiles(String dir) throws IOException {
+		File[] files = getClasspathFile(dir).listFiles((d, name) -> name.endsWith(".class"));
+		Assertions.assertNotNull(files);
+		return files;
+	}
+
+	/**
+	 * Write the classes in {@code bin/javac} to a jar.
+	 *
+	 * @param dir
+	 * 		Directory to write the jar to.
+	 * @param extraEntries
+	 * 		Additional entries to write after the classes, by entry name.
+	 *
+	 * @return Path to the written jar.
+	 *
+	 * @throws IOException
+	 * 		Thrown if the jar could not be written.
+	 */
+	public static Path writeArchive(Path dir, Map<String, byte[]> extraEntries) throws IOException {
+		Path archive = dir.resolve("javac.jar");
+		try (OutputStream os = Files.newOutputStream(archive); ZipOutputStream zos = new ZipOutputStream(os)) {
+			for (File file : getClasspathClassFiles("bin/javac")) {
+				zos.putNextEntry(new ZipEntry(file.getName()));
+				zos.write(Files.readAllBytes(file.toPath()));
+				zos.closeEntry();
+			}
+			for (Map.Entry<String, byte[]> entry : extraEntries.entrySet()) {
+				zos.putNextEntry(new ZipEntry(entry.getKey()));
+				zos.write(entry.getValue());
+				zos.closeEntry();
+			}
+		}
+		return archive;
+	}
+
+	/**
+	 * Write the classes in {@code bin/javac} to a jar.
+	 *
+	 * @param dir
+	 * 		Directory to write the jar to.
+	 *
+	 * @return Path to the written jar.
+	 *
+	 * @throws IOException
+	 * 		Thrown if the jar could not be written.
+	 */
+	public static Path writeArchive(Path dir) throws IOException {
+		return writeArchive(dir, Collections.emptyMap());
+	}
+
 	/**
 	 * @param path
 	 * 		Path to class in test resources.
@@ -0,0 +1,115 @@
+package me.coley.analysis.batch;
+
+import me.coley.analysis.SimAnalyzer;
+import me.coley.analysis.SimInterpreter;
+import me.coley.analysis.TestUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for parallel analysis of many classes.
+ */
+public class TestSimBatchAnalyzer extends TestUtils {
+	@Test
+	public void testMatchesSequentialAnalysis() throws Exception {
+		List<ClassNode> classes = new ArrayList<>();
+		for (File file : javacClasses())
+			classes.add(getFromBytes(Files.readAllBytes(file.toPath())));
+		BatchConfig config = new BatchConfig().setParallelism(4);
+		List<MethodResult> results = SimBatchAnalyzer.analyzeClasses(classes, config);
+		int i = 0;
+		SimAnalyzer sequential = new SimAnalyzer(new SimInterpreter());
+		for (ClassNode node : classes)
+			for (MethodNode method : node.methods) {
+				MethodResult result = results.get(i++);
+				assertSame(method, result.getMethod());
+				assertFalse(result.isFailed(), () -> result.toString());
+				assertEquals(method.instructions.size(), result.getFrames().length);
+				MethodResult expected = SimBatchAnalyzer.analyzeMethod(sequential, node, method, false);
+				assertEquals(expected.getReachableFrameCount(), result.getReachableFrameCount());
+			}
+		assertEquals(i, results.size());
+	}
+
+	@Test
+	public void testArchive(@TempDir Path dir) throws Exception {
+		Path archive = writeMixedArchive(dir);
+		List<MethodResult> results = SimBatchAnalyzer.analyzeArchive(archive, new BatchConfig().setKeepFrames(false));
+		assertEquals(countMethods(), results.size());
+		for (MethodResult result : results) {
+			assertFalse(result.isFailed(), () -> result.toString());
+			assertNull(result.getFrames());
+			assertTrue(result.getReachableFrameCount() > 0);
+		}
+	}
+
+	@Test
+	public void testStreamingArchive(@TempDir Path dir) throws Exception {
+		Path archive = writeMixedArchive(dir);
+		BatchConfig config = new BatchConfig().setParallelism(3).setQueueCapacity(1);
+		List<MethodResult> results = new ArrayList<>();
+		Thread caller = Thread.currentThread();
+		SimStreamingAnalyzer.analyzeArchive(archive, config, result -> {
+			assertSame(caller, Thread.currentThread());
+			results.add(result);
+		});
+		assertEquals(countMethods(), results.size());
+		for (MethodResult result : results) {
+			assertFalse(result.isFailed(), () -> result.toString());
+			assertNotNull(result.getFrames());
+		}
+	}
+
+	@Test
+	public void testStreamingSinkFailure(@TempDir Path dir) throws Exception {
+		Path archive = writeMixedArchive(dir);
+		BatchConfig config = new BatchConfig().setQueueCapacity(1);
+		assertThrows(IllegalStateException.class, () -> SimStreamingAnalyzer.analyzeArchive(archive, config,
+				result -> {
+					throw new IllegalStateException();
+				}));
+	}
+
+	@Test
+	public void testStreamingSupplierFailure(@TempDir Path dir) throws Exception {
+		Path archive = writeMixedArchive(dir);
+		BatchConfig config = new BatchConfig().setParallelism(2).setQueueCapacity(1).setAnalyzerSupplier(() -> {
+			throw new IllegalStateException();
+		});
+		// Workers failing to start must still release the caller
+		assertTimeoutPreemptively(Duration.ofSeconds(30), () -> assertThrows(IllegalStateException.class,
+				() -> SimStreamingAnalyzer.analyzeArchive(archive, config, result -> fail("No results expected"))));
+	}
+
+	private static Path writeMixedArchive(Path dir) throws Exception {
+		// Non-class and malformed entries are skipped
+		Map<String, byte[]> extraEntries = new LinkedHashMap<>();
+		extraEntries.put("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\n".getBytes());
+		extraEntries.put("Junk.class", new byte[]{1, 2, 3});
+		return writeArchive(dir, extraEntries);
+	}
+
+	private static int countMethods() throws Exception {
+		int methods = 0;
+		for (File file : javacClasses())
+			methods += getFromBytes(Files.readAllBytes(file.toPath())).methods.size();
+		return methods;
+	}
+
+	private static File[] javacClasses() throws Exception {
+		return getClasspathClassFiles("bin/javac");
+	}
+}
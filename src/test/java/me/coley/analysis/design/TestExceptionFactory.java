@@ -1,6 +1,7 @@
 package me.coley.analysis.design;
 
 import me.coley.analysis.SimAnalyzer;
+import me.coley.analysis.SimFrame;
 import me.coley.analysis.SimInterpreter;
 import me.coley.analysis.TestUtils;
 import me.coley.analysis.TypeResolver;
@@ -8,6 +9,7 @@ import me.coley.analysis.cfg.BlockHandler;
 import me.coley.analysis.exception.ResolvableAnalyzerException;
 import me.coley.analysis.exception.ResolvableExceptionFactory;
 import me.coley.analysis.exception.TypeMismatchKind;
+import me.coley.analysis.exception.Validator;
 import me.coley.analysis.value.AbstractValue;
 import org.junit.jupiter.api.Test;
 import org.objectweb.asm.Type;
@@ -17,6 +19,7 @@ import org.objectweb.asm.tree.MethodNode;
 import org.objectweb.asm.tree.analysis.AnalyzerException;
 
 import java.util.List;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -45,9 +48,36 @@ public class TestExceptionFactory extends TestUtils {
 		}
 	}
 
+	@Test
+	public void testValidatorSeesFlow() throws AnalyzerException {
+		ClassNode node = getFromName("bin/custom/misc/WrongCallArgType.class");
+		for(MethodNode mn : node.methods) {
+			SimAnalyzer analyzer = new SimAnalyzer(new SimInterpreter()) {
+				@Override
+				protected ResolvableExceptionFactory createExceptionFactory() {
+					// Only resolved when the frame of the call has its control flow populated
+					return new ResolvableExceptionFactoryTestImpl(createTypeResolver(), getBlockHandler(),
+							insn -> (method, frames) -> {
+								SimFrame frame = (SimFrame) frames[method.instructions.indexOf(insn)];
+								return !frame.getFlowInputs().isEmpty() && !frame.getFlowOutputs().isEmpty();
+							});
+				}
+			};
+			assertDoesNotThrow(() -> analyzer.analyze(node.name, mn));
+		}
+	}
+
 	static class ResolvableExceptionFactoryTestImpl  extends ResolvableExceptionFactory {
+		private final Function<AbstractInsnNode, Validator> validators;
+
 		public ResolvableExceptionFactoryTestImpl(TypeResolver typeResolver, BlockHandler blockHandler) {
+			this(typeResolver, blockHandler, insn -> (methodNode, frames) -> true);
+		}
+
+		public ResolvableExceptionFactoryTestImpl(TypeResolver typeResolver, BlockHandler blockHandler,
+												  Function<AbstractInsnNode, Validator> validators) {
 			super(typeResolver, blockHandler);
+			this.validators = validators;
 		}
 
 		@Override
@@ -58,7 +88,7 @@ public class TestExceptionFactory extends TestUtils {
 														 List<? extends AbstractValue> stackValues,
 														 int argIndex,
 														 TypeMismatchKind errorType) {
-			return new ResolvableAnalyzerException((methodNode, frames) -> true, insn, "");
+			return new ResolvableAnalyzerException(validators.apply(insn), insn, "");
 		}
 	}
 }
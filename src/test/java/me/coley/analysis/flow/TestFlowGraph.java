@@ -0,0 +1,61 @@
+package me.coley.analysis.flow;
+
+import me.coley.analysis.SimAnalyzer;
+import me.coley.analysis.SimFrame;
+import me.coley.analysis.SimInterpreter;
+import me.coley.analysis.TestUtils;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the control flow edges exposed by {@link SimFrame#getFlowInputs()} and {@link SimFrame#getFlowOutputs()}.
+ */
+public class TestFlowGraph extends TestUtils {
+	@Test
+	public void testInputsMirrorOutputs() throws Exception {
+		for (String name : new String[]{"bin/javac/SetItToNull.class", "bin/javac/FindNArray.class",
+				"bin/javac/LongMath.class"}) {
+			ClassNode node = getFromName(name);
+			for (MethodNode method : node.methods) {
+				SimAnalyzer analyzer = new SimAnalyzer(new SimInterpreter());
+				// Keep edges of opaque predicates, so every jump has an edge to its target
+				analyzer.setSkipDeadCodeBlocks(false);
+				SimFrame[] frames = analyzer.analyze(node.name, method);
+				for (SimFrame frame : frames) {
+					if (frame == null)
+						continue;
+					Set<SimFrame> outputs = frame.getFlowOutputs();
+					for (SimFrame output : outputs)
+						assertTrue(output.getFlowInputs().contains(frame));
+					for (SimFrame input : frame.getFlowInputs())
+						assertTrue(input.getFlowOutputs().contains(frame));
+					// Edges are distinct, even though loops revisit them during analysis
+					assertEquals(outputs.size(), outputs.stream().distinct().count());
+					AbstractInsnNode insn = frame.getInstruction();
+					if (insn instanceof JumpInsnNode) {
+						SimFrame target = frames[method.instructions.indexOf(((JumpInsnNode) insn).label)];
+						assertTrue(outputs.contains(target));
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void testViewsAreReadOnly() throws Exception {
+		ClassNode node = getFromName("bin/javac/HelloWorld.class");
+		SimFrame[] frames = getFrames(node.name, getMethod(node, "hello"));
+		assertFalse(frames[0].getFlowOutputs().isEmpty());
+		assertTrue(frames[0].getFlowInputs().isEmpty());
+		assertThrows(UnsupportedOperationException.class, () -> frames[0].getFlowOutputs().clear());
+		assertThrows(UnsupportedOperationException.class, () -> frames[0].flowsInto(frames[1]));
+	}
+}
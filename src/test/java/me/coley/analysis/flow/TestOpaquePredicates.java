@@ -0,0 +1,84 @@
+package me.coley.analysis.flow;
+
+import me.coley.analysis.OpaquePredicateType;
+import me.coley.analysis.SimAnalyzer;
+import me.coley.analysis.SimFrame;
+import me.coley.analysis.SimInterpreter;
+import me.coley.analysis.TestUtils;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for skipping of branches made dead by opaque predicates.
+ */
+public class TestOpaquePredicates extends TestUtils {
+	@Test
+	public void testDeadBranchesAreSkipped() throws Exception {
+		ClassNode node = getFromName("bin/custom/misc/OpaqueYodaHelloWorld.class");
+		MethodNode method = getMethod(node, "main");
+		SimAnalyzer analyzer = new SimAnalyzer(new SimInterpreter());
+		SimFrame[] frames = analyzer.analyze(node.name, method);
+		// 'if_icmpeq' on two equal constants always jumps, so the 'goto' it jumps over is dead
+		AbstractInsnNode jump = firstOf(method, Opcodes.IF_ICMPEQ);
+		AbstractInsnNode deadGoto = firstOf(method, Opcodes.GOTO);
+		assertEquals(OpaquePredicateType.GOTO_DESTINATION, analyzer.getOpaqueHandler().getOpaqueJumpMap().get(jump));
+		assertNull(frames[method.instructions.indexOf(deadGoto)]);
+		assertNotNull(frames[method.instructions.indexOf(firstOf(method, Opcodes.INVOKEVIRTUAL))]);
+		// The skipped edge is not recorded as control flow
+		SimFrame jumpFrame = frames[method.instructions.indexOf(jump)];
+		assertEquals(1, jumpFrame.getFlowOutputs().size());
+	}
+
+	@Test
+	public void testNeverTakenJumpTargetIsSkipped() throws Exception {
+		// 'if_icmpeq' on two different constants never jumps, so its target is dead
+		MethodNode method = new MethodNode(Opcodes.ACC_STATIC, "m", "()I", null, null);
+		LabelNode target = new LabelNode();
+		JumpInsnNode jump = new JumpInsnNode(Opcodes.IF_ICMPEQ, target);
+		method.instructions.add(new InsnNode(Opcodes.ICONST_1));
+		method.instructions.add(new InsnNode(Opcodes.ICONST_2));
+		method.instructions.add(jump);
+		method.instructions.add(new InsnNode(Opcodes.ICONST_0));
+		method.instructions.add(new InsnNode(Opcodes.IRETURN));
+		method.instructions.add(target);
+		method.instructions.add(new InsnNode(Opcodes.ICONST_1));
+		method.instructions.add(new InsnNode(Opcodes.IRETURN));
+		method.maxStack = 2;
+		SimAnalyzer analyzer = new SimAnalyzer(new SimInterpreter());
+		SimFrame[] frames = analyzer.analyze("Owner", method);
+		assertEquals(OpaquePredicateType.FALL_THROUGH, analyzer.getOpaqueHandler().getOpaqueJumpMap().get(jump));
+		assertNull(frames[method.instructions.indexOf(target)]);
+		assertNotNull(frames[method.instructions.indexOf(jump) + 1]);
+		// Only the fall-through edge is recorded as control flow
+		SimFrame jumpFrame = frames[method.instructions.indexOf(jump)];
+		assertEquals(1, jumpFrame.getFlowOutputs().size());
+		assertTrue(jumpFrame.getFlowOutputs().contains(frames[method.instructions.indexOf(jump) + 1]));
+	}
+
+	@Test
+	public void testDeadBranchesAreVisitedWhenNotSkipping() throws Exception {
+		ClassNode node = getFromName("bin/custom/misc/OpaqueYodaHelloWorld.class");
+		MethodNode method = getMethod(node, "main");
+		SimAnalyzer analyzer = new SimAnalyzer(new SimInterpreter());
+		analyzer.setSkipDeadCodeBlocks(false);
+		SimFrame[] frames = analyzer.analyze(node.name, method);
+		assertTrue(analyzer.getOpaqueHandler().getOpaqueJumpMap().isEmpty());
+		assertNotNull(frames[method.instructions.indexOf(firstOf(method, Opcodes.GOTO))]);
+		assertSame(frames, analyzer.getFrames());
+	}
+
+	private static AbstractInsnNode firstOf(MethodNode method, int op) {
+		for (AbstractInsnNode insn : method.instructions)
+			if (insn.getOpcode() == op)
+				return insn;
+		throw new IllegalStateException("No instruction with opcode: " + op);
+	}
+}
@@ -0,0 +1,381 @@
+package me.coley.analysis.util;
+
+import me.coley.analysis.TestUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for building and querying the inheritance graph.
+ */
+public class TestInheritanceGraph extends TestUtils {
+	@Test
+	public void testParallelArchiveMatchesSerial(@TempDir Path dir) throws Exception {
+		File archive = writeArchive(dir).toFile();
+		InheritanceGraph serial = new InheritanceGraph();
+		serial.addArchive(archive);
+		InheritanceGraph parallel = new InheritanceGraph();
+		parallel.addArchive(archive, 4);
+		for (String name : new String[]{"Encode", "HelloWorld", "Pair", "ZipIO"}) {
+			assertTrue(parallel.hasParentLookup(name));
+			assertEquals(serial.getParents(name), parallel.getParents(name));
+		}
+		assertEquals(serial.getChildren("java/lang/Object"), parallel.getChildren("java/lang/Object"));
+	}
+
+	@Test
+	public void testParallelModulePath() {
+		InheritanceGraph serial = new InheritanceGraph();
+		assertTrue(serial.addModulePath());
+		InheritanceGraph parallel = new InheritanceGraph();
+		assertTrue(parallel.addModulePath(4));
+		assertTrue(parallel.getAllParents("java/util/ArrayList").contains("java/util/Collection"));
+		for (String name : new String[]{"java/lang/Object", "java/util/AbstractList", "java/lang/Exception"})
+			assertEquals(serial.getChildren(name), parallel.getChildren(name));
+	}
+
+	@Test
+	public void testCompactMatchesGraph() {
+		InheritanceGraph graph = new InheritanceGraph();
+		assertTrue(graph.addModulePath());
+		graph.add("a/Child", Arrays.asList("java/util/ArrayList", "a/Missing"));
+		CompactInheritanceGraph compact = graph.compact();
+		String[] names = {"java/lang/Object", "java/util/ArrayList", "java/util/LinkedList", "java/util/List",
+				"java/lang/Integer", "java/lang/Long", "java/io/IOException", "java/lang/RuntimeException",
+				"a/Child", "a/Missing", "a/Unknown"};
+		for (String name : names) {
+			assertEquals(graph.hasParentLookup(name), compact.hasParentLookup(name), name);
+			assertEquals(graph.hasChildrenLookup(name), compact.hasChildrenLookup(name), name);
+			assertEquals(graph.getParents(name), compact.getParents(name), name);
+			assertEquals(graph.getChildren(name), compact.getChildren(name), name);
+			assertEquals(graph.getAllParents(name), compact.getAllParents(name), name);
+			assertEquals(graph.getAllChildren(name), compact.getAllChildren(name), name);
+			for (String other : names) {
+				assertEquals(graph.isAssignableFrom(name, other), compact.isAssignableFrom(name, other),
+						name + " " + other);
+				assertEquals(graph.getCommon(name, other), compact.getCommon(name, other), name + " " + other);
+			}
+		}
+		assertEquals("java/util/ArrayList", compact.getName(compact.getId("java/util/ArrayList")));
+		assertEquals(-1, compact.getId("a/Unknown"));
+		assertTrue(compact.isAssignableFrom("java/util/List", "a/Child"));
+		assertFalse(compact.isAssignableFrom("a/Child", "java/util/List"));
+		assertThrows(UnsupportedOperationException.class, () -> compact.add("b/Child", Collections.emptySet()));
+		assertThrows(UnsupportedOperationException.class, compact::addModulePathLazily);
+		assertThrows(UnsupportedOperationException.class, compact::addModulePath);
+		assertEquals(compact.getAllParents("a/Child"), compact.copy().getAllParents("a/Child"));
+		// Lookups are views over the rows of the graph
+		assertTrue(compact.getAllChildren("java/util/AbstractList").contains("a/Child"));
+		assertTrue(compact.getChildren("java/util/ArrayList").contains("a/Child"));
+		assertTrue(compact.getParents("a/Child").contains("a/Missing"));
+		assertFalse(compact.getAllParents("a/Child").contains("a/Unknown"));
+		assertFalse(compact.getAllParents("a/Child").contains(1));
+		assertThrows(UnsupportedOperationException.class, () -> compact.getAllChildren("java/util/List").clear());
+		assertThrows(UnsupportedOperationException.class, () -> compact.getParents("a/Child").remove("a/Missing"));
+	}
+
+	@Test
+	public void testCommonKeepsCachedParents() {
+		InheritanceGraph graph = new InheritanceGraph();
+		graph.add("a/Child", Collections.singleton("a/Parent"));
+		graph.add("a/Parent", Collections.singleton("java/lang/Object"));
+		graph.add("a/Other", Collections.singleton("a/Parent"));
+		assertEquals("a/Parent", graph.getCommon("a/Child", "a/Other"));
+		assertEquals("a/Child", graph.getCommon("a/Child", "a/Child"));
+		assertFalse(graph.getAllParents("a/Child").contains("a/Child"));
+		assertThrows(UnsupportedOperationException.class, () -> graph.getAllParents("a/Child").add("a/Child"));
+	}
+
+	@Test
+	public void testReplaceAndRemove() {
+		InheritanceGraph graph = new InheritanceGraph();
+		graph.add("a/A", Collections.singleton("java/lang/Object"));
+		graph.add("a/B", Collections.singleton("a/A"));
+		graph.add("a/C", Collections.singleton("a/B"));
+		graph.add("a/X", Collections.singleton("java/lang/Object"));
+		graph.add("a/Y", Collections.singleton("a/X"));
+		// Populate caches
+		assertEquals(set("a/B", "a/A", "java/lang/Object"), graph.getAllParents("a/C"));
+		assertEquals(set("a/B", "a/C"), graph.getAllChildren("a/A"));
+		assertEquals(set("a/Y"), graph.getAllChildren("a/X"));
+		Set<String> unrelated = graph.getAllParents("a/Y");
+		// Move B, and with it C, under X
+		graph.replace("a/B", set("a/X"));
+		assertEquals(set("a/B", "a/X", "java/lang/Object"), graph.getAllParents("a/C"));
+		assertEquals(Collections.emptySet(), graph.getAllChildren("a/A"));
+		assertFalse(graph.hasChildrenLookup("a/A"));
+		assertEquals(set("a/Y", "a/B", "a/C"), graph.getAllChildren("a/X"));
+		assertEquals("a/X", graph.getCommon("a/C", "a/Y"));
+		assertSame(unrelated, graph.getAllParents("a/Y"));
+		// Adding an existing class also replaces it
+		graph.add("a/B", Collections.singleton("a/A"));
+		assertEquals(set("a/Y"), graph.getAllChildren("a/X"));
+		assertEquals(set("a/B", "a/A", "java/lang/Object"), graph.getAllParents("a/C"));
+		// Removing keeps the class as a parent of its children
+		assertTrue(graph.remove("a/B"));
+		assertFalse(graph.remove("a/B"));
+		assertFalse(graph.hasParentLookup("a/B"));
+		assertEquals(set("a/B"), graph.getAllParents("a/C"));
+		assertEquals(Collections.emptySet(), graph.getAllChildren("a/A"));
+		assertEquals(set("a/C"), graph.getChildren("a/B"));
+	}
+
+	@Test
+	public void testReplaceCopiesParents() {
+		InheritanceGraph graph = new InheritanceGraph();
+		Set<String> parents = set("a/B", null);
+		graph.replace("a/A", parents);
+		assertEquals(set("a/B"), graph.getAllParents("a/A"));
+		// Changes to the given set do not affect the graph
+		parents.add("a/C");
+		assertEquals(set("a/B"), graph.getParents("a/A"));
+		assertEquals(set("a/B"), graph.getAllParents("a/A"));
+		assertTrue(graph.getChildren("a/C").isEmpty());
+		// Immutable sets are accepted
+		graph.replace("a/A", Collections.singleton("a/C"));
+		assertEquals(set("a/C"), graph.getAllParents("a/A"));
+		assertEquals(set("a/A"), graph.getChildren("a/C"));
+	}
+
+	@Test
+	public void testConcurrentQueries() throws Exception {
+		InheritanceGraph graph = new InheritanceGraph();
+		assertTrue(graph.addModulePath(4));
+		CompactInheritanceGraph expected = graph.compact();
+		String[] names = {"java/util/ArrayList", "java/util/LinkedList", "java/util/HashSet", "java/lang/Integer",
+				"java/lang/Long", "java/io/IOException", "java/lang/IllegalStateException", "java/lang/Object"};
+		ExecutorService service = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < 8; t++) {
+				int seed = t;
+				futures.add(service.submit(() -> {
+					for (int i = 0; i < 2000; i++) {
+						String first = names[(seed + i) % names.length];
+						String second = names[(seed * 3 + i * 7) % names.length];
+						assertEquals(expected.getCommon(first, second), graph.getCommon(first, second));
+						assertEquals(expected.getAllParents(first), graph.getAllParents(first));
+						// Additions while other threads query
+						graph.add("t" + seed + "/C" + i, Collections.singleton(first));
+					}
+				}));
+			}
+			for (Future<?> future : futures)
+				future.get();
+		} finally {
+			service.shutdown();
+		}
+		assertEquals(expected.getChildren("java/util/ArrayList").size() + 2000,
+				graph.getChildren("java/util/ArrayList").size());
+		assertTrue(graph.hasParentLookup("t7/C1999"));
+	}
+
+	@Test
+	public void testConcurrentUpdatesOfSameClass() throws Exception {
+		String[] parents = {"a/P0", "a/P1", "a/P2", "a/P3", "a/P4", "a/P5", "a/P6", "a/P7"};
+		ExecutorService service = Executors.newFixedThreadPool(8);
+		try {
+			for (int round = 0; round < 200; round++) {
+				InheritanceGraph graph = new InheritanceGraph();
+				List<Future<?>> futures = new ArrayList<>();
+				for (int t = 0; t < 8; t++) {
+					String parent = parents[t];
+					// Same class added with different parents, like duplicate entries across archives
+					futures.add(service.submit(() -> {
+						for (int i = 0; i < 50; i++)
+							graph.add("a/C", set(parent));
+					}));
+				}
+				for (Future<?> future : futures)
+					future.get();
+				Set<String> actual = graph.getParents("a/C");
+				for (String parent : parents)
+					assertEquals(actual.contains(parent), graph.getChildren(parent).contains("a/C"), parent);
+			}
+		} finally {
+			service.shutdown();
+		}
+	}
+
+	@Test
+	public void testCachedParentsAfterConcurrentReplace() throws Exception {
+		ExecutorService service = Executors.newFixedThreadPool(4);
+		try {
+			for (int round = 0; round < 200; round++) {
+				InheritanceGraph graph = new InheritanceGraph();
+				graph.add("x/C", set("x/B"));
+				graph.add("x/B", set("x/P0"));
+				List<Future<?>> futures = new ArrayList<>();
+				for (int t = 0; t < 3; t++)
+					futures.add(service.submit(() -> {
+						for (int i = 0; i < 200; i++)
+							assertTrue(graph.getAllParents("x/C").contains("x/B"));
+					}));
+				futures.add(service.submit(() -> {
+					for (int i = 1; i <= 200; i++)
+						graph.replace("x/B", set("x/P" + i));
+				}));
+				for (Future<?> future : futures)
+					future.get();
+				// Lookups racing the last replacement must not have cached an outdated result
+				assertEquals(set("x/B", "x/P200"), graph.getAllParents("x/C"));
+			}
+		} finally {
+			service.shutdown();
+		}
+	}
+
+	@Test
+	public void testLazyModulePath() {
+		InheritanceGraph eager = new InheritanceGraph();
+		assertTrue(eager.addModulePath());
+		InheritanceGraph lazy = new InheritanceGraph();
+		assertTrue(lazy.addModulePathLazily());
+		assertTrue(lazy.getChildren("java/util/AbstractList").isEmpty());
+		for (String name : new String[]{"java/util/ArrayList", "java/lang/IllegalStateException",
+				"java/util/concurrent/ConcurrentHashMap", "javax/swing/JButton"}) {
+			assertTrue(lazy.hasParentLookup(name), name);
+			assertEquals(eager.getParents(name), lazy.getParents(name), name);
+			assertEquals(eager.getAllParents(name), lazy.getAllParents(name), name);
+		}
+		assertEquals(eager.getCommon("java/util/ArrayList", "java/util/LinkedList"),
+				lazy.getCommon("java/util/ArrayList", "java/util/LinkedList"));
+		// Only looked up types were resolved
+		assertTrue(lazy.getChildren("java/util/AbstractList").contains("java/util/ArrayList"));
+		assertFalse(lazy.getChildren("java/util/AbstractList").contains("java/util/Vector"));
+		assertFalse(lazy.hasParentLookup("a/Missing"));
+		assertFalse(lazy.hasParentLookup("java/lang/Missing"));
+		assertTrue(lazy.remove("java/util/ArrayList"));
+		assertFalse(lazy.hasParentLookup("java/util/ArrayList"));
+	}
+
+	@Test
+	public void testLazyModulePathCaches() {
+		InheritanceGraph graph = new InheritanceGraph();
+		graph.add("x/C", set("java/util/ArrayList"));
+		assertEquals(set("java/util/ArrayList"), graph.getAllParents("x/C"));
+		// Lookups cached before system classes could be resolved are dropped
+		assertTrue(graph.addModulePathLazily());
+		Set<String> parents = graph.getAllParents("x/C");
+		assertTrue(parents.contains("java/util/List"));
+		// Classes resolved during a lookup do not prevent caching it
+		assertSame(parents, graph.getAllParents("x/C"));
+		assertSame(graph.getAllParents("java/util/HashMap"), graph.getAllParents("java/util/HashMap"));
+		// Resolved classes are added to cached children of their ancestors
+		assertFalse(graph.getAllChildren("java/util/AbstractList").contains("java/util/Vector"));
+		assertTrue(graph.hasParentLookup("java/util/Vector"));
+		assertTrue(graph.getAllChildren("java/util/AbstractList").contains("java/util/Vector"));
+		assertSame(parents, graph.getAllParents("x/C"));
+	}
+
+	@Test
+	public void testSnapshot(@TempDir Path dir) throws Exception {
+		InheritanceGraph graph = new InheritanceGraph();
+		graph.addArchive(writeArchive(dir).toFile());
+		graph.add("a/Child", Arrays.asList("a/Parent", "a/Interface\u00e9"));
+		graph.add("a/Parent", Collections.emptySet());
+		Path snapshot = dir.resolve("graph.bin");
+		graph.save(snapshot);
+		InheritanceGraph loaded = InheritanceGraph.load(snapshot);
+		Set<String> names = new HashSet<>(Arrays.asList("a/Child", "a/Parent", "a/Interface\u00e9", "a/Missing",
+				"java/lang/Object", "Encode", "ZipIO"));
+		for (String name : names) {
+			assertEquals(graph.hasParentLookup(name), loaded.hasParentLookup(name), name);
+			assertEquals(graph.hasChildrenLookup(name), loaded.hasChildrenLookup(name), name);
+			assertEquals(graph.getParents(name), loaded.getParents(name), name);
+			assertEquals(graph.getChildren(name), loaded.getChildren(name), name);
+			assertEquals(graph.getAllParents(name), loaded.getAllParents(name), name);
+		}
+		assertEquals("a/Parent", loaded.getCommon("a/Child", "a/Parent"));
+		assertThrows(UnsupportedOperationException.class, () -> loaded.add("b/Child", Collections.emptySet()));
+		assertThrows(UnsupportedOperationException.class, loaded::addModulePathLazily);
+		assertThrows(UnsupportedOperationException.class, loaded::addModulePath);
+		// Copies are modifiable, and saving a loaded graph yields the same snapshot
+		InheritanceGraph copy = loaded.copy();
+		copy.add("b/Child", Collections.singleton("a/Child"));
+		assertEquals(Collections.singleton("b/Child"), copy.getChildren("a/Child"));
+		Path resaved = dir.resolve("graph2.bin");
+		loaded.save(resaved);
+		assertArrayEquals(Files.readAllBytes(snapshot), Files.readAllBytes(resaved));
+		assertThrows(IOException.class, () -> InheritanceGraph.load(dir.resolve("javac.jar")));
+	}
+
+	@Test
+	public void testSnapshotDuringAdditions(@TempDir Path dir) throws Exception {
+		InheritanceGraph graph = new InheritanceGraph();
+		graph.add("c/C0", Collections.singleton("java/lang/Object"));
+		ExecutorService service = Executors.newSingleThreadExecutor();
+		try {
+			Future<?> additions = service.submit(() -> {
+				for (int i = 1; i < 20000; i++)
+					graph.add("c/C" + i, Collections.singleton("c/C" + (i - 1)));
+			});
+			for (int round = 0; !additions.isDone() || round < 2; round++) {
+				Path snapshot = dir.resolve("graph" + round + ".bin");
+				graph.save(snapshot);
+				// Every snapshot is loadable, with children matching the parents
+				InheritanceGraph loaded = InheritanceGraph.load(snapshot);
+				int i = 1;
+				while (loaded.hasParentLookup("c/C" + i)) {
+					assertEquals(Collections.singleton("c/C" + i), loaded.getChildren("c/C" + (i - 1)));
+					i++;
+				}
+				assertEquals(Collections.emptySet(), loaded.getChildren("c/C" + (i - 1)));
+			}
+			additions.get();
+		} finally {
+			service.shutdown();
+		}
+	}
+
+	@Test
+	public void testHeaderMatchesClassReader() throws Exception {
+		try (Stream<Path> paths = Files.walk(getClasspathFile("bin").toPath())) {
+			for (Path path : (Iterable<Path>) paths.filter(p -> p.toString().endsWith(".class"))::iterator) {
+				byte[] code = Files.readAllBytes(path);
+				ClassReader reader;
+				try {
+					reader = new ClassReader(code);
+				} catch (RuntimeException ex) {
+					continue;
+				}
+				// Offset within a larger buffer, to check the slice is read in place
+				ByteBuffer buffer = ByteBuffer.allocate(code.length + 7);
+				buffer.position(5);
+				buffer.put(code);
+				buffer.position(5).limit(5 + code.length);
+				for (ClassHeader header : new ClassHeader[]{ClassHeader.read(code), ClassHeader.read(buffer)}) {
+					assertEquals(reader.getClassName(), header.getName(), path::toString);
+					assertEquals(reader.getSuperName(), header.getSuperName(), path::toString);
+					assertArrayEquals(reader.getInterfaces(), header.getInterfaces(), path::toString);
+				}
+				assertEquals(5, buffer.position());
+			}
+		}
+		assertThrows(IllegalArgumentException.class, () -> ClassHeader.read(new byte[]{1, 2, 3}));
+		assertThrows(IllegalArgumentException.class, () -> ClassHeader.read(new byte[]{(byte) 0xCA, (byte) 0xFE,
+				(byte) 0xBA, (byte) 0xBE, 0, 0, 0, 52, 0, 2, 1, 0, 9}));
+	}
+
+	private static Set<String> set(String... names) {
+		return new HashSet<>(Arrays.asList(names));
+	}
+}
@@ -0,0 +1,75 @@
+package me.coley.analysis.util;
+
+import me.coley.analysis.SimAnalyzer;
+import me.coley.analysis.SimInterpreter;
+import me.coley.analysis.TypeResolver;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.Type;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the built-in type resolvers.
+ */
+public class TestTypeResolver {
+	@Test
+	public void testGraphTypeResolver() {
+		InheritanceGraph graph = new InheritanceGraph();
+		assertTrue(graph.addModulePath());
+		GraphTypeResolver resolver = new GraphTypeResolver(graph, 2);
+		Type list = Type.getObjectType("java/util/List");
+		Type arrayList = Type.getObjectType("java/util/ArrayList");
+		Type linkedList = Type.getObjectType("java/util/LinkedList");
+		for (int i = 0; i < 2; i++) {
+			// Second pass is answered from the cache, with evictions due to the small cache size
+			assertTrue(resolver.isAssignableFrom(list, arrayList));
+			assertFalse(resolver.isAssignableFrom(arrayList, list));
+			assertTrue(resolver.isAssignableFrom(TypeUtil.OBJECT_TYPE, Type.getType("[I")));
+			assertTrue(resolver.isAssignableFrom(Type.getType("[Ljava/util/List;"),
+					Type.getType("[Ljava/util/ArrayList;")));
+			assertFalse(resolver.isAssignableFrom(Type.getType("[J"), Type.getType("[I")));
+			assertEquals(graph.getCommon("java/util/ArrayList", "java/util/LinkedList"),
+					resolver.common(arrayList, linkedList).getInternalName());
+			assertEquals(Type.getType("[" + resolver.common(arrayList, linkedList).getDescriptor()),
+					resolver.common(Type.getType("[Ljava/util/ArrayList;"), Type.getType("[Ljava/util/LinkedList;")));
+			assertEquals(TypeUtil.OBJECT_TYPE, resolver.common(Type.getType("[I"), Type.getType("[J")));
+			assertEquals(Type.getObjectType("java/lang/RuntimeException"),
+					resolver.commonException(Type.getObjectType("java/lang/IllegalStateException"),
+							Type.getObjectType("java/lang/IllegalArgumentException")));
+			assertEquals(TypeUtil.EXCEPTION_TYPE, resolver.commonException(Type.getObjectType("a/Unknown"),
+					Type.getObjectType("b/Unknown")));
+		}
+	}
+
+	@Test
+	public void testReflectionTypeResolver() {
+		ReflectionTypeResolver resolver = new ReflectionTypeResolver();
+		Type list = Type.getObjectType("java/util/List");
+		Type arrayList = Type.getObjectType("java/util/ArrayList");
+		Type missing = Type.getObjectType("a/Missing");
+		for (int i = 0; i < 2; i++) {
+			assertTrue(resolver.isAssignableFrom(list, arrayList));
+			assertFalse(resolver.isAssignableFrom(arrayList, list));
+			assertFalse(resolver.isAssignableFrom(list, missing));
+			assertFalse(resolver.isAssignableFrom(missing, arrayList));
+			assertEquals(TypeUtil.OBJECT_TYPE, resolver.common(list, arrayList));
+			assertEquals(list, resolver.common(list, list));
+		}
+	}
+
+	@Test
+	public void testAnalyzerSharesResolver() {
+		SimInterpreter interpreter = new SimInterpreter();
+		new SimAnalyzer(interpreter) {
+			int created;
+
+			@Override
+			protected TypeResolver createTypeResolver() {
+				assertEquals(0, created++);
+				return super.createTypeResolver();
+			}
+		};
+		assertNotNull(interpreter.getTypeResolver());
+		assertSame(interpreter.getTypeResolver(), interpreter.getExceptionFactory().getTypeResolver());
+	}
+}
@@ -0,0 +1,77 @@
+package me.coley.analysis.util;
+
+import me.coley.analysis.TypeResolver;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.Type;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for sub-typing and promotion rules of {@link TypeUtil}, and the {@link TypeCache}.
+ */
+public class TestTypeUtil {
+	@Test
+	public void testSubTypeOf() {
+		TypeResolver resolver = new ReflectionTypeResolver();
+		Type list = Type.getObjectType("java/util/List");
+		Type arrayList = Type.getObjectType("java/util/ArrayList");
+		// Primitives
+		assertTrue(TypeUtil.isSubTypeOf(resolver, Type.BOOLEAN_TYPE, Type.INT_TYPE));
+		assertTrue(TypeUtil.isSubTypeOf(resolver, Type.INT_TYPE, Type.BOOLEAN_TYPE));
+		assertTrue(TypeUtil.isSubTypeOf(resolver, Type.INT_TYPE, Type.LONG_TYPE));
+		assertFalse(TypeUtil.isSubTypeOf(resolver, Type.LONG_TYPE, Type.INT_TYPE));
+		assertFalse(TypeUtil.isSubTypeOf(resolver, Type.INT_TYPE, TypeUtil.OBJECT_TYPE));
+		assertFalse(TypeUtil.isSubTypeOf(resolver, TypeUtil.OBJECT_TYPE, Type.INT_TYPE));
+		// Objects
+		assertTrue(TypeUtil.isSubTypeOf(resolver, arrayList, list));
+		assertFalse(TypeUtil.isSubTypeOf(resolver, list, arrayList));
+		assertTrue(TypeUtil.isSubTypeOf(resolver, list, TypeUtil.OBJECT_TYPE));
+		assertFalse(TypeUtil.isSubTypeOf(resolver, null, list));
+		assertFalse(TypeUtil.isSubTypeOf(resolver, list, null));
+		// Arrays, repeated so the second pass uses cached element types
+		for (int i = 0; i < 2; i++) {
+			assertTrue(TypeUtil.isSubTypeOf(resolver, Type.getType("[Ljava/util/ArrayList;"),
+					Type.getType("[Ljava/util/List;")));
+			assertFalse(TypeUtil.isSubTypeOf(resolver, Type.getType("[Ljava/util/List;"),
+					Type.getType("[Ljava/util/ArrayList;")));
+			assertTrue(TypeUtil.isSubTypeOf(resolver, Type.getType("[B"), TypeUtil.BOOLEAN_ARRAY_TYPE));
+			assertFalse(TypeUtil.isSubTypeOf(resolver, Type.getType("[J"), TypeUtil.INT_ARRAY_TYPE));
+			assertTrue(TypeUtil.isSubTypeOf(resolver, Type.getType("[[I"), Type.getType("[Ljava/lang/Object;")));
+			assertFalse(TypeUtil.isSubTypeOf(resolver, Type.getType("[Ljava/lang/Object;"), Type.getType("[[I")));
+			assertFalse(TypeUtil.isSubTypeOf(resolver, Type.getType("[[I"), Type.getType("[Ljava/util/List;")));
+			assertTrue(TypeUtil.isSubTypeOf(resolver, Type.getType("[I"), TypeUtil.OBJECT_TYPE));
+		}
+	}
+
+	@Test
+	public void testPromotionIndex() {
+		assertTrue(TypeUtil.getPromotionIndex(Type.BYTE) < TypeUtil.getPromotionIndex(Type.INT));
+		assertTrue(TypeUtil.getPromotionIndex(Type.INT) < TypeUtil.getPromotionIndex(Type.FLOAT));
+		assertTrue(TypeUtil.getPromotionIndex(Type.DOUBLE) < TypeUtil.getPromotionIndex(Type.LONG));
+		assertEquals(-1, TypeUtil.getPromotionIndex(Type.METHOD));
+		assertEquals(-1, TypeUtil.getPromotionIndex(-1));
+		assertEquals(Type.FLOAT_TYPE, TypeUtil.commonMathType(Type.INT_TYPE, Type.FLOAT_TYPE));
+	}
+
+	@Test
+	public void testTypeCache() {
+		TypeCache cache = new TypeCache(2);
+		String desc = "(Ljava/lang/String;[IJ)Ljava/util/List;";
+		Type[] args = cache.getArgumentTypes(desc);
+		assertArrayEquals(Type.getArgumentTypes(desc), args);
+		assertSame(args, cache.getArgumentTypes(desc));
+		assertSame(cache.getReturnType(desc), cache.getReturnType(desc));
+		assertEquals(Type.getObjectType("java/util/List"), cache.getReturnType(desc));
+		assertEquals(Type.getMethodType(desc), cache.getMethodType(desc));
+		assertSame(cache.getObjectType("java/lang/String"), cache.getObjectType("java/lang/String"));
+		assertEquals(Type.getType("[Ljava/lang/String;"), cache.getArrayType(cache.getObjectType("java/lang/String")));
+		assertEquals(Type.getType("[[I"), cache.getArrayType(Type.getType("[I")));
+		assertEquals(Type.getType("[I"), cache.getComponentType(Type.getType("[[I")));
+		assertEquals(Type.getObjectType("java/lang/String"), cache.getComponentType(Type.getType("[Ljava/lang/String;")));
+		assertSame(cache.getComponentType(Type.getType("[[I")), cache.getComponentType(Type.getType("[[I")));
+		// Exceeding the limit clears the cache, results stay correct
+		for (String name : new String[]{"a/A", "b/B", "c/C", "java/lang/String"})
+			assertEquals(Type.getObjectType(name), cache.getObjectType(name));
+		assertEquals(Type.INT_TYPE, cache.getType("I"));
+	}
+}
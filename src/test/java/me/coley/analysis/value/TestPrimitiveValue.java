@@ -0,0 +1,79 @@
+package me.coley.analysis.value;
+
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.InsnNode;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestPrimitiveValue {
+	private static final InsnNode OP = new InsnNode(Opcodes.NOP);
+
+	@Test
+	public void testIntMath() {
+		PrimitiveValue a = (PrimitiveValue) PrimitiveValue.ofInt(OP, 7);
+		PrimitiveValue b = (PrimitiveValue) PrimitiveValue.ofInt(OP, 2);
+		assertEquals(9, a.add(OP, b).getIntValue());
+		assertEquals(5, a.sub(OP, b).getIntValue());
+		assertEquals(14, a.mul(OP, b).getIntValue());
+		assertEquals(3, a.div(OP, b).getIntValue());
+		assertEquals(1, a.rem(OP, b).getIntValue());
+		assertEquals(28, a.shl(OP, b).getIntValue());
+		assertEquals(1, a.shr(OP, b).getIntValue());
+		assertEquals(2, a.and(OP, b).getIntValue());
+		assertEquals(7, a.or(OP, b).getIntValue());
+		assertEquals(5, a.xor(OP, b).getIntValue());
+		assertEquals(-1 >>> 2, ((PrimitiveValue) PrimitiveValue.ofInt(OP, -1)).ushr(OP, b).getIntValue());
+		assertEquals(Integer.valueOf(9), a.add(OP, b).getValue());
+	}
+
+	@Test
+	public void testWideMath() {
+		PrimitiveValue l = (PrimitiveValue) PrimitiveValue.ofLong(OP, Long.MAX_VALUE);
+		PrimitiveValue i = (PrimitiveValue) PrimitiveValue.ofInt(OP, 1);
+		PrimitiveValue sum = l.add(OP, i);
+		assertEquals(Type.LONG_TYPE, sum.getType());
+		assertEquals(Long.MIN_VALUE, sum.getValue());
+		PrimitiveValue d = (PrimitiveValue) PrimitiveValue.ofDouble(OP, 0.5);
+		PrimitiveValue f = (PrimitiveValue) PrimitiveValue.ofFloat(OP, 1.5F);
+		assertEquals(2.0, d.add(OP, f).getValue());
+		assertEquals(3.0F, f.mul(OP, PrimitiveValue.ofFloat(OP, 2F)).getValue());
+	}
+
+	@Test
+	public void testDivideByZeroIsUnresolved() {
+		PrimitiveValue a = (PrimitiveValue) PrimitiveValue.ofInt(OP, 7);
+		PrimitiveValue zero = (PrimitiveValue) PrimitiveValue.ofInt(OP, 0);
+		assertTrue(a.div(OP, zero).isValueUnresolved());
+		assertTrue(a.rem(OP, zero).isValueUnresolved());
+		PrimitiveValue f = (PrimitiveValue) PrimitiveValue.ofFloat(OP, 1F);
+		assertEquals(Float.POSITIVE_INFINITY, f.div(OP, PrimitiveValue.ofFloat(OP, 0F)).getValue());
+	}
+
+	@Test
+	public void testUnresolvedOperand() {
+		PrimitiveValue a = (PrimitiveValue) PrimitiveValue.ofInt(OP, 7);
+		PrimitiveValue unknown = new PrimitiveValue(OP, Type.INT_TYPE);
+		PrimitiveValue result = a.add(OP, unknown);
+		assertTrue(result.isValueUnresolved());
+		assertNull(result.getValue());
+		assertThrows(IllegalStateException.class, () -> a.shl(OP, PrimitiveValue.ofFloat(OP, 1F)));
+	}
+
+	@Test
+	public void testEquality() {
+		assertEquals(PrimitiveValue.ofInt(OP, 5), PrimitiveValue.ofByte(OP, (byte) 5));
+		assertEquals(PrimitiveValue.ofInt(OP, 5).hashCode(), PrimitiveValue.ofShort(OP, (short) 5).hashCode());
+		assertEquals(PrimitiveValue.ofFloat(OP, Float.NaN), PrimitiveValue.ofFloat(OP, 0F / 0F));
+		assertNotEquals(PrimitiveValue.ofInt(OP, 5), PrimitiveValue.ofInt(OP, 6));
+		assertNotEquals(PrimitiveValue.ofInt(OP, 0), PrimitiveValue.ofFloat(OP, 0F));
+		// Boxed values passed to the constructor are stored the same as the factory methods
+		assertEquals(PrimitiveValue.ofLong(OP, 3L),
+				new PrimitiveValue(PrimitiveValue.ofLong(OP, 0).getInsns(), Type.LONG_TYPE, 3));
+		// Copies retain their value
+		AbstractValue copy = PrimitiveValue.ofDouble(OP, 1.25).copy(new InsnNode(Opcodes.DUP));
+		assertEquals(1.25, copy.getValue());
+		assertEquals(2, copy.getInsns().size());
+	}
+}
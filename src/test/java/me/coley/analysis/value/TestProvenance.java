@@ -0,0 +1,252 @@
+package me.coley.analysis.value;
+
+import me.coley.analysis.SimAnalyzer;
+import me.coley.analysis.SimFrame;
+import me.coley.analysis.SimInterpreter;
+import me.coley.analysis.TestUtils;
+import me.coley.analysis.util.FrameUtil;
+import me.coley.analysis.value.provenance.ListProvenance;
+import me.coley.analysis.value.provenance.NoProvenance;
+import me.coley.analysis.value.provenance.Provenance;
+import me.coley.analysis.value.provenance.ProvenanceFactory;
+import me.coley.analysis.value.provenance.ProvenanceMode;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.analysis.AnalyzerException;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.objectweb.asm.Opcodes.*;
+
+public class TestProvenance extends TestUtils {
+	@Test
+	public void testBitSetOperations() {
+		MethodNode method = new MethodNode();
+		AbstractInsnNode[] insns = new AbstractInsnNode[130];
+		for (int i = 0; i < insns.length; i++) {
+			insns[i] = new InsnNode(NOP);
+			method.instructions.add(insns[i]);
+		}
+		ProvenanceFactory factory = ProvenanceMode.BITSET.newFactory(method);
+		Provenance a = factory.of(insns[129]).add(insns[3]);
+		Provenance b = factory.of(insns[64]).add(insns[3]);
+		// Adding present items and combining with subsets yields the same instance
+		assertSame(a, a.add(insns[129]));
+		assertSame(a, a.combine(factory.of(insns[3])));
+		assertSame(a, a.combine(factory.empty()));
+		// Materialized in instruction order
+		Provenance union = a.combine(b);
+		assertEquals(Arrays.asList(insns[3], insns[64], insns[129]), union.getInsns());
+		assertTrue(union.contains(insns[64]));
+		assertFalse(union.contains(insns[65]));
+		// Instructions outside of the method are still tracked
+		AbstractInsnNode foreign = new InsnNode(NOP);
+		Provenance withForeign = union.add(foreign);
+		assertEquals(4, withForeign.getInsns().size());
+		assertTrue(withForeign.contains(foreign));
+		assertFalse(union.contains(foreign));
+	}
+
+	@Test
+	public void testPersistentOperations() {
+		AbstractInsnNode a = new InsnNode(NOP);
+		AbstractInsnNode b = new InsnNode(NOP);
+		AbstractInsnNode c = new InsnNode(NOP);
+		ProvenanceFactory factory = ProvenanceMode.PERSISTENT.newFactory(new MethodNode());
+		Provenance base = factory.of(a);
+		// Diamond, both sides share the base
+		Provenance left = base.add(b);
+		Provenance right = base.add(c).add(b);
+		Provenance joined = left.combine(right);
+		assertEquals(Arrays.asList(a, b, c), joined.getInsns());
+		assertEquals(Arrays.asList(a, c, b), right.getInsns());
+		assertSame(joined, joined.combine(factory.empty()));
+		// Foreign provenance is linked rather than copied
+		Provenance foreign = ProvenanceMode.LIST.newFactory(new MethodNode()).of(c);
+		assertEquals(Arrays.asList(a, b, c), left.combine(foreign).getInsns());
+		// Long chains must not overflow the stack when materialized
+		Provenance chain = factory.empty();
+		for (int i = 0; i < 100_000; i++)
+			chain = chain.add(new InsnNode(NOP));
+		assertEquals(100_000, chain.getInsns().size());
+	}
+
+	@Test
+	public void testPersistentMatchesListOrder() throws AnalyzerException {
+		ClassNode node = getFromName("bin/custom/misc/HelloWorldSwapOrdering.class");
+		MethodNode method = getMethod(node, "helloVariables");
+		SimFrame[] listFrames = getFrames(node.name, method, ProvenanceMode.LIST);
+		SimFrame[] frames = getFrames(node.name, method, ProvenanceMode.PERSISTENT);
+		for (int i = 0; i < frames.length; i++) {
+			if (frames[i] == null)
+				continue;
+			for (int s = 0; s < frames[i].getStackSize(); s++)
+				assertEquals(listFrames[i].getStack(s).getInsns(), frames[i].getStack(s).getInsns());
+		}
+	}
+
+	@Test
+	public void testModesYieldSameInsns() throws AnalyzerException {
+		ClassNode node = getFromName("bin/custom/misc/HelloWorldSwapOrdering.class");
+		MethodNode method = getMethod(node, "helloVariables");
+		SimFrame[] listFrames = getFrames(node.name, method, ProvenanceMode.LIST);
+		for (ProvenanceMode mode : ProvenanceMode.values()) {
+			if (mode == ProvenanceMode.DISABLED)
+				continue;
+			SimFrame[] frames = getFrames(node.name, method, mode);
+			assertEquals(listFrames.length, frames.length);
+			for (int i = 0; i < frames.length; i++) {
+				if (frames[i] == null) {
+					assertNull(listFrames[i]);
+					continue;
+				}
+				for (int s = 0; s < frames[i].getStackSize(); s++)
+					assertEquals(insnSet(listFrames[i].getStack(s)), insnSet(frames[i].getStack(s)),
+							mode + " stack " + s + " at " + i);
+				for (int l = 0; l < frames[i].getLocals(); l++)
+					assertEquals(insnSet(listFrames[i].getLocal(l)), insnSet(frames[i].getLocal(l)),
+							mode + " local " + l + " at " + i);
+			}
+			int index = getMethodCallIndex(method.instructions, "println");
+			List<AbstractInsnNode> insns = FrameUtil.getTopStack(frames[index]).getInsns();
+			assertEquals(15, insns.size());
+		}
+	}
+
+	@Test
+	public void testOnDemandCoversListInLoops() throws AnalyzerException {
+		// Reconstruction reads the final frames, so loop merges may only add instructions
+		ClassNode node = getFromName("bin/javac/SetItToNull.class");
+		MethodNode method = getMethod(node, "foo1");
+		SimFrame[] listFrames = getFrames(node.name, method, ProvenanceMode.LIST);
+		SimFrame[] frames = getFrames(node.name, method, ProvenanceMode.ON_DEMAND);
+		for (int i = 0; i < frames.length; i++) {
+			if (frames[i] == null)
+				continue;
+			for (int s = 0; s < frames[i].getStackSize(); s++)
+				assertTrue(insnSet(frames[i].getStack(s)).containsAll(listFrames[i].getStack(s).getInsns()),
+						"stack " + s + " at " + i);
+		}
+	}
+
+	@Test
+	public void testDisabledKeepsValues() throws AnalyzerException {
+		ClassNode node = getFromName("bin/custom/misc/HelloWorldSwapOrdering.class");
+		MethodNode method = getMethod(node, "helloVariables");
+		SimFrame[] trackedFrames = getFrames(node.name, method, ProvenanceMode.PERSISTENT);
+		SimFrame[] frames = getFrames(node.name, method, ProvenanceMode.DISABLED);
+		for (int i = 0; i < frames.length; i++) {
+			if (frames[i] == null) {
+				assertNull(trackedFrames[i]);
+				continue;
+			}
+			for (int s = 0; s < frames[i].getStackSize(); s++) {
+				assertEquals(trackedFrames[i].getStack(s), frames[i].getStack(s));
+				assertTrue(frames[i].getStack(s).getInsns().isEmpty());
+			}
+		}
+		int index = getMethodCallIndex(method.instructions, "println");
+		assertEquals("Hello World", FrameUtil.getTopStack(frames[index]).getValue());
+	}
+
+	@Test
+	public void testDisabledSharesConstants() throws AnalyzerException {
+		MethodNode method = new MethodNode(ACC_STATIC, "m", "()I", null, null);
+		method.instructions.add(new InsnNode(ICONST_2));
+		method.instructions.add(new InsnNode(ICONST_2));
+		method.instructions.add(new InsnNode(IADD));
+		method.instructions.add(new InsnNode(IRETURN));
+		method.maxStack = 2;
+		SimFrame[] frames = getFrames("Owner", method, ProvenanceMode.DISABLED);
+		assertSame(frames[2].getStack(0), frames[2].getStack(1));
+		assertEquals(4, ((PrimitiveValue) frames[3].getStack(0)).getIntValue());
+	}
+
+	@Test
+	public void testStaticInvokeWithoutArguments() throws AnalyzerException {
+		MethodNode method = new MethodNode(ACC_STATIC, "m", "()D", null, null);
+		MethodInsnNode invoke = new MethodInsnNode(INVOKESTATIC, "java/lang/Math", "random", "()D", false);
+		method.instructions.add(invoke);
+		method.instructions.add(new InsnNode(DRETURN));
+		method.maxStack = 2;
+		for (ProvenanceMode mode : new ProvenanceMode[]{ProvenanceMode.PERSISTENT, ProvenanceMode.BITSET}) {
+			AbstractValue value = getFrames("Owner", method, mode)[1].getStack(0);
+			assertTrue(value.isValueResolved(), mode::name);
+			// Provenance comes from the method's factory, not a default list
+			assertFalse(value.getProvenance() instanceof ListProvenance, mode::name);
+			assertEquals(Arrays.asList(invoke), value.getInsns(), mode::name);
+		}
+		AbstractValue value = getFrames("Owner", method, ProvenanceMode.DISABLED)[1].getStack(0);
+		assertSame(NoProvenance.INSTANCE, value.getProvenance());
+	}
+
+	@Test
+	public void testLegacyCreateBridge() {
+		AbstractInsnNode first = new InsnNode(NOP);
+		AbstractInsnNode second = new InsnNode(NOP);
+		AbstractValue value = new LegacyValue(Arrays.asList(first));
+		AbstractValue copy = value.copy(second);
+		assertTrue(copy instanceof LegacyValue);
+		assertEquals(Arrays.asList(first, second), copy.getInsns());
+		assertEquals(Arrays.asList(first), value.getInsns());
+	}
+
+	private static Set<AbstractInsnNode> insnSet(AbstractValue value) {
+		return new HashSet<>(value.getInsns());
+	}
+
+	private static SimFrame[] getFrames(String owner, MethodNode method, ProvenanceMode mode) throws AnalyzerException {
+		SimInterpreter interpreter = new SimInterpreter();
+		interpreter.setUseReflectionSimulation(true);
+		interpreter.setProvenanceMode(mode);
+		return new SimAnalyzer(interpreter).analyze(owner, method);
+	}
+
+	/**
+	 * Value written against the list based API, only overriding {@code create(List)}.
+	 */
+	private static class LegacyValue extends AbstractValue {
+		private LegacyValue(List<AbstractInsnNode> insns) {
+			super(insns, null, null);
+		}
+
+		@Override
+		@SuppressWarnings("deprecation")
+		protected AbstractValue create(List<AbstractInsnNode> insns) {
+			return new LegacyValue(insns);
+		}
+
+		@Override
+		public boolean canMerge(AbstractValue other) {
+			return other instanceof LegacyValue;
+		}
+
+		@Override
+		public boolean isPrimitive() {
+			return false;
+		}
+
+		@Override
+		public boolean isReference() {
+			return false;
+		}
+
+		@Override
+		public boolean isValueResolved() {
+			return false;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof LegacyValue && getInsns().equals(((LegacyValue) other).getInsns());
+		}
+	}
+}